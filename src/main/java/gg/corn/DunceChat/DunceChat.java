@@ -2,7 +2,12 @@ package gg.corn.DunceChat;
 
 import gg.corn.DunceChat.command.*;
 import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.database.LoggingPoolMetricsSink;
+import gg.corn.DunceChat.database.PoolMetrics;
+import gg.corn.DunceChat.database.PoolSettings;
 import gg.corn.DunceChat.database.SchemaManager;
+import gg.corn.DunceChat.filter.WordFilterManager;
+import gg.corn.DunceChat.graph.IpGraph;
 import gg.corn.DunceChat.gui.DunceGUIBuilder;
 import gg.corn.DunceChat.listener.ChatListener;
 import gg.corn.DunceChat.listener.DunceCommandBlockListener;
@@ -10,13 +15,18 @@ import gg.corn.DunceChat.listener.GUIListener;
 import gg.corn.DunceChat.listener.GreentextListener;
 import gg.corn.DunceChat.listener.PlayerConnectionListener;
 import gg.corn.DunceChat.repository.DunceRepository;
+import gg.corn.DunceChat.repository.JoinBenchmark;
 import gg.corn.DunceChat.repository.PendingMessageRepository;
 import gg.corn.DunceChat.repository.PlayerIPRepository;
 import gg.corn.DunceChat.repository.PlayerRepository;
 import gg.corn.DunceChat.repository.PreferencesRepository;
+import gg.corn.DunceChat.repository.QueryBenchmark;
+import gg.corn.DunceChat.repository.QueryPlanCheck;
+import gg.corn.DunceChat.service.DunceCache;
 import gg.corn.DunceChat.service.DunceService;
 import gg.corn.DunceChat.service.IPTrackingService;
 import gg.corn.DunceChat.service.PlayerService;
+import gg.corn.DunceChat.service.PlayerWriteBuffer;
 import gg.corn.DunceChat.service.PreferencesService;
 import gg.corn.DunceChat.util.MessageManager;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -26,7 +36,6 @@ import org.bukkit.plugin.java.JavaPlugin;
 import java.io.File;
 import java.io.InputStream;
 import java.nio.file.Files;
-import java.util.List;
 import java.util.Objects;
 
 /**
@@ -45,16 +54,20 @@ public class DunceChat extends JavaPlugin {
     private PendingMessageRepository pendingMessageRepository;
     private PreferencesRepository preferencesRepository;
     private PlayerIPRepository playerIPRepository;
+    private IpGraph ipGraph;
 
     // Services
     private PlayerService playerService;
     private DunceService dunceService;
     private PreferencesService preferencesService;
     private IPTrackingService ipTrackingService;
+    private PlayerWriteBuffer playerWriteBuffer;
 
     // Utilities
     private MessageManager messageManager;
     private DunceGUIBuilder guiBuilder;
+    private WordFilterManager wordFilterManager;
+    private AsyncCommandExecutor commandExecutor;
 
 
     // Config
@@ -102,6 +115,22 @@ public class DunceChat extends JavaPlugin {
 
     @Override
     public void onDisable() {
+        if (wordFilterManager != null) {
+            wordFilterManager.shutdown();
+        }
+
+        if (commandExecutor != null) {
+            commandExecutor.shutdown();
+        }
+
+        if (dunceService != null) {
+            dunceService.shutdown();
+        }
+
+        // Write buffered joins/quits before the pool closes
+        if (playerWriteBuffer != null) {
+            playerWriteBuffer.shutdown();
+        }
 
         if (databaseManager != null) {
             databaseManager.close();
@@ -142,8 +171,11 @@ public class DunceChat extends JavaPlugin {
                 databaseManager = new DatabaseManager(h2FilePath);
             }
 
+            databaseManager.setPoolSettings(readPoolSettings());
+
             getLogger().info("Initializing database connection pool...");
             databaseManager.initialize();
+            startPoolMetrics();
             getLogger().info("Database connection pool initialized!");
 
             // Log database type and migration support
@@ -167,6 +199,11 @@ public class DunceChat extends JavaPlugin {
                 }
             }
 
+            // Warn about hot queries that would scan whole tables
+            if (getConfig().getBoolean("database.query-plan-check", true)) {
+                new QueryPlanCheck(databaseManager).run();
+            }
+
             getLogger().info("=== Database Initialization Complete ===");
         } catch (Exception e) {
             getLogger().severe("=== Database Initialization FAILED ===");
@@ -176,6 +213,39 @@ public class DunceChat extends JavaPlugin {
         }
     }
 
+    /**
+     * Read the connection pool settings (database.pool), falling back to the previous fixed values
+     */
+    private PoolSettings readPoolSettings() {
+        PoolSettings defaults = PoolSettings.defaults();
+        return new PoolSettings(
+            getConfig().getInt("database.pool.maximum-pool-size", defaults.maximumPoolSize()),
+            getConfig().getInt("database.pool.minimum-idle", defaults.minimumIdle()),
+            getConfig().getLong("database.pool.connection-timeout-millis", defaults.connectionTimeoutMillis()),
+            getConfig().getLong("database.pool.idle-timeout-millis", defaults.idleTimeoutMillis()),
+            getConfig().getLong("database.pool.max-lifetime-millis", defaults.maxLifetimeMillis()),
+            getConfig().getLong("database.pool.keepalive-time-millis", defaults.keepaliveTimeMillis()),
+            getConfig().getLong("database.pool.validation-timeout-millis", defaults.validationTimeoutMillis()),
+            getConfig().getLong("database.pool.leak-detection-threshold-millis", defaults.leakDetectionThresholdMillis()));
+    }
+
+    /**
+     * Register the configured pool metrics sink and publish to sinks periodically
+     * Other plugins can add their own sink through getDatabaseManager().getPoolMetrics().addSink
+     */
+    private void startPoolMetrics() {
+        PoolMetrics poolMetrics = databaseManager.getPoolMetrics();
+        String sink = getConfig().getString("database.pool.metrics.sink", "none").toLowerCase();
+        if (sink.equals("log")) {
+            poolMetrics.addSink(new LoggingPoolMetricsSink());
+        } else if (!sink.equals("none")) {
+            getLogger().warning("Unknown database.pool.metrics.sink '" + sink + "', pool metrics are only shown by /duncestats.");
+        }
+
+        long intervalTicks = Math.max(1, getConfig().getLong("database.pool.metrics.interval-seconds", 60)) * 20;
+        getServer().getScheduler().runTaskTimerAsynchronously(this, poolMetrics::publish, intervalTicks, intervalTicks);
+    }
+
     /**
      * Initialize all repositories
      */
@@ -183,7 +253,14 @@ public class DunceChat extends JavaPlugin {
         playerRepository = new PlayerRepository(databaseManager);
         dunceRepository = new DunceRepository(databaseManager);
         pendingMessageRepository = new PendingMessageRepository(databaseManager);
-        playerIPRepository = new PlayerIPRepository(databaseManager);
+        // In-memory IP graph for alt detection (loaded in initializeServices)
+        ipGraph = getConfig().getBoolean("ip-tracking.in-memory-graph", true) ? new IpGraph() : null;
+        PlayerIPRepository.AltDetectionEngine altEngine = PlayerIPRepository.AltDetectionEngine.fromConfig(
+            getConfig().getString("ip-tracking.alt-detection-engine", "auto"));
+        playerIPRepository = new PlayerIPRepository(databaseManager, ipGraph, altEngine);
+        if (altEngine == PlayerIPRepository.AltDetectionEngine.CTE && !playerIPRepository.supportsRecursiveAltQuery()) {
+            getLogger().warning("alt-detection-engine 'cte' requires MySQL, using the database BFS instead.");
+        }
 
         boolean defaultVisibility = getConfig().getBoolean("visible-by-default", false);
         preferencesRepository = new PreferencesRepository(databaseManager, defaultVisibility);
@@ -195,41 +272,99 @@ public class DunceChat extends JavaPlugin {
      * Initialize all services
      */
     private void initializeServices() {
-        playerService = new PlayerService(playerRepository, getConfig());
-        preferencesService = new PreferencesService(preferencesRepository);
+        // Coalesce join/quit/IP writes into batches (requires the database executor)
+        if (getConfig().getBoolean("write-buffer.enabled", true)
+            && databaseManager != null && databaseManager.isInitialized()) {
+            playerWriteBuffer = new PlayerWriteBuffer(databaseManager, playerRepository, playerIPRepository,
+                preferencesRepository, getConfig().getLong("write-buffer.flush-interval-millis", 1000),
+                getConfig().getInt("write-buffer.max-batch-size", 200));
+            playerWriteBuffer.start();
+        }
+
+        playerService = new PlayerService(playerRepository, getConfig(), playerWriteBuffer);
+        preferencesService = new PreferencesService(preferencesRepository, playerService);
+        DunceCache dunceCache = new DunceCache(getConfig().getInt("cache.negative-max-size", 10000),
+                                               getConfig().getLong("cache.negative-ttl-seconds", 300));
         dunceService = new DunceService(dunceRepository, pendingMessageRepository, playerIPRepository,
-                                       playerService, preferencesService, messageManager);
+                                       playerService, preferencesService, messageManager, dunceCache, databaseManager);
         ipTrackingService = new IPTrackingService(playerIPRepository, playerService, dunceService,
                                                   messageManager, getConfig());
 
         // Initialize dunce cache if database is available
         if (databaseManager != null && databaseManager.isInitialized()) {
             dunceService.initializeCache();
+            loadIpGraph();
+            buildAltClusters();
         }
 
         getLogger().info("Services initialized.");
     }
 
+    /**
+     * Load player_ip_log into the in-memory IP graph
+     * Alt lookups fall back to database queries if this is disabled or fails
+     */
+    private void loadIpGraph() {
+        if (ipGraph == null) {
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            int rows = playerIPRepository.loadIpGraph();
+            getLogger().info("Loaded IP graph: " + ipGraph.getPlayerCount() + " players, " + ipGraph.getIpCount()
+                + " IPs, " + rows + " associations in " + (System.currentTimeMillis() - start) + "ms");
+        } catch (Exception e) {
+            getLogger().severe("Failed to load IP graph, alt detection will use database queries: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Build the alt cluster index from the IP log (uses the IP graph when loaded)
+     */
+    private void buildAltClusters() {
+        try {
+            long start = System.currentTimeMillis();
+            int nodes = ipTrackingService.rebuildAltClusters();
+            if (nodes >= 0) {
+                getLogger().info("Built alt cluster index: " + nodes + " nodes in "
+                    + (System.currentTimeMillis() - start) + "ms");
+            }
+        } catch (Exception e) {
+            getLogger().severe("Failed to build alt cluster index, alt checks will run in full: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Register all commands with their handlers
      */
     private void registerCommands() {
+        // Shared executor for commands that touch the database
+        commandExecutor = new AsyncCommandExecutor(this, messageManager,
+            getConfig().getInt("commands.max-concurrent", 4),
+            getConfig().getInt("commands.max-queued", 32),
+            getConfig().getLong("commands.rate-limit-millis", 500),
+            getConfig().getBoolean("commands.virtual-threads", true));
+
         // Dunce/Undunce commands
-        DunceCommand dunceCommand = new DunceCommand(dunceService, playerService, messageManager);
+        DunceCommand dunceCommand = new DunceCommand(dunceService, playerService, messageManager, commandExecutor);
         Objects.requireNonNull(getCommand("dunce")).setExecutor(dunceCommand);
         Objects.requireNonNull(getCommand("dunce")).setTabCompleter(dunceCommand);
         Objects.requireNonNull(getCommand("undunce")).setExecutor(dunceCommand);
         Objects.requireNonNull(getCommand("undunce")).setTabCompleter(dunceCommand);
 
         // IP Dunce/Undunce commands
-        IPDunceCommand ipDunceCommand = new IPDunceCommand(dunceService, playerService, messageManager);
+        IPDunceCommand ipDunceCommand = new IPDunceCommand(dunceService, playerService, messageManager, commandExecutor);
         Objects.requireNonNull(getCommand("dunceip")).setExecutor(ipDunceCommand);
         Objects.requireNonNull(getCommand("dunceip")).setTabCompleter(ipDunceCommand);
         Objects.requireNonNull(getCommand("undunceip")).setExecutor(ipDunceCommand);
         Objects.requireNonNull(getCommand("undunceip")).setTabCompleter(ipDunceCommand);
 
         // IP History command
-        IPHistoryCommand ipHistoryCommand = new IPHistoryCommand(dunceService, playerService, messageManager, playerIPRepository, getConfig());
+        IPHistoryCommand ipHistoryCommand = new IPHistoryCommand(dunceService, playerService, messageManager, playerIPRepository,
+                                                                getConfig(), commandExecutor);
         Objects.requireNonNull(getCommand("dunceiphistory")).setExecutor(ipHistoryCommand);
         Objects.requireNonNull(getCommand("dunceiphistory")).setTabCompleter(ipHistoryCommand);
 
@@ -246,21 +381,32 @@ public class DunceChat extends JavaPlugin {
         // Utility commands
         Objects.requireNonNull(getCommand("clearchat")).setExecutor(new ClearChatCommand(messageManager));
         Objects.requireNonNull(getCommand("duncereload")).setExecutor(new ReloadCommand(this, messageManager));
-        Objects.requireNonNull(getCommand("duncelookup")).setExecutor(new LookupCommand(dunceService, playerService, messageManager));
+        Objects.requireNonNull(getCommand("duncelookup")).setExecutor(new LookupCommand(dunceService, playerService, messageManager, commandExecutor));
         Objects.requireNonNull(getCommand("duncemigrate")).setExecutor(new MigrateCommand(schemaManager, messageManager));
 
+        // Database statistics and benchmark commands
+        Objects.requireNonNull(getCommand("duncestats")).setExecutor(
+            new StatsCommand(databaseManager, playerWriteBuffer, messageManager));
+        BenchCommand benchCommand = new BenchCommand(new JoinBenchmark(databaseManager, playerRepository),
+            new QueryBenchmark(databaseManager), messageManager, commandExecutor);
+        Objects.requireNonNull(getCommand("duncebench")).setExecutor(benchCommand);
+        Objects.requireNonNull(getCommand("duncebench")).setTabCompleter(benchCommand);
+
         // Alt detection command
-        AltLookupCommand altLookupCommand = new AltLookupCommand(dunceService, playerService, messageManager, getConfig());
+        AltLookupCommand altLookupCommand = new AltLookupCommand(dunceService, playerService, messageManager, getConfig(),
+                                                                commandExecutor);
         Objects.requireNonNull(getCommand("duncealtlookup")).setExecutor(altLookupCommand);
         Objects.requireNonNull(getCommand("duncealtlookup")).setTabCompleter(altLookupCommand);
 
         // IP Lookup command
-        IPLookupCommand ipLookupCommand = new IPLookupCommand(dunceService, playerService, messageManager, playerIPRepository, getConfig());
+        IPLookupCommand ipLookupCommand = new IPLookupCommand(dunceService, playerService, messageManager, playerIPRepository,
+                                                             getConfig(), commandExecutor);
         Objects.requireNonNull(getCommand("dunceiplookup")).setExecutor(ipLookupCommand);
         Objects.requireNonNull(getCommand("dunceiplookup")).setTabCompleter(ipLookupCommand);
 
         // Unlink command
-        UnlinkCommand unlinkCommand = new UnlinkCommand(dunceService, playerService, messageManager);
+        UnlinkCommand unlinkCommand = new UnlinkCommand(dunceService, playerService, ipTrackingService, messageManager,
+                                                          commandExecutor);
         Objects.requireNonNull(getCommand("dunceunlink")).setExecutor(unlinkCommand);
         Objects.requireNonNull(getCommand("dunceunlink")).setTabCompleter(unlinkCommand);
 
@@ -271,18 +417,23 @@ public class DunceChat extends JavaPlugin {
      * Register all event listeners
      */
     private void registerListeners() {
-        List<String> disallowedWords = wordsConfig.getStringList("disallowed-words");
-
         // Player connection events (join/quit) with async optimization
         getServer().getPluginManager().registerEvents(
             new PlayerConnectionListener(dunceService, playerService, preferencesService,
-                                        ipTrackingService, this),
+                                        ipTrackingService, databaseManager.getExecutor(), this),
             this);
 
+        // Compile the word filter in the background; chat is unfiltered only until the first compile finishes
+        wordFilterManager = new WordFilterManager(new File(getDataFolder(), "words.yml"), getConfig());
+        wordFilterManager.reloadAsync(getConfig());
+        if (getConfig().getBoolean("word-filter.watch-file", true)) {
+            wordFilterManager.startWatching();
+        }
+
         // Chat events (dunce chat, word filter, legacy support)
         getServer().getPluginManager().registerEvents(
             new ChatListener(dunceService, playerService, preferencesService,
-                           messageManager, disallowedWords),
+                           messageManager, wordFilterManager),
             this);
 
         // Command blocking for dunced players
@@ -304,7 +455,9 @@ public class DunceChat extends JavaPlugin {
     }
 
     /**
-     * Start the scheduler that checks for expired dunces
+     * Start the expiry scheduler and the reconciliation sweep
+     * Dunces expire from an in-memory queue at their exact expiry time; the database is only
+     * swept occasionally to catch drift (e.g. records changed outside this server)
      */
     private void startExpiryChecker() {
         if (databaseManager == null || !databaseManager.isInitialized()) {
@@ -312,6 +465,10 @@ public class DunceChat extends JavaPlugin {
             return;
         }
 
+        dunceService.startExpiryScheduler();
+
+        long reconcileMinutes = Math.max(1, getConfig().getLong("expiry.reconcile-interval-minutes", 10));
+        long reconcileTicks = reconcileMinutes * 60 * 20;
         getServer().getScheduler().runTaskTimerAsynchronously(this, () -> {
             try {
                 dunceService.processExpiredDunces();
@@ -319,9 +476,9 @@ public class DunceChat extends JavaPlugin {
                 getLogger().severe("Error processing expired dunces: " + e.getMessage());
                 e.printStackTrace();
             }
-        }, 0L, 20L); // Run every second
+        }, reconcileTicks, reconcileTicks);
 
-        getLogger().info("Expiry checker started.");
+        getLogger().info("Expiry scheduler started (reconciliation every " + reconcileMinutes + " minutes).");
     }
 
     /**
@@ -350,6 +507,20 @@ public class DunceChat extends JavaPlugin {
         wordsConfig = YamlConfiguration.loadConfiguration(wordsFile);
     }
 
+    /**
+     * Get the word filter manager
+     */
+    public WordFilterManager getWordFilterManager() {
+        return wordFilterManager;
+    }
+
+    /**
+     * Get the database manager (pool metrics sinks are registered through it)
+     */
+    public DatabaseManager getDatabaseManager() {
+        return databaseManager;
+    }
+
     /**
      * Get words configuration
      */
@@ -1,6 +1,7 @@
 package gg.corn.DunceChat.command;
 
 import gg.corn.DunceChat.model.AltDetectionResult;
+import gg.corn.DunceChat.repository.PlayerIPRepository.AltDetectionEngine;
 import gg.corn.DunceChat.service.DunceService;
 import gg.corn.DunceChat.service.PlayerService;
 import gg.corn.DunceChat.util.MessageManager;
@@ -19,7 +20,6 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -33,15 +33,18 @@ public class AltLookupCommand implements CommandExecutor, TabCompleter {
     private final PlayerService playerService;
     private final MessageManager messageManager;
     private final FileConfiguration config;
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+    private final AsyncCommandExecutor commandExecutor;
     private static final int DEFAULT_DEPTH = 2;
+    private static final int BENCHMARK_MAX_DEPTH = 10;
 
     public AltLookupCommand(DunceService dunceService, PlayerService playerService,
-                           MessageManager messageManager, FileConfiguration config) {
+                           MessageManager messageManager, FileConfiguration config,
+                           AsyncCommandExecutor commandExecutor) {
         this.dunceService = dunceService;
         this.playerService = playerService;
         this.messageManager = messageManager;
         this.config = config;
+        this.commandExecutor = commandExecutor;
     }
 
     private int getMaxDepth() {
@@ -57,7 +60,7 @@ public class AltLookupCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        // Usage: /duncealtlookup <player> [depth]
+        // Usage: /duncealtlookup <player> [depth|bench]
         if (args.length < 1) {
             sender.sendMessage(messageManager.get("usage_altlookup"));
             return true;
@@ -66,8 +69,9 @@ public class AltLookupCommand implements CommandExecutor, TabCompleter {
         String targetName = args[0];
         int maxDepth = getMaxDepth();
         int depth = DEFAULT_DEPTH;
+        boolean benchmark = args.length > 1 && args[1].equalsIgnoreCase("bench");
 
-        if (args.length > 1) {
+        if (args.length > 1 && !benchmark) {
             try {
                 depth = Integer.parseInt(args[1]);
                 if (depth < 1 || depth > maxDepth) {
@@ -80,101 +84,144 @@ public class AltLookupCommand implements CommandExecutor, TabCompleter {
             }
         }
 
-        // Get target UUID
-        UUID targetUuid = playerService.getUuidByName(targetName).orElse(null);
-        if (targetUuid == null) {
-            sender.sendMessage(messageManager.get("player_not_found", targetName));
-            return true;
+        if (benchmark) {
+            sender.sendMessage(messageManager.get("altlookup_bench_running", targetName));
+        } else {
+            sender.sendMessage(messageManager.get("altlookup_scanning", targetName));
         }
 
-        // Perform alt detection
-        sender.sendMessage(messageManager.get("altlookup_scanning", targetName));
-
         final int finalDepth = depth;
 
-        // Run async to avoid blocking main thread
-        Bukkit.getScheduler().runTaskAsynchronously(
-            Bukkit.getPluginManager().getPlugin("DunceChat"),
-            () -> {
-                AltDetectionResult result = dunceService.detectAlts(targetUuid, finalDepth);
-
-                // Send results on main thread
-                Bukkit.getScheduler().runTask(
-                    Bukkit.getPluginManager().getPlugin("DunceChat"),
-                    () -> displayResults(sender, result, finalDepth)
-                );
+        commandExecutor.submitLookup(sender, "altlookup", reply -> {
+            // Get target UUID
+            UUID targetUuid = playerService.getUuidByName(targetName).orElse(null);
+            if (targetUuid == null) {
+                reply.send(messageManager.get("player_not_found", targetName));
+                return;
+            }
+
+            if (benchmark) {
+                runBenchmark(reply, targetName, targetUuid);
+                return;
             }
-        );
+
+            // Perform alt detection
+            AltDetectionResult result = dunceService.detectAlts(targetUuid, finalDepth);
+            if (!reply.isCancelled()) {
+                displayResults(reply, result, finalDepth);
+            }
+        });
 
         return true;
     }
 
-    private void displayResults(CommandSender sender, AltDetectionResult result, int depth) {
-        sender.sendMessage(Component.empty());
+    /**
+     * Time every alt detection engine for the same player at depths 1 to 10
+     */
+    private void runBenchmark(CommandReply reply, String targetName, UUID targetUuid) {
+        reply.send(messageManager.get("altlookup_bench_header", targetName));
+
+        for (int depth = 1; depth <= BENCHMARK_MAX_DEPTH && !reply.isCancelled(); depth++) {
+            long bfsStart = System.nanoTime();
+            Map<UUID, Set<String>> bfs = dunceService.findConnectedPlayers(targetUuid, depth, AltDetectionEngine.BFS);
+            String bfsTime = formatMillis(System.nanoTime() - bfsStart);
+
+            boolean matches = true;
+
+            String cteTime = "n/a";
+            if (dunceService.supportsRecursiveAltQuery()) {
+                long cteStart = System.nanoTime();
+                Map<UUID, Set<String>> cte = dunceService.findConnectedPlayers(targetUuid, depth, AltDetectionEngine.CTE);
+                cteTime = formatMillis(System.nanoTime() - cteStart);
+                matches = bfs.equals(cte);
+            }
+
+            String graphTime = "n/a";
+            if (dunceService.isIpGraphLoaded()) {
+                long graphStart = System.nanoTime();
+                Map<UUID, Set<String>> graph = dunceService.findConnectedPlayers(targetUuid, depth, AltDetectionEngine.GRAPH);
+                graphTime = formatMillis(System.nanoTime() - graphStart);
+                matches &= bfs.equals(graph);
+            }
+
+            reply.send(messageManager.get("altlookup_bench_row", String.valueOf(depth),
+                String.valueOf(bfs.size()), bfsTime, cteTime, graphTime));
+            if (!matches) {
+                reply.send(messageManager.get("altlookup_bench_mismatch", String.valueOf(depth)));
+            }
+        }
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+    private void displayResults(CommandReply reply, AltDetectionResult result, int depth) {
+        reply.send(Component.empty());
 
         // Header
-        sender.sendMessage(messageManager.get("altlookup_header"));
+        reply.send(messageManager.get("altlookup_header"));
 
-        sender.sendMessage(messageManager.get("altlookup_target", result.getTargetPlayerName()));
-        sender.sendMessage(messageManager.get("altlookup_depth", String.valueOf(depth)));
+        reply.send(messageManager.get("altlookup_target", result.getTargetPlayerName()));
+        reply.send(messageManager.get("altlookup_depth", String.valueOf(depth)));
 
         // Player's IPs
         List<String> playerIPs = dunceService.getPlayerIPs(result.getTargetPlayer());
-        sender.sendMessage(messageManager.get("altlookup_known_ips", String.valueOf(playerIPs.size())));
+        reply.send(messageManager.get("altlookup_known_ips", String.valueOf(playerIPs.size())));
 
         Optional<String> currentIP = dunceService.getPlayerCurrentIP(result.getTargetPlayer());
         if (currentIP.isPresent()) {
-            sender.sendMessage(messageManager.get("altlookup_current_ip", currentIP.get())
+            reply.send(messageManager.get("altlookup_current_ip", currentIP.get())
                 .clickEvent(ClickEvent.copyToClipboard(currentIP.get()))
                 .hoverEvent(HoverEvent.showText(messageManager.get("iplookup_click_copy"))));
         }
 
-        sender.sendMessage(Component.empty());
+        reply.send(Component.empty());
 
         // Direct alts (current IP match)
         Set<AltDetectionResult.AltAccount> directAlts = result.getDirectAlts();
-        sender.sendMessage(messageManager.get("altlookup_direct_alts", String.valueOf(directAlts.size())));
+        reply.send(messageManager.get("altlookup_direct_alts", String.valueOf(directAlts.size())));
 
         if (directAlts.isEmpty()) {
-            sender.sendMessage(messageManager.get("altlookup_none_detected"));
+            reply.send(messageManager.get("altlookup_none_detected"));
         } else {
             for (AltDetectionResult.AltAccount alt : directAlts) {
-                displayAltAccount(sender, alt, result.getTargetPlayer());
+                displayAltAccount(reply, alt, result.getTargetPlayer());
             }
         }
 
-        sender.sendMessage(Component.empty());
+        reply.send(Component.empty());
 
         // Historical alts
         Set<AltDetectionResult.AltAccount> historicalAlts = result.getHistoricalAlts();
-        sender.sendMessage(messageManager.get("altlookup_historical_alts", String.valueOf(historicalAlts.size())));
+        reply.send(messageManager.get("altlookup_historical_alts", String.valueOf(historicalAlts.size())));
 
         if (historicalAlts.isEmpty()) {
-            sender.sendMessage(messageManager.get("altlookup_none_detected"));
+            reply.send(messageManager.get("altlookup_none_detected"));
         } else {
             for (AltDetectionResult.AltAccount alt : historicalAlts) {
-                displayAltAccount(sender, alt, result.getTargetPlayer());
+                displayAltAccount(reply, alt, result.getTargetPlayer());
             }
         }
 
-        sender.sendMessage(Component.empty());
+        reply.send(Component.empty());
 
         // Summary
         int totalAlts = result.getTotalAltCount();
         NamedTextColor summaryColor = totalAlts == 0 ? NamedTextColor.GREEN :
                                       (directAlts.isEmpty() ? NamedTextColor.YELLOW : NamedTextColor.RED);
 
-        sender.sendMessage(Component.text()
+        reply.send(Component.text()
             .append(messageManager.get("altlookup_total_alts", ""))
             .append(Component.text(String.valueOf(totalAlts))
                 .color(summaryColor)
                 .decorate(TextDecoration.BOLD))
             .build());
 
-        sender.sendMessage(messageManager.get("altlookup_footer"));
+        reply.send(messageManager.get("altlookup_footer"));
     }
 
-    private void displayAltAccount(CommandSender sender, AltDetectionResult.AltAccount alt, UUID targetUuid) {
+    private void displayAltAccount(CommandReply reply, AltDetectionResult.AltAccount alt, UUID targetUuid) {
         // Check if this player is currently dunced
         boolean isDunced = dunceService.isDunced(alt.getPlayerUuid());
 
@@ -204,7 +251,7 @@ public class AltLookupCommand implements CommandExecutor, TabCompleter {
                 .append(messageManager.get("iplookup_via_ips", sharedIPText));
         }
 
-        sender.sendMessage(line);
+        reply.send(line);
     }
 
     @Override
@@ -227,6 +274,7 @@ public class AltLookupCommand implements CommandExecutor, TabCompleter {
             for (int i = 1; i <= maxDepth; i++) {
                 depths.add(String.valueOf(i));
             }
+            depths.add("bench");
             return depths.stream()
                 .filter(d -> d.startsWith(args[1]))
                 .collect(Collectors.toList());
@@ -0,0 +1,227 @@
+package gg.corn.DunceChat.command;
+
+import gg.corn.DunceChat.util.MessageManager;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs command work (database lookups and writes) off the main thread
+ * Work runs on a dedicated executor with at most maxConcurrent tasks at a time and at most
+ * maxQueued waiting. Players are rate limited per command, a new lookup replaces the sender's
+ * previous one still in flight, and replies are delivered on the main thread
+ */
+public class AsyncCommandExecutor {
+
+    private static final Logger logger = Logger.getLogger("DunceChat");
+
+    private final Plugin plugin;
+    private final MessageManager messageManager;
+    private final ExecutorService executor;
+    private final Semaphore running;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long rateLimitMillis;
+
+    private final AtomicInteger pending = new AtomicInteger();
+    // "sender:command" -> last submission time / the in-flight invocation
+    private final Map<String, Long> lastSubmitted = new ConcurrentHashMap<>();
+    private volatile long lastPruned;
+    private final Map<String, Invocation> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Work run off the main thread; messages go through the reply
+     */
+    @FunctionalInterface
+    public interface Task {
+        void run(CommandReply reply) throws Exception;
+    }
+
+    private record Invocation(CommandReply reply, Future<?> future) {
+    }
+
+    public AsyncCommandExecutor(Plugin plugin, MessageManager messageManager, int maxConcurrent, int maxQueued,
+                                long rateLimitMillis, boolean virtualThreads) {
+        this.plugin = plugin;
+        this.messageManager = messageManager;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.running = new Semaphore(this.maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.rateLimitMillis = Math.max(0, rateLimitMillis);
+        this.executor = virtualThreads
+            ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("DunceChat-Command-", 0).factory())
+            : Executors.newFixedThreadPool(this.maxConcurrent, runnable -> {
+                Thread thread = new Thread(runnable, "DunceChat-Command");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    /**
+     * Run a read-only command (lookups); a newer invocation by the same sender cancels this one
+     */
+    public void submitLookup(CommandSender sender, String commandName, Task task) {
+        submit(sender, commandName, true, task);
+    }
+
+    /**
+     * Run a command that changes state (dunce, unlink); it always runs to completion
+     */
+    public void submitAction(CommandSender sender, String commandName, Task task) {
+        submit(sender, commandName, false, task);
+    }
+
+    /**
+     * Forget submissions whose rate-limit window has passed (at most once per window)
+     */
+    private void pruneRateLimits(long now) {
+        if (now - lastPruned < rateLimitMillis) {
+            return;
+        }
+        lastPruned = now;
+        lastSubmitted.values().removeIf(submitted -> now - submitted >= rateLimitMillis);
+    }
+
+    private void submit(CommandSender sender, String commandName, boolean cancelPrevious, Task task) {
+        String key = senderKey(sender) + ":" + commandName;
+
+        // Rate limit players (console and command blocks are trusted)
+        if (sender instanceof Player && rateLimitMillis > 0) {
+            long now = System.currentTimeMillis();
+            Long last = lastSubmitted.put(key, now);
+            pruneRateLimits(now);
+            if (last != null && now - last < rateLimitMillis) {
+                sender.sendMessage(messageManager.get("command_rate_limited"));
+                return;
+            }
+        }
+
+        // Running plus waiting tasks are bounded
+        if (pending.incrementAndGet() > maxConcurrent + maxQueued) {
+            pending.decrementAndGet();
+            sender.sendMessage(messageManager.get("command_busy"));
+            return;
+        }
+
+        CommandReply reply = new CommandReply(sender);
+        // Claimed by whichever comes first: the task starting (frees its slot when it ends) or its cancellation
+        AtomicBoolean started = new AtomicBoolean();
+        FutureTask<Void> future = new FutureTask<>(() -> execute(key, reply, task, started), null) {
+            @Override
+            protected void done() {
+                // Runs on completion and on cancellation; a cancelled task that is still running
+                // keeps its slot until it ends
+                if (started.compareAndSet(false, true)) {
+                    pending.decrementAndGet();
+                }
+                inFlight.computeIfPresent(key, (k, current) -> current.reply() == reply ? null : current);
+            }
+        };
+
+        if (cancelPrevious) {
+            Invocation previous = inFlight.put(key, new Invocation(reply, future));
+            if (previous != null) {
+                // Cooperative: a queued lookup never starts, a running one finishes with its reply
+                // discarded. Never interrupt - the thread may be inside a driver or pool call
+                previous.reply().cancel();
+                previous.future().cancel(false);
+            }
+        }
+
+        try {
+            executor.execute(future);
+        } catch (RejectedExecutionException e) {
+            future.cancel(false);
+            sender.sendMessage(messageManager.get("command_busy"));
+        }
+    }
+
+    private void execute(String key, CommandReply reply, Task task, AtomicBoolean started) {
+        if (!started.compareAndSet(false, true)) {
+            return; // Cancelled before it started
+        }
+
+        boolean acquired = false;
+        try {
+            running.acquire();
+            acquired = true;
+            if (!reply.isCancelled()) {
+                task.run(reply);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reply.cancel();
+        } catch (Exception e) {
+            if (!reply.isCancelled()) {
+                logger.log(Level.SEVERE, "[DunceChat] Command " + key + " failed", e);
+                reply.send(messageManager.get("command_failed"));
+            }
+        } finally {
+            if (acquired) {
+                running.release();
+            }
+            pending.decrementAndGet();
+            deliver(reply);
+        }
+    }
+
+    /**
+     * Send the queued messages on the main thread, unless cancelled or the player left
+     */
+    private void deliver(CommandReply reply) {
+        if (reply.isCancelled() || !plugin.isEnabled()) {
+            return;
+        }
+        List<Component> messages = reply.drain();
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            CommandSender sender = reply.getSender();
+            if (reply.isCancelled() || (sender instanceof Player player && !player.isOnline())) {
+                return;
+            }
+            messages.forEach(sender::sendMessage);
+        });
+    }
+
+    private static String senderKey(CommandSender sender) {
+        return sender instanceof Player player ? player.getUniqueId().toString() : sender.getName();
+    }
+
+    /**
+     * Stop accepting work and wait briefly for running tasks (call on disable, before the pool closes)
+     * Lookups still in flight have their replies discarded; tasks are only interrupted if they overrun
+     */
+    public void shutdown() {
+        inFlight.values().forEach(invocation -> invocation.reply().cancel());
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("[DunceChat] " + pending.get() + " commands still running at shutdown, interrupting them");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package gg.corn.DunceChat.command;
+
+import gg.corn.DunceChat.repository.JoinBenchmark;
+import gg.corn.DunceChat.repository.QueryBenchmark;
+import gg.corn.DunceChat.util.MessageManager;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabCompleter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Command handler for /duncebench
+ * Times the join write paths (synthetic players, rolled back) and the hot read queries against the live database
+ */
+public class BenchCommand implements CommandExecutor, TabCompleter {
+
+    private static final int DEFAULT_JOINS = 200;
+    private static final int MAX_JOINS = 5000;
+    private static final int DEFAULT_ITERATIONS = 1000;
+    private static final int MAX_ITERATIONS = 100000;
+
+    private final JoinBenchmark joinBenchmark;
+    private final QueryBenchmark queryBenchmark;
+    private final MessageManager messageManager;
+    private final AsyncCommandExecutor commandExecutor;
+
+    public BenchCommand(JoinBenchmark joinBenchmark, QueryBenchmark queryBenchmark, MessageManager messageManager,
+                        AsyncCommandExecutor commandExecutor) {
+        this.joinBenchmark = joinBenchmark;
+        this.queryBenchmark = queryBenchmark;
+        this.messageManager = messageManager;
+        this.commandExecutor = commandExecutor;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command,
+                            @NotNull String label, @NotNull String[] args) {
+        if (!sender.hasPermission("duncechat.admin")) {
+            sender.sendMessage(messageManager.get("no_permission"));
+            return true;
+        }
+
+        // Usage: /duncebench join [players] | /duncebench queries [iterations]
+        if (args.length < 1 || args.length > 2) {
+            sender.sendMessage(messageManager.get("usage_bench"));
+            return true;
+        }
+
+        if (args[0].equalsIgnoreCase("join")) {
+            int players = parseCount(sender, args, DEFAULT_JOINS, MAX_JOINS);
+            if (players > 0) {
+                benchmarkJoins(sender, players);
+            }
+        } else if (args[0].equalsIgnoreCase("queries")) {
+            int iterations = parseCount(sender, args, DEFAULT_ITERATIONS, MAX_ITERATIONS);
+            if (iterations > 0) {
+                benchmarkQueries(sender, iterations);
+            }
+        } else {
+            sender.sendMessage(messageManager.get("usage_bench"));
+        }
+
+        return true;
+    }
+
+    /**
+     * @return The count given as second argument (or the default), or -1 after telling the sender it is invalid
+     */
+    private int parseCount(CommandSender sender, String[] args, int defaultCount, int maxCount) {
+        if (args.length < 2) {
+            return defaultCount;
+        }
+
+        int count;
+        try {
+            count = Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            count = -1;
+        }
+        if (count < 1 || count > maxCount) {
+            sender.sendMessage(messageManager.get("bench_invalid_count", String.valueOf(maxCount)));
+            return -1;
+        }
+        return count;
+    }
+
+    private void benchmarkJoins(CommandSender sender, int players) {
+        sender.sendMessage(messageManager.get("bench_join_running", String.valueOf(players)));
+
+        // Holds a write transaction (rolled back at the end), so it always runs to completion
+        commandExecutor.submitAction(sender, "bench", reply -> {
+            JoinBenchmark.JoinTiming result = joinBenchmark.run(players);
+            reply.send(messageManager.get("bench_join_header", String.valueOf(result.joins())));
+            reply.send(messageManager.get("bench_join_row", "read + upsert", "2",
+                formatMillis(result.readThenWriteMillisPerJoin()), formatMillis(result.readThenWriteNanos() / 1_000_000.0)));
+            reply.send(messageManager.get("bench_join_row", "upsert", "1",
+                formatMillis(result.upsertMillisPerJoin()), formatMillis(result.upsertNanos() / 1_000_000.0)));
+            reply.send(messageManager.get("bench_join_row", "batched upsert", "1/" + players,
+                formatMillis(result.batchedMillisPerJoin()), formatMillis(result.batchedNanos() / 1_000_000.0)));
+        });
+    }
+
+    private void benchmarkQueries(CommandSender sender, int iterations) {
+        sender.sendMessage(messageManager.get("bench_queries_running", String.valueOf(iterations)));
+
+        // Read-only, so it is queued like a lookup
+        commandExecutor.submitLookup(sender, "bench", reply -> {
+            List<QueryBenchmark.QueryTiming> timings = queryBenchmark.run(iterations);
+            reply.send(messageManager.get("bench_queries_header"));
+            for (QueryBenchmark.QueryTiming timing : timings) {
+                reply.send(messageManager.get("bench_queries_row", timing.label(),
+                    String.format("%.1f", timing.uncachedMicrosPerQuery()),
+                    String.format("%.1f", timing.cachedMicrosPerQuery()),
+                    String.format("%.2f", timing.speedup())));
+            }
+        });
+    }
+
+    private static String formatMillis(double millis) {
+        return String.format("%.3f", millis);
+    }
+
+    @Override
+    public @Nullable List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command,
+                                                @NotNull String alias, @NotNull String[] args) {
+        if (!sender.hasPermission("duncechat.admin")) {
+            return Collections.emptyList();
+        }
+
+        if (args.length == 1) {
+            String prefix = args[0].toLowerCase();
+            return Stream.of("join", "queries").filter(mode -> mode.startsWith(prefix)).toList();
+        }
+
+        return Collections.emptyList();
+    }
+}
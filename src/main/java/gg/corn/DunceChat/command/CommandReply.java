@@ -0,0 +1,54 @@
+package gg.corn.DunceChat.command;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.command.CommandSender;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects the messages an async command sends, so they can be delivered on the main thread
+ */
+public class CommandReply {
+
+    private final CommandSender sender;
+    private final List<Component> messages = new ArrayList<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    CommandReply(CommandSender sender) {
+        this.sender = sender;
+    }
+
+    /**
+     * Queue a message for the sender
+     */
+    public synchronized void send(Component message) {
+        messages.add(message);
+    }
+
+    /**
+     * The sender that ran the command (only use thread-safe methods off the main thread)
+     */
+    public CommandSender getSender() {
+        return sender;
+    }
+
+    /**
+     * Whether a newer invocation of the same command replaced this one
+     * Long-running tasks can check this to stop early; their messages are discarded either way
+     */
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    void cancel() {
+        cancelled.set(true);
+    }
+
+    synchronized List<Component> drain() {
+        List<Component> drained = new ArrayList<>(messages);
+        messages.clear();
+        return drained;
+    }
+}
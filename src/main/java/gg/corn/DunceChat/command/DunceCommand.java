@@ -5,6 +5,7 @@ import gg.corn.DunceChat.service.PlayerService;
 import gg.corn.DunceChat.util.MessageManager;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -23,11 +24,14 @@ public class DunceCommand implements CommandExecutor, TabCompleter {
     private final DunceService dunceService;
     private final PlayerService playerService;
     private final MessageManager messageManager;
+    private final AsyncCommandExecutor commandExecutor;
 
-    public DunceCommand(DunceService dunceService, PlayerService playerService, MessageManager messageManager) {
+    public DunceCommand(DunceService dunceService, PlayerService playerService, MessageManager messageManager,
+                        AsyncCommandExecutor commandExecutor) {
         this.dunceService = dunceService;
         this.playerService = playerService;
         this.messageManager = messageManager;
+        this.commandExecutor = commandExecutor;
     }
 
     @Override
@@ -77,29 +81,34 @@ public class DunceCommand implements CommandExecutor, TabCompleter {
         String reason = reasonBuilder.toString().trim();
         if (reason.isEmpty()) reason = null;
 
-        // Get player UUID
-        Optional<UUID> targetUuid = playerService.getUuidByName(playerName);
-        if (targetUuid.isEmpty()) {
-            sender.sendMessage(messageManager.get("player_not_found", playerName));
-            return;
-        }
+        final Timestamp finalExpiry = expiry;
+        final String finalReason = reason;
+        UUID staffUuid = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
 
-        // Check if player can be dunced
-        Player targetPlayer = sender.getServer().getPlayer(targetUuid.get());
-        if (targetPlayer != null && targetPlayer.hasPermission("duncechat.admin")) {
-            sender.sendMessage(messageManager.get("player_cannot_be_dunced"));
-            return;
-        }
+        commandExecutor.submitAction(sender, "dunce", reply -> {
+            // Get player UUID
+            Optional<UUID> targetUuid = playerService.getUuidByName(playerName);
+            if (targetUuid.isEmpty()) {
+                reply.send(messageManager.get("player_not_found", playerName));
+                return;
+            }
 
-        // Check if already dunced
-        if (dunceService.isDunced(targetUuid.get())) {
-            sender.sendMessage(messageManager.get("already_dunced"));
-            return;
-        }
+            // Check if player can be dunced
+            Player targetPlayer = Bukkit.getPlayer(targetUuid.get());
+            if (targetPlayer != null && targetPlayer.hasPermission("duncechat.admin")) {
+                reply.send(messageManager.get("player_cannot_be_dunced"));
+                return;
+            }
 
-        // Dunce the player
-        UUID staffUuid = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
-        dunceService.duncePlayer(targetUuid.get(), reason, staffUuid, expiry, null);
+            // Check if already dunced
+            if (dunceService.isDunced(targetUuid.get())) {
+                reply.send(messageManager.get("already_dunced"));
+                return;
+            }
+
+            // Dunce the player
+            dunceService.duncePlayer(targetUuid.get(), finalReason, staffUuid, finalExpiry, null);
+        });
     }
 
     private void handleUndunceCommand(CommandSender sender, String[] args) {
@@ -114,19 +123,23 @@ public class DunceCommand implements CommandExecutor, TabCompleter {
         }
 
         String playerName = args[0];
-        Optional<UUID> targetUuid = playerService.getUuidByName(playerName);
+        UUID staffUuid = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
 
-        if (targetUuid.isEmpty()) {
-            sender.sendMessage(messageManager.get("player_not_found", playerName));
-            return;
-        }
+        commandExecutor.submitAction(sender, "undunce", reply -> {
+            Optional<UUID> targetUuid = playerService.getUuidByName(playerName);
 
-        if (!dunceService.isDunced(targetUuid.get())) {
-            sender.sendMessage(messageManager.get("not_dunced"));
-            return;
-        }
+            if (targetUuid.isEmpty()) {
+                reply.send(messageManager.get("player_not_found", playerName));
+                return;
+            }
+
+            if (!dunceService.isDunced(targetUuid.get())) {
+                reply.send(messageManager.get("not_dunced"));
+                return;
+            }
 
-        UUID staffUuid = sender instanceof Player ? ((Player) sender).getUniqueId() : null;dunceService.unduncePlayer(targetUuid.get(), staffUuid, false);  // false = staff action
+            dunceService.unduncePlayer(targetUuid.get(), staffUuid, false);  // false = staff action
+        });
     }
 
     private void sendAdminHelp(CommandSender sender) {
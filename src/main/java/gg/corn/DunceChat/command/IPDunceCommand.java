@@ -26,6 +26,7 @@ public class IPDunceCommand implements CommandExecutor, TabCompleter {
     private final DunceService dunceService;
     private final PlayerService playerService;
     private final MessageManager messageManager;
+    private final AsyncCommandExecutor commandExecutor;
 
     private static final Pattern IP_PATTERN = Pattern.compile(
         "^((25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)\\.){3}(25[0-5]|2[0-4][0-9]|[01]?[0-9][0-9]?)$"
@@ -34,10 +35,12 @@ public class IPDunceCommand implements CommandExecutor, TabCompleter {
     // Pattern to detect duration strings (e.g., 1h, 30m, 1d)
     private static final Pattern DURATION_PATTERN = Pattern.compile("^\\d+[smhdw]$", Pattern.CASE_INSENSITIVE);
 
-    public IPDunceCommand(DunceService dunceService, PlayerService playerService, MessageManager messageManager) {
+    public IPDunceCommand(DunceService dunceService, PlayerService playerService, MessageManager messageManager,
+                          AsyncCommandExecutor commandExecutor) {
         this.dunceService = dunceService;
         this.playerService = playerService;
         this.messageManager = messageManager;
+        this.commandExecutor = commandExecutor;
     }
 
     @Override
@@ -94,24 +97,27 @@ public class IPDunceCommand implements CommandExecutor, TabCompleter {
 
         // Get staff UUID (null for console)
         UUID staffUuid = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
+        final Timestamp finalExpiresAt = expiresAt;
+
+        commandExecutor.submitAction(sender, "dunceip", reply -> {
+            // Check if target is an IP address
+            if (isValidIP(target)) {
+                // Dunce by IP address
+                int dunced = dunceService.ipDunceByAddress(target, reason, staffUuid, finalExpiresAt);
+                reply.send(messageManager.get("ipdunce_ip_success", target, dunced));
+            } else {
+                // Dunce by player name
+                UUID targetUuid = playerService.getUuidByName(target).orElse(null);
+
+                if (targetUuid == null) {
+                    reply.send(messageManager.get("player_not_found", target));
+                    return;
+                }
 
-        // Check if target is an IP address
-        if (isValidIP(target)) {
-            // Dunce by IP address
-            dunceService.ipDunceByAddress(target, reason, staffUuid, expiresAt);
-            sender.sendMessage(messageManager.get("ipdunce_ip_success", target));
-        } else {
-            // Dunce by player name
-            UUID targetUuid = playerService.getUuidByName(target).orElse(null);
-
-            if (targetUuid == null) {
-                sender.sendMessage(messageManager.get("player_not_found", target));
-                return true;
+                dunceService.ipDuncePlayer(targetUuid, reason, staffUuid, finalExpiresAt);
+                reply.send(messageManager.get("ipdunce_player_success", target));
             }
-
-            dunceService.ipDuncePlayer(targetUuid, reason, staffUuid, expiresAt);
-            sender.sendMessage(messageManager.get("ipdunce_player_success", target));
-        }
+        });
 
         return true;
     }
@@ -132,23 +138,25 @@ public class IPDunceCommand implements CommandExecutor, TabCompleter {
         String target = args[0];
         UUID staffUuid = sender instanceof Player ? ((Player) sender).getUniqueId() : null;
 
-        // Check if target is an IP address
-        if (isValidIP(target)) {
-            // Undunce by IP address
-            dunceService.ipUndunceByAddress(target, staffUuid);
-            sender.sendMessage(messageManager.get("undunceip_ip_success", target));
-        } else {
-            // Undunce by player name
-            UUID targetUuid = playerService.getUuidByName(target).orElse(null);
+        commandExecutor.submitAction(sender, "undunceip", reply -> {
+            // Check if target is an IP address
+            if (isValidIP(target)) {
+                // Undunce by IP address
+                int undunced = dunceService.ipUndunceByAddress(target, staffUuid);
+                reply.send(messageManager.get("undunceip_ip_success", target, undunced));
+            } else {
+                // Undunce by player name
+                UUID targetUuid = playerService.getUuidByName(target).orElse(null);
+
+                if (targetUuid == null) {
+                    reply.send(messageManager.get("player_not_found", target));
+                    return;
+                }
 
-            if (targetUuid == null) {
-                sender.sendMessage(messageManager.get("player_not_found", target));
-                return true;
+                dunceService.ipUnduncePlayer(targetUuid, staffUuid);
+                reply.send(messageManager.get("undunceip_player_success", target));
             }
-
-            dunceService.ipUnduncePlayer(targetUuid, staffUuid);
-            sender.sendMessage(messageManager.get("undunceip_player_success", target));
-        }
+        });
 
         return true;
     }
@@ -18,7 +18,8 @@ import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -33,17 +34,21 @@ public class IPHistoryCommand implements CommandExecutor, TabCompleter {
     private final MessageManager messageManager;
     private final PlayerIPRepository playerIPRepository;
     private final FileConfiguration config;
-    private static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+    private final AsyncCommandExecutor commandExecutor;
+    // Thread-safe, reports are built off the main thread
+    private static final DateTimeFormatter DATE_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm").withZone(ZoneId.systemDefault());
     private static final int DEFAULT_ITEMS_PER_PAGE = 10;
 
     public IPHistoryCommand(DunceService dunceService, PlayerService playerService,
                             MessageManager messageManager, PlayerIPRepository playerIPRepository,
-                            FileConfiguration config) {
+                            FileConfiguration config, AsyncCommandExecutor commandExecutor) {
         this.dunceService = dunceService;
         this.playerService = playerService;
         this.messageManager = messageManager;
         this.playerIPRepository = playerIPRepository;
         this.config = config;
+        this.commandExecutor = commandExecutor;
     }
 
     private int getItemsPerPage() {
@@ -75,26 +80,31 @@ public class IPHistoryCommand implements CommandExecutor, TabCompleter {
             }
         }
 
-        // Get player UUID
-        UUID playerUuid = playerService.getUuidByName(playerName).orElse(null);
-        if (playerUuid == null) {
-            sender.sendMessage(messageManager.get("player_not_found", playerName));
-            return true;
-        }
+        final int finalPage = page;
 
-        // Get IP history
-        List<PlayerIPRepository.IPRecord> ipHistory = playerIPRepository.getDetailedIPsByPlayer(playerUuid);
+        commandExecutor.submitLookup(sender, "iphistory", reply -> {
+            // Get player UUID
+            UUID playerUuid = playerService.getUuidByName(playerName).orElse(null);
+            if (playerUuid == null) {
+                reply.send(messageManager.get("player_not_found", playerName));
+                return;
+            }
 
-        if (ipHistory.isEmpty()) {
-            sender.sendMessage(messageManager.get("iphistory_no_records", playerName));
-            return true;
-        }
+            // Get IP history (buffered sightings written first, the report also lists players sharing each IP)
+            playerService.ensureAllPersisted();
+            List<PlayerIPRepository.IPRecord> ipHistory = playerIPRepository.getDetailedIPsByPlayer(playerUuid);
+
+            if (ipHistory.isEmpty()) {
+                reply.send(messageManager.get("iphistory_no_records", playerName));
+                return;
+            }
 
-        // Sort by last seen (most recent first)
-        ipHistory.sort((a, b) -> b.lastSeen().compareTo(a.lastSeen()));
+            // Sort by last seen (most recent first)
+            ipHistory.sort((a, b) -> b.lastSeen().compareTo(a.lastSeen()));
 
-        // Send paginated report
-        sendIPHistoryReport(sender, playerName, playerUuid, ipHistory, page);
+            // Send paginated report
+            sendIPHistoryReport(reply, playerName, playerUuid, ipHistory, finalPage);
+        });
 
         return true;
     }
@@ -102,23 +112,23 @@ public class IPHistoryCommand implements CommandExecutor, TabCompleter {
     /**
      * Send a detailed IP history report with pagination
      */
-    private void sendIPHistoryReport(CommandSender sender, String playerName, UUID playerUuid,
+    private void sendIPHistoryReport(CommandReply reply, String playerName, UUID playerUuid,
                                      List<PlayerIPRepository.IPRecord> ipHistory, int page) {
         // Header
-        sender.sendMessage(Component.empty());
-        sender.sendMessage(messageManager.get("iphistory_header"));
-        sender.sendMessage(messageManager.get("iphistory_player", playerName));
-        sender.sendMessage(messageManager.get("iphistory_total_ips", String.valueOf(ipHistory.size())));
+        reply.send(Component.empty());
+        reply.send(messageManager.get("iphistory_header"));
+        reply.send(messageManager.get("iphistory_player", playerName));
+        reply.send(messageManager.get("iphistory_total_ips", String.valueOf(ipHistory.size())));
 
         // Get current IP
         Optional<String> currentIP = dunceService.getPlayerCurrentIP(playerUuid);
         if (currentIP.isPresent()) {
-            sender.sendMessage(messageManager.get("iphistory_current_ip", currentIP.get())
+            reply.send(messageManager.get("iphistory_current_ip", currentIP.get())
                 .clickEvent(ClickEvent.copyToClipboard(currentIP.get()))
                 .hoverEvent(HoverEvent.showText(messageManager.get("iplookup_click_copy"))));
         }
 
-        sender.sendMessage(Component.empty());
+        reply.send(Component.empty());
 
         // Pagination
         int itemsPerPage = getItemsPerPage();
@@ -132,12 +142,12 @@ public class IPHistoryCommand implements CommandExecutor, TabCompleter {
         // Display IP entries
         for (int i = startIndex; i < endIndex; i++) {
             PlayerIPRepository.IPRecord record = ipHistory.get(i);
-            sendIPEntry(sender, record, playerName, currentIP.orElse(null));
+            sendIPEntry(reply, record, playerUuid, currentIP.orElse(null));
         }
 
         // Pagination controls
         if (totalPages > 1) {
-            sender.sendMessage(Component.empty());
+            reply.send(Component.empty());
 
             Component pagination = Component.empty();
 
@@ -164,19 +174,19 @@ public class IPHistoryCommand implements CommandExecutor, TabCompleter {
                 );
             }
 
-            sender.sendMessage(pagination);
+            reply.send(pagination);
         }
 
         // Footer
-        sender.sendMessage(Component.empty());
-        sender.sendMessage(messageManager.get("iphistory_footer"));
+        reply.send(Component.empty());
+        reply.send(messageManager.get("iphistory_footer"));
     }
 
     /**
      * Send a single IP entry in the report
      */
-    private void sendIPEntry(CommandSender sender, PlayerIPRepository.IPRecord record,
-                             String playerName, String currentIP) {
+    private void sendIPEntry(CommandReply reply, PlayerIPRepository.IPRecord record,
+                             UUID playerUuid, String currentIP) {
         String ipAddress = record.ipAddress();
         boolean isCurrent = ipAddress.equals(currentIP);
 
@@ -185,13 +195,13 @@ public class IPHistoryCommand implements CommandExecutor, TabCompleter {
         if (record.firstSeen() != null || record.lastSeen() != null) {
             hoverText = Component.empty();
             if (record.firstSeen() != null) {
-                hoverText = hoverText.append(messageManager.get("iphistory_first_seen", DATE_FORMATTER.format(record.firstSeen())));
+                hoverText = hoverText.append(messageManager.get("iphistory_first_seen", DATE_FORMATTER.format(record.firstSeen().toInstant())));
             }
             if (record.lastSeen() != null) {
                 if (record.firstSeen() != null) {
                     hoverText = hoverText.append(Component.newline());
                 }
-                hoverText = hoverText.append(messageManager.get("iphistory_last_seen", DATE_FORMATTER.format(record.lastSeen())));
+                hoverText = hoverText.append(messageManager.get("iphistory_last_seen", DATE_FORMATTER.format(record.lastSeen().toInstant())));
             }
             hoverText = hoverText.append(Component.newline()).append(messageManager.get("iphistory_click_lookup"));
         }
@@ -213,7 +223,7 @@ public class IPHistoryCommand implements CommandExecutor, TabCompleter {
 
         // Other players on this IP
         Set<UUID> otherPlayers = playerIPRepository.getPlayersByIP(ipAddress);
-        otherPlayers.removeIf(uuid -> playerService.getNameByUuid(uuid).orElse("").equalsIgnoreCase(playerName));
+        otherPlayers.remove(playerUuid);
 
         if (!otherPlayers.isEmpty()) {
             int otherCount = otherPlayers.size();
@@ -223,7 +233,7 @@ public class IPHistoryCommand implements CommandExecutor, TabCompleter {
                     .hoverEvent(HoverEvent.showText(messageManager.get("iphistory_click_view_shared"))));
         }
 
-        sender.sendMessage(entry);
+        reply.send(entry);
     }
 
     @Override
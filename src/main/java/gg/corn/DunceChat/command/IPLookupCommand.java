@@ -16,7 +16,8 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.regex.Pattern;
 
@@ -31,7 +32,10 @@ public class IPLookupCommand implements CommandExecutor, TabCompleter {
     private final MessageManager messageManager;
     private final PlayerIPRepository playerIPRepository;
     private final FileConfiguration config;
-    private static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+    private final AsyncCommandExecutor commandExecutor;
+    // Thread-safe, reports are built off the main thread
+    private static final DateTimeFormatter DATE_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm").withZone(ZoneId.systemDefault());
     private static final int DEFAULT_ITEMS_PER_PAGE = 10;
 
     // Regex pattern for validating IPv4 addresses
@@ -41,12 +45,13 @@ public class IPLookupCommand implements CommandExecutor, TabCompleter {
 
     public IPLookupCommand(DunceService dunceService, PlayerService playerService,
                           MessageManager messageManager, PlayerIPRepository playerIPRepository,
-                          FileConfiguration config) {
+                          FileConfiguration config, AsyncCommandExecutor commandExecutor) {
         this.dunceService = dunceService;
         this.playerService = playerService;
         this.messageManager = messageManager;
         this.playerIPRepository = playerIPRepository;
         this.config = config;
+        this.commandExecutor = commandExecutor;
     }
 
     private int getItemsPerPage() {
@@ -84,46 +89,56 @@ public class IPLookupCommand implements CommandExecutor, TabCompleter {
             return true;
         }
 
-        // Get all players associated with this IP
-        Set<UUID> directPlayers = playerIPRepository.getPlayersByIP(ipAddress);
+        final int finalPage = page;
 
-        if (directPlayers.isEmpty()) {
-            sender.sendMessage(messageManager.get("iplookup_no_players", ipAddress));
-            return true;
-        }
+        // Build the report async so large shared IPs (schools, cafes) do not block the main thread
+        commandExecutor.submitLookup(sender, "iplookup", reply -> {
+            // Get all players associated with this IP (buffered sightings written first)
+            playerService.ensureAllPersisted();
+            Set<UUID> directPlayers = playerIPRepository.getPlayersByIP(ipAddress);
 
-        // Build the report
-        sendIPReport(sender, ipAddress, directPlayers, page);
+            if (directPlayers.isEmpty()) {
+                reply.send(messageManager.get("iplookup_no_players", ipAddress));
+                return;
+            }
+
+            buildIPReport(ipAddress, directPlayers, finalPage).forEach(reply::send);
+        });
 
         return true;
     }
 
     /**
-     * Send a detailed IP lookup report with pagination
+     * Build a detailed IP lookup report with pagination
+     * Runs off the main thread; the returned lines are sent by the caller
      */
-    private void sendIPReport(CommandSender sender, String ipAddress, Set<UUID> directPlayers, int page) {
+    private List<Component> buildIPReport(String ipAddress, Set<UUID> directPlayers, int page) {
+        List<Component> lines = new ArrayList<>();
+
         // Header
-        sender.sendMessage(Component.empty());
-        sender.sendMessage(messageManager.get("iplookup_header"));
+        lines.add(Component.empty());
+        lines.add(messageManager.get("iplookup_header"));
 
         // IP Address (with click to copy)
-        sender.sendMessage(messageManager.get("iplookup_ip_label", ipAddress)
+        lines.add(messageManager.get("iplookup_ip_label", ipAddress)
             .clickEvent(ClickEvent.copyToClipboard(ipAddress))
             .hoverEvent(HoverEvent.showText(messageManager.get("iplookup_click_copy"))));
 
         // Direct players count
-        sender.sendMessage(messageManager.get("iplookup_direct_accounts", String.valueOf(directPlayers.size())));
+        lines.add(messageManager.get("iplookup_direct_accounts", String.valueOf(directPlayers.size())));
 
         // Categorize players
         List<PlayerInfo> duncedPlayers = new ArrayList<>();
         List<PlayerInfo> normalPlayers = new ArrayList<>();
 
+        Map<UUID, String> names = playerService.getNamesByUuids(directPlayers);
+        Map<UUID, java.sql.Timestamp> lastSeenTimes = playerIPRepository.getLastSeenTimestamps(directPlayers);
+
         for (UUID uuid : directPlayers) {
-            String name = playerService.getNameByUuid(uuid).orElse("Unknown");
+            String name = names.getOrDefault(uuid, "Unknown");
             boolean isDunced = dunceService.isDunced(uuid);
-            Optional<java.sql.Timestamp> lastSeen = playerIPRepository.getLastSeenTimestamp(uuid);
 
-            PlayerInfo info = new PlayerInfo(uuid, name, isDunced, lastSeen.orElse(null));
+            PlayerInfo info = new PlayerInfo(uuid, name, isDunced, lastSeenTimes.get(uuid));
 
             if (isDunced) {
                 duncedPlayers.add(info);
@@ -147,25 +162,25 @@ public class IPLookupCommand implements CommandExecutor, TabCompleter {
 
         // Show dunced header if applicable
         if (!duncedPlayers.isEmpty()) {
-            sender.sendMessage(messageManager.get("iplookup_dunced_header", String.valueOf(duncedPlayers.size())));
+            lines.add(messageManager.get("iplookup_dunced_header", String.valueOf(duncedPlayers.size())));
         }
 
         // Show other header if applicable
         if (!normalPlayers.isEmpty()) {
-            sender.sendMessage(messageManager.get("iplookup_other_header", String.valueOf(normalPlayers.size())));
+            lines.add(messageManager.get("iplookup_other_header", String.valueOf(normalPlayers.size())));
         }
 
-        sender.sendMessage(Component.empty());
+        lines.add(Component.empty());
 
         // Display paginated players
         for (int i = startIndex; i < endIndex; i++) {
             PlayerInfo player = allPlayers.get(i);
-            sendPlayerEntry(sender, player, player.isDunced());
+            lines.add(buildPlayerEntry(player, player.isDunced()));
         }
 
         // Pagination info and controls
         if (totalPages > 1) {
-            sender.sendMessage(Component.empty());
+            lines.add(Component.empty());
 
             Component pagination = Component.empty();
 
@@ -192,49 +207,34 @@ public class IPLookupCommand implements CommandExecutor, TabCompleter {
                 );
             }
 
-            sender.sendMessage(pagination);
+            lines.add(pagination);
         }
 
         // Historical links section (only on first page)
         if (page == 1) {
-            sender.sendMessage(Component.empty());
-            sender.sendMessage(messageManager.get("iplookup_historical_header"));
-
-            // Get all historical links through the direct players
-            Set<UUID> historicalLinks = new HashSet<>();
-            Map<UUID, Set<String>> playerToSharedIPs = new HashMap<>();
-
-            for (UUID directPlayer : directPlayers) {
-                Set<UUID> linkedPlayers = playerIPRepository.getPlayersWithHistoricalIP(directPlayer);
-                linkedPlayers.remove(directPlayer);
-                linkedPlayers.removeAll(directPlayers);
-
-                for (UUID linked : linkedPlayers) {
-                    if (!historicalLinks.contains(linked)) {
-                        historicalLinks.add(linked);
-                        Set<String> sharedIPs = new HashSet<>();
-                        for (UUID dp : directPlayers) {
-                            sharedIPs.addAll(playerIPRepository.getSharedIPs(linked, dp));
-                        }
-                        playerToSharedIPs.put(linked, sharedIPs);
-                    }
-                }
-            }
+            lines.add(Component.empty());
+            lines.add(messageManager.get("iplookup_historical_header"));
+
+            // All historical links through the direct players, with the IPs they share, in one pass
+            Map<UUID, Set<String>> playerToSharedIPs = playerIPRepository.getHistoricalLinksByIP(ipAddress);
+            Set<UUID> historicalLinks = playerToSharedIPs.keySet();
 
             if (historicalLinks.isEmpty()) {
-                sender.sendMessage(messageManager.get("iplookup_no_historical"));
+                lines.add(messageManager.get("iplookup_no_historical"));
             } else {
-                sender.sendMessage(messageManager.get("iplookup_historical_count", String.valueOf(historicalLinks.size())));
+                lines.add(messageManager.get("iplookup_historical_count", String.valueOf(historicalLinks.size())));
 
                 int count = 0;
                 int maxHistoricalDisplay = 5;
+                Map<UUID, String> linkedNames = playerService.getNamesByUuids(
+                    historicalLinks.stream().limit(maxHistoricalDisplay).toList());
                 for (UUID linkedUuid : historicalLinks) {
                     if (count >= maxHistoricalDisplay) {
-                        sender.sendMessage(messageManager.get("iplookup_more_results", String.valueOf(historicalLinks.size() - maxHistoricalDisplay)));
+                        lines.add(messageManager.get("iplookup_more_results", String.valueOf(historicalLinks.size() - maxHistoricalDisplay)));
                         break;
                     }
 
-                    String name = playerService.getNameByUuid(linkedUuid).orElse("Unknown");
+                    String name = linkedNames.getOrDefault(linkedUuid, "Unknown");
                     boolean isDunced = dunceService.isDunced(linkedUuid);
                     Set<String> sharedIPs = playerToSharedIPs.get(linkedUuid);
 
@@ -256,15 +256,15 @@ public class IPLookupCommand implements CommandExecutor, TabCompleter {
                         entry = entry.append(Component.text(" ")).append(messageManager.get("iplookup_via_ips", ipList));
                     }
 
-                    sender.sendMessage(entry);
+                    lines.add(entry);
                     count++;
                 }
             }
         }
 
         // Footer with action hints
-        sender.sendMessage(Component.empty());
-        sender.sendMessage(
+        lines.add(Component.empty());
+        lines.add(
             messageManager.get("iplookup_action_ipdunce")
                 .clickEvent(ClickEvent.suggestCommand("/ipdunce " + ipAddress + " "))
                 .hoverEvent(HoverEvent.showText(messageManager.get("iplookup_click_dunce_all")))
@@ -274,13 +274,14 @@ public class IPLookupCommand implements CommandExecutor, TabCompleter {
                     .hoverEvent(HoverEvent.showText(messageManager.get("iplookup_click_undunce_all"))))
         );
 
-        sender.sendMessage(messageManager.get("iplookup_footer"));
+        lines.add(messageManager.get("iplookup_footer"));
+        return lines;
     }
 
     /**
-     * Send a single player entry in the report
+     * Build a single player entry in the report
      */
-    private void sendPlayerEntry(CommandSender sender, PlayerInfo player, boolean isDunced) {
+    private Component buildPlayerEntry(PlayerInfo player, boolean isDunced) {
         Component entry = Component.text("  - ")
             .color(NamedTextColor.GRAY)
             .append(Component.text(player.name)
@@ -294,7 +295,7 @@ public class IPLookupCommand implements CommandExecutor, TabCompleter {
 
         // Add last seen
         if (player.lastSeen != null) {
-            entry = entry.append(Component.text(" ")).append(messageManager.get("iplookup_last_seen", DATE_FORMATTER.format(player.lastSeen)));
+            entry = entry.append(Component.text(" ")).append(messageManager.get("iplookup_last_seen", DATE_FORMATTER.format(player.lastSeen.toInstant())));
         }
 
         // Add IP count for this player
@@ -306,7 +307,7 @@ public class IPLookupCommand implements CommandExecutor, TabCompleter {
                     .hoverEvent(HoverEvent.showText(messageManager.get("iplookup_click_altlookup"))));
         }
 
-        sender.sendMessage(entry);
+        return entry;
     }
 
     @Override
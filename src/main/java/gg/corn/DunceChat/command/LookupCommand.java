@@ -15,7 +15,8 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.jetbrains.annotations.NotNull;
 
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 /**
@@ -26,12 +27,17 @@ public class LookupCommand implements CommandExecutor {
     private final DunceService dunceService;
     private final PlayerService playerService;
     private final MessageManager messageManager;
-    private static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+    private final AsyncCommandExecutor commandExecutor;
+    // Thread-safe, lookups run off the main thread
+    private static final DateTimeFormatter DATE_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm").withZone(ZoneId.systemDefault());
 
-    public LookupCommand(DunceService dunceService, PlayerService playerService, MessageManager messageManager) {
+    public LookupCommand(DunceService dunceService, PlayerService playerService, MessageManager messageManager,
+                         AsyncCommandExecutor commandExecutor) {
         this.dunceService = dunceService;
         this.playerService = playerService;
         this.messageManager = messageManager;
+        this.commandExecutor = commandExecutor;
     }
 
     @Override
@@ -47,55 +53,59 @@ public class LookupCommand implements CommandExecutor {
         }
 
         String playerName = args[0];
-        Optional<UUID> playerUuid = playerService.getUuidByName(playerName);
 
-        if (playerUuid.isEmpty()) {
-            sender.sendMessage(messageManager.get("player_not_found", playerName));
-            return true;
-        }
+        commandExecutor.submitLookup(sender, "lookup", reply -> {
+            Optional<UUID> playerUuid = playerService.getUuidByName(playerName);
 
-        UUID uuid = playerUuid.get();
-        Optional<DunceRecord> record = dunceService.getActiveDunceRecord(uuid);
+            if (playerUuid.isEmpty()) {
+                reply.send(messageManager.get("player_not_found", playerName));
+                return;
+            }
 
-        if (record.isEmpty() || !record.get().isDunced()) {
-            sender.sendMessage(messageManager.get("lookup_not_dunced", playerName));
-            return true;
-        }
+            UUID uuid = playerUuid.get();
+            // Off the main thread, so an uncached (usually offline) player can wait for the loader
+            Optional<DunceRecord> record = dunceService.getActiveDunceRecordAsync(uuid).join();
 
-        DunceRecord dunceRecord = record.get();
+            if (record.isEmpty() || !record.get().isDunced()) {
+                reply.send(messageManager.get("lookup_not_dunced", playerName));
+                return;
+            }
 
-        // Get staff name
-        String staffName = "CONSOLE";
-        if (dunceRecord.getStaffUuid() != null) {
-            staffName = playerService.getNameByUuid(dunceRecord.getStaffUuid()).orElse("Unknown");
-        }
+            DunceRecord dunceRecord = record.get();
 
-        // Format dates
-        String duncedDate = dunceRecord.getDuncedAt() != null ?
-            DATE_FORMATTER.format(dunceRecord.getDuncedAt()) : "Unknown";
-        String expiryDate = dunceRecord.getExpiresAt() != null ?
-            DATE_FORMATTER.format(dunceRecord.getExpiresAt()) : messageManager.getRaw("dunce_expires_never");
-        String reason = dunceRecord.getReason() != null ? dunceRecord.getReason() : "No reason provided";
-
-        // Send messages
-        sender.sendMessage(Component.empty());
-        sender.sendMessage(messageManager.get("lookup_header"));
-        sender.sendMessage(messageManager.get("lookup_target", playerName));
-        sender.sendMessage(messageManager.get("lookup_dunced_on", duncedDate));
-        sender.sendMessage(messageManager.get("lookup_expires_on", expiryDate));
-        sender.sendMessage(messageManager.get("lookup_marked_by", staffName));
-        sender.sendMessage(messageManager.get("lookup_reason", reason));
-
-        // Show trigger message if it exists (for auto-dunces)
-        if (dunceRecord.getTriggerMessage() != null && !dunceRecord.getTriggerMessage().isEmpty()) {
-            sender.sendMessage(messageManager.get("lookup_trigger_message", dunceRecord.getTriggerMessage()));
-        }
+            // Get staff name
+            String staffName = "CONSOLE";
+            if (dunceRecord.getStaffUuid() != null) {
+                staffName = playerService.getNameByUuid(dunceRecord.getStaffUuid()).orElse("Unknown");
+            }
+
+            // Format dates
+            String duncedDate = dunceRecord.getDuncedAt() != null ?
+                DATE_FORMATTER.format(dunceRecord.getDuncedAt().toInstant()) : "Unknown";
+            String expiryDate = dunceRecord.getExpiresAt() != null ?
+                DATE_FORMATTER.format(dunceRecord.getExpiresAt().toInstant()) : messageManager.getRaw("dunce_expires_never");
+            String reason = dunceRecord.getReason() != null ? dunceRecord.getReason() : "No reason provided";
+
+            // Send messages
+            reply.send(Component.empty());
+            reply.send(messageManager.get("lookup_header"));
+            reply.send(messageManager.get("lookup_target", playerName));
+            reply.send(messageManager.get("lookup_dunced_on", duncedDate));
+            reply.send(messageManager.get("lookup_expires_on", expiryDate));
+            reply.send(messageManager.get("lookup_marked_by", staffName));
+            reply.send(messageManager.get("lookup_reason", reason));
+
+            // Show trigger message if it exists (for auto-dunces)
+            if (dunceRecord.getTriggerMessage() != null && !dunceRecord.getTriggerMessage().isEmpty()) {
+                reply.send(messageManager.get("lookup_trigger_message", dunceRecord.getTriggerMessage()));
+            }
 
-        // Show IP information
-        showIPInfo(sender, uuid, playerName);
+            // Show IP information
+            showIPInfo(reply, uuid, playerName);
 
-        // Footer
-        sender.sendMessage(messageManager.get("lookup_footer"));
+            // Footer
+            reply.send(messageManager.get("lookup_footer"));
+        });
 
         return true;
     }
@@ -103,7 +113,7 @@ public class LookupCommand implements CommandExecutor {
     /**
      * Show IP-related information for the player
      */
-    private void showIPInfo(CommandSender sender, UUID playerUuid, String playerName) {
+    private void showIPInfo(CommandReply reply, UUID playerUuid, String playerName) {
         // Get current IP
         Optional<String> currentIP = dunceService.getPlayerCurrentIP(playerUuid);
 
@@ -120,13 +130,13 @@ public class LookupCommand implements CommandExecutor {
         historicalIPLinks.removeAll(currentIPLinks); // Remove duplicates
 
         // Send IP info header
-        sender.sendMessage(Component.empty());
-        sender.sendMessage(Component.text("--- IP Information ---")
+        reply.send(Component.empty());
+        reply.send(Component.text("--- IP Information ---")
             .color(NamedTextColor.GOLD));
 
         // Current IP
         if (currentIP.isPresent()) {
-            sender.sendMessage(Component.text("Current IP: ")
+            reply.send(Component.text("Current IP: ")
                 .color(NamedTextColor.GRAY)
                 .append(Component.text(currentIP.get())
                     .color(NamedTextColor.WHITE)
@@ -135,7 +145,7 @@ public class LookupCommand implements CommandExecutor {
         }
 
         // Total IPs
-        sender.sendMessage(Component.text("Known IPs: ")
+        reply.send(Component.text("Known IPs: ")
             .color(NamedTextColor.GRAY)
             .append(Component.text(String.valueOf(allIPs.size()))
                 .color(NamedTextColor.WHITE)));
@@ -150,13 +160,15 @@ public class LookupCommand implements CommandExecutor {
 
             // Add names
             List<String> directNames = new ArrayList<>();
+            Map<UUID, String> linkNames = playerService.getNamesByUuids(
+                currentIPLinks.stream().limit(3).toList());
             int count = 0;
             for (UUID linkUuid : currentIPLinks) {
                 if (count >= 3) {
                     directNames.add("+" + (currentIPLinks.size() - 3) + " more");
                     break;
                 }
-                String name = playerService.getNameByUuid(linkUuid).orElse("Unknown");
+                String name = linkNames.getOrDefault(linkUuid, "Unknown");
                 boolean isDunced = dunceService.isDunced(linkUuid);
                 directNames.add(isDunced ? name + " [D]" : name);
                 count++;
@@ -165,7 +177,7 @@ public class LookupCommand implements CommandExecutor {
             directLinks = directLinks.append(Component.text(" (" + String.join(", ", directNames) + ")")
                 .color(NamedTextColor.GRAY));
 
-            sender.sendMessage(directLinks);
+            reply.send(directLinks);
         }
 
         // Historical IP Links
@@ -175,13 +187,13 @@ public class LookupCommand implements CommandExecutor {
                 .append(Component.text(String.valueOf(historicalIPLinks.size()))
                     .color(NamedTextColor.WHITE));
 
-            sender.sendMessage(histLinks);
+            reply.send(histLinks);
         }
 
         // Full lookup hint
         int totalLinks = currentIPLinks.size() + historicalIPLinks.size();
         if (totalLinks > 0) {
-            sender.sendMessage(Component.text("Use ")
+            reply.send(Component.text("Use ")
                 .color(NamedTextColor.GRAY)
                 .append(Component.text("/duncealtlookup " + playerName)
                     .color(NamedTextColor.AQUA)
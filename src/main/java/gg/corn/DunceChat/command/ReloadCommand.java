@@ -2,6 +2,7 @@ package gg.corn.DunceChat.command;
 
 import gg.corn.DunceChat.DunceChat;
 import gg.corn.DunceChat.util.MessageManager;
+import org.bukkit.Bukkit;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -31,6 +32,12 @@ public class ReloadCommand implements CommandExecutor {
             plugin.reloadConfig();
             messageManager.reload();
             sender.sendMessage(messageManager.getPrefixed("reload_success"));
+
+            // Word list compiles in the background; the old filter stays active until it is ready
+            plugin.getWordFilterManager().reloadAsync(plugin.getConfig()).whenComplete((count, error) ->
+                Bukkit.getScheduler().runTask(plugin, () -> sender.sendMessage(error == null
+                    ? messageManager.getPrefixed("word_filter_reloaded", count)
+                    : messageManager.getPrefixed("word_filter_reload_failed"))));
         } catch (Exception e) {
             sender.sendMessage(messageManager.getPrefixed("reload_failed"));
             e.printStackTrace();
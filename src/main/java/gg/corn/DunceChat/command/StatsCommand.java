@@ -0,0 +1,95 @@
+package gg.corn.DunceChat.command;
+
+import gg.corn.DunceChat.database.DatabaseExecutor;
+import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.database.Jdbc;
+import gg.corn.DunceChat.database.PoolMetrics;
+import gg.corn.DunceChat.service.PlayerWriteBuffer;
+import gg.corn.DunceChat.util.MessageManager;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * Command handler for /duncestats
+ * Shows connection pool metrics, the database executor queue, the write buffer and the slowest statements
+ * (all in-memory counters, so it runs on the main thread)
+ */
+public class StatsCommand implements CommandExecutor {
+
+    // Statements listed, by total time spent in them
+    private static final int TOP_STATEMENTS = 5;
+
+    private final DatabaseManager databaseManager;
+    private final PlayerWriteBuffer writeBuffer;
+    private final MessageManager messageManager;
+
+    public StatsCommand(DatabaseManager databaseManager, PlayerWriteBuffer writeBuffer, MessageManager messageManager) {
+        this.databaseManager = databaseManager;
+        this.writeBuffer = writeBuffer;
+        this.messageManager = messageManager;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command,
+                            @NotNull String label, @NotNull String[] args) {
+        if (!sender.hasPermission("duncechat.admin")) {
+            sender.sendMessage(messageManager.get("no_permission"));
+            return true;
+        }
+
+        if (databaseManager == null || !databaseManager.isInitialized()) {
+            sender.sendMessage(messageManager.get("stats_unavailable"));
+            return true;
+        }
+
+        sender.sendMessage(messageManager.get("stats_header"));
+
+        PoolMetrics.Snapshot pool = databaseManager.getPoolMetrics().snapshot();
+        sender.sendMessage(messageManager.get("stats_pool", String.valueOf(pool.active()), String.valueOf(pool.max()),
+            String.valueOf(pool.idle()), highlightIfNonZero(pool.pendingThreads())));
+        sender.sendMessage(messageManager.get("stats_pool_acquire", formatMillis(pool.averageAcquireMillis()),
+            formatMillis(pool.maxAcquireMillis()), String.valueOf(pool.timeouts())));
+        sender.sendMessage(messageManager.get("stats_pool_usage", formatMillis(pool.averageUsageMillis()),
+            String.valueOf(pool.maxUsageMillis()), String.valueOf(pool.acquisitions()),
+            String.valueOf(pool.connectionsCreated())));
+
+        DatabaseExecutor.Stats executor = databaseManager.getExecutor().getStats();
+        sender.sendMessage(messageManager.get("stats_executor", String.valueOf(executor.active()),
+            highlightIfNonZero(executor.waiting()), formatMillis(executor.averageWaitMillis()),
+            formatMillis(executor.maxWaitMillis()), String.valueOf(executor.completed()),
+            String.valueOf(executor.failed())));
+
+        if (writeBuffer != null) {
+            PlayerWriteBuffer.Stats buffer = writeBuffer.getStats();
+            sender.sendMessage(messageManager.get("stats_write_buffer", String.valueOf(buffer.pending()),
+                String.valueOf(buffer.flushes()), String.format("%.1f", buffer.averageBatchSize()),
+                String.valueOf(buffer.failedFlushes())));
+        } else {
+            sender.sendMessage(messageManager.get("stats_write_buffer_disabled"));
+        }
+
+        List<Jdbc.StatementStats> statements = databaseManager.getJdbc().getStats();
+        if (!statements.isEmpty()) {
+            sender.sendMessage(messageManager.get("stats_statements_header", String.valueOf(TOP_STATEMENTS)));
+            for (Jdbc.StatementStats statement : statements.subList(0, Math.min(TOP_STATEMENTS, statements.size()))) {
+                sender.sendMessage(messageManager.get("stats_statement", statement.name(),
+                    String.valueOf(statement.executions()), formatMillis(statement.averageMicros() / 1_000.0),
+                    formatMillis(statement.maxMicros() / 1_000.0), String.valueOf(statement.prepares())));
+            }
+        }
+
+        return true;
+    }
+
+    private static String highlightIfNonZero(int value) {
+        return (value > 0 ? "&c" : "&f") + value;
+    }
+
+    private static String formatMillis(double millis) {
+        return String.format("%.2f", millis);
+    }
+}
@@ -1,6 +1,7 @@
 package gg.corn.DunceChat.command;
 
 import gg.corn.DunceChat.service.DunceService;
+import gg.corn.DunceChat.service.IPTrackingService;
 import gg.corn.DunceChat.service.PlayerService;
 import gg.corn.DunceChat.util.MessageManager;
 import org.bukkit.Bukkit;
@@ -26,12 +27,18 @@ public class UnlinkCommand implements CommandExecutor, TabCompleter {
 
     private final DunceService dunceService;
     private final PlayerService playerService;
+    private final IPTrackingService ipTrackingService;
     private final MessageManager messageManager;
+    private final AsyncCommandExecutor commandExecutor;
 
-    public UnlinkCommand(DunceService dunceService, PlayerService playerService, MessageManager messageManager) {
+    public UnlinkCommand(DunceService dunceService, PlayerService playerService,
+                        IPTrackingService ipTrackingService, MessageManager messageManager,
+                        AsyncCommandExecutor commandExecutor) {
         this.dunceService = dunceService;
         this.playerService = playerService;
+        this.ipTrackingService = ipTrackingService;
         this.messageManager = messageManager;
+        this.commandExecutor = commandExecutor;
     }
 
     @Override
@@ -51,27 +58,32 @@ public class UnlinkCommand implements CommandExecutor, TabCompleter {
 
         String targetName = args[0];
 
-        // Get target UUID
-        Optional<UUID> targetUuid = playerService.getUuidByName(targetName);
-        if (targetUuid.isEmpty()) {
-            sender.sendMessage(messageManager.get("player_not_found", targetName));
-            return true;
-        }
+        commandExecutor.submitAction(sender, "unlink", reply -> {
+            // Get target UUID
+            Optional<UUID> targetUuid = playerService.getUuidByName(targetName);
+            if (targetUuid.isEmpty()) {
+                reply.send(messageManager.get("player_not_found", targetName));
+                return;
+            }
 
-        // Get IP count before unlinking
-        List<String> ips = dunceService.getPlayerIPs(targetUuid.get());
-        int ipCount = ips.size();
+            // Get IP count before unlinking
+            List<String> ips = dunceService.getPlayerIPs(targetUuid.get());
+            int ipCount = ips.size();
 
-        if (ipCount == 0) {
-            sender.sendMessage(messageManager.get("unlink_no_data", targetName));
-            return true;
-        }
+            if (ipCount == 0) {
+                reply.send(messageManager.get("unlink_no_data", targetName));
+                return;
+            }
+
+            // Perform the unlink
+            int deletedCount = dunceService.unlinkPlayerFromIPTracking(targetUuid.get());
 
-        // Perform the unlink
-        int deletedCount = dunceService.unlinkPlayerFromIPTracking(targetUuid.get());
+            // Send success message
+            reply.send(messageManager.get("unlink_success", targetName, String.valueOf(deletedCount)));
 
-        // Send success message
-        sender.sendMessage(messageManager.get("unlink_success", targetName, String.valueOf(deletedCount)));
+            // Rebuild alt clusters without the deleted links
+            ipTrackingService.onPlayerUnlinked(targetUuid.get());
+        });
 
         return true;
     }
@@ -0,0 +1,155 @@
+package gg.corn.DunceChat.database;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Conversions for the binary key columns (schema v5)
+ * UUIDs are stored as BINARY(16) and IP addresses as VARBINARY(16): 4 bytes for IPv4, 16 for IPv6
+ */
+public final class BinaryCodec {
+
+    private BinaryCodec() {
+    }
+
+    /**
+     * Encode a UUID as 16 big-endian bytes
+     */
+    public static byte[] uuidToBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+
+    /**
+     * Decode a UUID from 16 bytes
+     */
+    public static UUID bytesToUuid(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("UUID must be 16 bytes, got " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * Encode an IP address literal (as returned by InetAddress.getHostAddress)
+     * Never resolves host names; an IPv6 zone ("%eth0") is dropped
+     * @return 4 bytes for IPv4, 16 for IPv6, or null if the string is not an IP address
+     */
+    public static byte[] ipToBytes(String ipAddress) {
+        if (ipAddress == null || ipAddress.isEmpty()) {
+            return null;
+        }
+        if (ipAddress.indexOf(':') == -1) {
+            return parseIPv4(ipAddress);
+        }
+
+        int zone = ipAddress.indexOf('%');
+        String literal = zone == -1 ? ipAddress : ipAddress.substring(0, zone);
+        if (literal.startsWith("[") && literal.endsWith("]")) {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        if (literal.isEmpty() || literal.indexOf(':') == -1) {
+            return null;
+        }
+        try {
+            // Anything containing ':' is parsed as an IPv6 literal, no lookup happens
+            return InetAddress.getByName(literal).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static byte[] parseIPv4(String ipAddress) {
+        String[] parts = ipAddress.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            String part = parts[i];
+            if (part.isEmpty() || part.length() > 3) {
+                return null;
+            }
+            int value = 0;
+            for (int j = 0; j < part.length(); j++) {
+                char c = part.charAt(j);
+                if (c < '0' || c > '9') {
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (value > 255) {
+                return null;
+            }
+            bytes[i] = (byte) value;
+        }
+        return bytes;
+    }
+
+    /**
+     * Decode an IP address to the same string form InetAddress.getHostAddress produces
+     */
+    public static String bytesToIp(byte[] bytes) {
+        if (bytes.length == 4) {
+            return (bytes[0] & 0xFF) + "." + (bytes[1] & 0xFF) + "." + (bytes[2] & 0xFF) + "." + (bytes[3] & 0xFF);
+        }
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("IP address must be 4 or 16 bytes, got " + bytes.length);
+        }
+        try {
+            // IPv4-mapped addresses come back in dotted form, like they do from the server
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Bind a UUID parameter (null binds SQL NULL)
+     */
+    public static void setUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+        if (uuid == null) {
+            stmt.setNull(index, Types.BINARY);
+        } else {
+            stmt.setBytes(index, uuidToBytes(uuid));
+        }
+    }
+
+    /**
+     * Read a UUID column (null if SQL NULL)
+     */
+    public static UUID getUuid(ResultSet rs, String column) throws SQLException {
+        byte[] bytes = rs.getBytes(column);
+        return bytes == null ? null : bytesToUuid(bytes);
+    }
+
+    /**
+     * Bind an IP address parameter
+     * Null, or a string that is not an IP address, binds SQL NULL - which matches no row
+     */
+    public static void setIp(PreparedStatement stmt, int index, String ipAddress) throws SQLException {
+        byte[] bytes = ipToBytes(ipAddress);
+        if (bytes == null) {
+            stmt.setNull(index, Types.VARBINARY);
+        } else {
+            stmt.setBytes(index, bytes);
+        }
+    }
+
+    /**
+     * Read an IP address column (null if SQL NULL)
+     */
+    public static String getIp(ResultSet rs, String column) throws SQLException {
+        byte[] bytes = rs.getBytes(column);
+        return bytes == null ? null : bytesToIp(bytes);
+    }
+}
@@ -0,0 +1,140 @@
+package gg.corn.DunceChat.database;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Dedicated executor for JDBC work, isolated from the shared Bukkit async pool
+ * Every task gets its own virtual thread, and a semaphore sized to the connection pool caps
+ * how many run at once; the rest wait cheaply, so a login wave queues instead of piling
+ * onto Hikari's connection timeout
+ */
+public class DatabaseExecutor {
+
+    private static final Logger logger = Logger.getLogger("DunceChat");
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public DatabaseExecutor(int maxConcurrent) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.permits = new Semaphore(this.maxConcurrent, true);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("DunceChat-DB-", 0).factory());
+    }
+
+    /**
+     * Run database work in the background; failures are logged
+     * @throws RejectedExecutionException If the executor is shut down
+     */
+    public void execute(Runnable task) {
+        submit(() -> {
+            task.run();
+            return null;
+        }).exceptionally(t -> {
+            logger.log(Level.SEVERE, "[DunceChat] Database task failed", t);
+            return null;
+        });
+    }
+
+    /**
+     * Run database work in the background
+     * @return A future completed with the task's result, or exceptionally with its failure
+     * @throws RejectedExecutionException If the executor is shut down
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long queuedAt = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            executor.execute(() -> run(task, future, queuedAt));
+        } catch (RejectedExecutionException e) {
+            waiting.decrementAndGet();
+            throw e;
+        }
+        return future;
+    }
+
+    private <T> void run(Callable<T> task, CompletableFuture<T> future, long queuedAt) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            waiting.decrementAndGet();
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return;
+        }
+
+        long waited = System.nanoTime() - queuedAt;
+        waiting.decrementAndGet();
+        active.incrementAndGet();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        try {
+            future.complete(task.call());
+        } catch (Throwable t) {
+            failed.increment();
+            future.completeExceptionally(t);
+        } finally {
+            active.decrementAndGet();
+            completed.increment();
+            permits.release();
+        }
+    }
+
+    /**
+     * Stop accepting work and wait briefly for queued writes (call before closing the pool)
+     */
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                logger.warning("[DunceChat] " + (waiting.get() + active.get())
+                    + " database tasks still running at shutdown, interrupting them");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Get a snapshot of the executor counters
+     */
+    public Stats getStats() {
+        return new Stats(maxConcurrent, waiting.get(), active.get(), completed.sum(), failed.sum(),
+            totalWaitNanos.sum(), maxWaitNanos.get());
+    }
+
+    /**
+     * Executor counters; waiting is the current queue depth
+     */
+    public record Stats(int maxConcurrent, int waiting, int active, long completed, long failed,
+                        long totalWaitNanos, long maxWaitNanos) {
+        public double averageWaitMillis() {
+            return completed == 0 ? 0.0 : totalWaitNanos / 1_000_000.0 / completed;
+        }
+
+        public double maxWaitMillis() {
+            return maxWaitNanos / 1_000_000.0;
+        }
+    }
+}
@@ -14,6 +14,12 @@ import java.util.logging.Logger;
 public class DatabaseManager {
 
     private HikariDataSource dataSource;
+    private DatabaseExecutor executor;
+    private PoolSettings poolSettings = PoolSettings.defaults();
+    private final PoolMetrics poolMetrics = new PoolMetrics();
+    private final Jdbc jdbc = new Jdbc(this);
+    // Transaction open on the current thread, joined by nested inTransaction calls
+    private final ThreadLocal<UnitOfWork> currentUnitOfWork = new ThreadLocal<>();
     private final String host;
     private final int port;
     private final String database;
@@ -22,6 +28,7 @@ public class DatabaseManager {
     private final DatabaseType databaseType;
     private final String h2FilePath;
     private static final Logger logger = Logger.getLogger("DunceChat");
+    private static final int H2_QUERY_CACHE_SIZE = 64;
 
     public enum DatabaseType {
         MYSQL, H2
@@ -49,6 +56,17 @@ public class DatabaseManager {
         this.password = null;
     }
 
+    /**
+     * Set the connection pool settings (call before initialize)
+     */
+    public void setPoolSettings(PoolSettings poolSettings) {
+        this.poolSettings = poolSettings;
+    }
+
+    public PoolSettings getPoolSettings() {
+        return poolSettings;
+    }
+
     /**
      * Initialize the connection pool
      */
@@ -72,29 +90,46 @@ public class DatabaseManager {
             config.addDataSourceProperty("prepStmtCacheSize", "250");
             config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
             config.addDataSourceProperty("useServerPrepStmts", "true");
+            // Send JDBC batches as multi-row statements instead of one round-trip per row
+            config.addDataSourceProperty("rewriteBatchedStatements", "true");
         } else if (databaseType == DatabaseType.H2) {
-            config.setJdbcUrl("jdbc:h2:" + h2FilePath + ";MODE=MySQL");
+            // H2 has no prepared statement cache; its per-session query cache (default 8 entries) keeps
+            // parsed queries across prepares, so size it for every named statement
+            config.setJdbcUrl("jdbc:h2:" + h2FilePath + ";MODE=MySQL;QUERY_CACHE_SIZE=" + H2_QUERY_CACHE_SIZE);
             config.setDriverClassName("org.h2.Driver");
             logger.info("[DunceChat] Using H2 database at: " + h2FilePath);
         }
 
         // Connection pool settings
-        config.setMaximumPoolSize(10);
-        config.setMinimumIdle(2);
-        config.setConnectionTimeout(30000);
-        config.setIdleTimeout(600000);
-        config.setMaxLifetime(1800000);
+        config.setPoolName("DunceChat");
+        config.setMaximumPoolSize(poolSettings.maximumPoolSize());
+        config.setMinimumIdle(poolSettings.minimumIdle());
+        config.setConnectionTimeout(poolSettings.connectionTimeoutMillis());
+        config.setIdleTimeout(poolSettings.idleTimeoutMillis());
+        config.setMaxLifetime(poolSettings.maxLifetimeMillis());
+        config.setValidationTimeout(poolSettings.validationTimeoutMillis());
+        if (poolSettings.keepaliveTimeMillis() > 0) {
+            config.setKeepaliveTime(poolSettings.keepaliveTimeMillis());
+        }
+        if (poolSettings.leakDetectionThresholdMillis() > 0) {
+            config.setLeakDetectionThreshold(poolSettings.leakDetectionThresholdMillis());
+        }
+        config.setMetricsTrackerFactory(poolMetrics);
 
         try {
             this.dataSource = new HikariDataSource(config);
-            logger.info("[DunceChat] Database connection pool initialized successfully! (Type: " + databaseType + ")");
+            poolMetrics.setPool(dataSource.getHikariPoolMXBean());
+            this.executor = new DatabaseExecutor(poolSettings.maximumPoolSize());
+            logger.info("[DunceChat] Database connection pool initialized successfully! (Type: " + databaseType
+                + ", max connections: " + poolSettings.maximumPoolSize() + ")");
             testConnection();
         } catch (Exception e) {
             logger.severe("[DunceChat] Failed to initialize database connection pool!");
             logger.severe("[DunceChat] Database Type: " + databaseType);
             if (databaseType == DatabaseType.H2) {
                 logger.severe("[DunceChat] H2 File Path: " + h2FilePath);
-                logger.severe("[DunceChat] JDBC URL: jdbc:h2:" + h2FilePath + ";MODE=MySQL");
+                logger.severe("[DunceChat] JDBC URL: jdbc:h2:" + h2FilePath + ";MODE=MySQL;QUERY_CACHE_SIZE="
+                    + H2_QUERY_CACHE_SIZE);
             } else {
                 logger.severe("[DunceChat] MySQL Host: " + host + ":" + port);
                 logger.severe("[DunceChat] MySQL Database: " + database);
@@ -159,9 +194,92 @@ public class DatabaseManager {
     }
 
     /**
-     * Close the connection pool
+     * Run work in one transaction on one connection and return its result
+     * Commits if the work returns, rolls back if it throws; post-commit effects run after the
+     * connection is back in the pool. A call made while a transaction is already open on this
+     * thread joins it (its effects then wait for the outer commit)
+     */
+    public <T> T inTransaction(UnitOfWork.Work<T> work) throws SQLException {
+        UnitOfWork outer = currentUnitOfWork.get();
+        if (outer != null) {
+            return work.run(outer);
+        }
+
+        UnitOfWork unit;
+        T result;
+        try (Connection conn = getConnection()) {
+            conn.setAutoCommit(false);
+            unit = new UnitOfWork(conn);
+            currentUnitOfWork.set(unit);
+            boolean ended = false;
+            try {
+                result = work.run(unit);
+                conn.commit();
+                ended = true;
+            } catch (Throwable e) {
+                // Any failure, Errors included - auto-commit must never be restored on a half-applied transaction
+                try {
+                    conn.rollback();
+                    ended = true;
+                } catch (SQLException | RuntimeException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            } finally {
+                currentUnitOfWork.remove();
+                // If neither commit nor rollback succeeded the transaction state is unknown: never turn
+                // auto-commit back on (that would commit it), close the connection instead of reusing it
+                if (ended) {
+                    conn.setAutoCommit(true);
+                } else {
+                    dataSource.evictConnection(conn);
+                }
+            }
+        }
+
+        unit.runAfterCommit();
+        return result;
+    }
+
+    /**
+     * Run work in one transaction on one connection, see {@link #inTransaction}
+     */
+    public void runInTransaction(UnitOfWork.Action action) throws SQLException {
+        inTransaction(unit -> {
+            action.run(unit);
+            return null;
+        });
+    }
+
+    /**
+     * Get the executor for background database work (available after initialize)
+     */
+    public DatabaseExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Get the connection pool metrics (also used to register metrics sinks)
+     */
+    public PoolMetrics getPoolMetrics() {
+        return poolMetrics;
+    }
+
+    /**
+     * Get the statement-caching JDBC layer used by the repositories
+     */
+    public Jdbc getJdbc() {
+        return jdbc;
+    }
+
+    /**
+     * Drain background database work, then close the connection pool
      */
     public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        jdbc.close();
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             logger.info("[DunceChat] Database connection pool closed.");
@@ -0,0 +1,201 @@
+package gg.corn.DunceChat.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small JDBC access layer for the repositories
+ * Named statements are prepared through the pool's connection proxy (so the pool sees every
+ * statement and can roll back a connection returned mid-transaction) and reused for as long as
+ * that connection is borrowed. Re-parsing across borrows is avoided by the drivers' own caches:
+ * the prepared statement cache on MySQL, the session query cache on H2 (see DatabaseManager).
+ * Every execution is timed per statement name
+ */
+public class Jdbc {
+
+    private final DatabaseManager databaseManager;
+
+    // Borrowed connection (pool proxy) -> statement name -> prepared statement (guarded by itself)
+    // A connection is only used by the thread that borrowed it, so its statements are too; the pool
+    // closes them when the connection is returned
+    private final Map<Connection, Map<String, PreparedStatement>> statements = new IdentityHashMap<>();
+
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+    public Jdbc(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * Run a query and map every row
+     */
+    public <T> List<T> query(NamedStatement statement, StatementBinder binder, RowMapper<T> mapper) throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            return query(conn, statement, binder, mapper);
+        }
+    }
+
+    /**
+     * Run a query on the caller's connection (part of a transaction) and map every row
+     */
+    public <T> List<T> query(Connection conn, NamedStatement statement, StatementBinder binder, RowMapper<T> mapper)
+            throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement stmt = prepare(conn, statement);
+        try {
+            binder.bind(stmt);
+            List<T> rows = new ArrayList<>();
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+            }
+            return rows;
+        } finally {
+            stmt.clearParameters();
+            record(statement, start);
+        }
+    }
+
+    /**
+     * Run a query and map the first row, if any (a mapper returning null also gives empty)
+     */
+    public <T> Optional<T> queryFirst(NamedStatement statement, StatementBinder binder, RowMapper<T> mapper)
+            throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            long start = System.nanoTime();
+            PreparedStatement stmt = prepare(conn, statement);
+            try {
+                binder.bind(stmt);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? Optional.ofNullable(mapper.map(rs)) : Optional.empty();
+                }
+            } finally {
+                stmt.clearParameters();
+                record(statement, start);
+            }
+        }
+    }
+
+    /**
+     * Run an INSERT/UPDATE/DELETE
+     * @return Number of affected rows
+     */
+    public int update(NamedStatement statement, StatementBinder binder) throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            return update(conn, statement, binder);
+        }
+    }
+
+    /**
+     * Run an INSERT/UPDATE/DELETE on the caller's connection (part of a transaction)
+     * @return Number of affected rows
+     */
+    public int update(Connection conn, NamedStatement statement, StatementBinder binder) throws SQLException {
+        long start = System.nanoTime();
+        PreparedStatement stmt = prepare(conn, statement);
+        try {
+            binder.bind(stmt);
+            return stmt.executeUpdate();
+        } finally {
+            stmt.clearParameters();
+            record(statement, start);
+        }
+    }
+
+    /**
+     * Get the statement already prepared during this borrow of the connection, preparing it on first use
+     */
+    private PreparedStatement prepare(Connection conn, NamedStatement statement) throws SQLException {
+        Map<String, PreparedStatement> cached;
+        synchronized (statements) {
+            cached = statements.get(conn);
+            if (cached == null) {
+                // A new borrow - forget the connections returned to the pool since
+                statements.keySet().removeIf(Jdbc::isClosed);
+                cached = new HashMap<>();
+                statements.put(conn, cached);
+            }
+        }
+
+        PreparedStatement stmt = cached.get(statement.name());
+        if (stmt == null || stmt.isClosed()) {
+            stmt = conn.prepareStatement(statement.sql());
+            cached.put(statement.name(), stmt);
+            timing(statement).prepares.increment();
+        }
+        return stmt;
+    }
+
+    private static boolean isClosed(Connection conn) {
+        try {
+            return conn.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private Timing timing(NamedStatement statement) {
+        return timings.computeIfAbsent(statement.name(), k -> new Timing());
+    }
+
+    private void record(NamedStatement statement, long start) {
+        long elapsed = System.nanoTime() - start;
+        Timing timing = timing(statement);
+        timing.executions.increment();
+        timing.totalNanos.add(elapsed);
+        timing.maxNanos.accumulateAndGet(elapsed, Math::max);
+    }
+
+    /**
+     * Latency of every statement run so far, slowest total first
+     */
+    public List<StatementStats> getStats() {
+        List<StatementStats> stats = new ArrayList<>();
+        timings.forEach((name, timing) -> stats.add(new StatementStats(name, timing.executions.sum(),
+            timing.prepares.sum(), timing.totalNanos.sum(), timing.maxNanos.get())));
+        stats.sort(Comparator.comparingLong(StatementStats::totalNanos).reversed());
+        return stats;
+    }
+
+    /**
+     * Forget every cached statement (call before closing the pool, which closes them)
+     */
+    public void close() {
+        synchronized (statements) {
+            statements.clear();
+        }
+    }
+
+    private static final class Timing {
+        private final LongAdder executions = new LongAdder();
+        private final LongAdder prepares = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+    }
+
+    /**
+     * Latency counters of one named statement; prepares counts statements prepared (once per borrow)
+     */
+    public record StatementStats(String name, long executions, long prepares, long totalNanos, long maxNanos) {
+        public double averageMicros() {
+            return executions == 0 ? 0.0 : totalNanos / 1_000.0 / executions;
+        }
+
+        public double maxMicros() {
+            return maxNanos / 1_000.0;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package gg.corn.DunceChat.database;
+
+import java.util.logging.Logger;
+
+/**
+ * Writes pool metrics to the server log
+ * Logs a warning instead when threads were waiting for a connection or acquisitions timed out
+ */
+public class LoggingPoolMetricsSink implements PoolMetricsSink {
+
+    private static final Logger logger = Logger.getLogger("DunceChat");
+
+    private long lastTimeouts;
+
+    @Override
+    public void publish(PoolMetrics.Snapshot snapshot) {
+        long newTimeouts = snapshot.timeouts() - lastTimeouts;
+        lastTimeouts = snapshot.timeouts();
+
+        String line = String.format("[DunceChat] Pool: %d/%d active, %d idle, %d waiting, acquire avg %.2fms max %.2fms, "
+                + "%d timeouts (%d new)",
+            snapshot.active(), snapshot.max(), snapshot.idle(), snapshot.pendingThreads(),
+            snapshot.averageAcquireMillis(), snapshot.maxAcquireMillis(), snapshot.timeouts(), newTimeouts);
+
+        if (snapshot.pendingThreads() > 0 || newTimeouts > 0) {
+            logger.warning(line);
+        } else {
+            logger.info(line);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package gg.corn.DunceChat.database;
+
+/**
+ * A SQL statement with a stable name, used as its key in the statement cache and in latency stats
+ */
+public record NamedStatement(String name, String sql) {
+
+    public static NamedStatement of(String name, String sql) {
+        return new NamedStatement(name, sql);
+    }
+}
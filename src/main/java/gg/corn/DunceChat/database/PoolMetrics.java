@@ -0,0 +1,140 @@
+package gg.corn.DunceChat.database;
+
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects HikariCP pool metrics (registered as the pool's metrics tracker)
+ * Pool state (active, idle, waiting threads) is read live from the pool; connection acquire
+ * and usage times are accumulated here. Snapshots are shown by /duncestats and pushed to any
+ * registered {@link PoolMetricsSink}
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+
+    private static final Logger logger = Logger.getLogger("DunceChat");
+
+    private volatile PoolStats poolStats;
+    // Live pool state - Hikari's PoolStats is only refreshed once a second
+    private volatile HikariPoolMXBean pool;
+    private final List<PoolMetricsSink> sinks = new CopyOnWriteArrayList<>();
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder totalAcquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder usages = new LongAdder();
+    private final LongAdder totalUsageMillis = new LongAdder();
+    private final AtomicLong maxUsageMillis = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+                connectionsCreated.increment();
+            }
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquisitions.increment();
+                totalAcquireNanos.add(elapsedAcquiredNanos);
+                maxAcquireNanos.accumulateAndGet(elapsedAcquiredNanos, Math::max);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usages.increment();
+                totalUsageMillis.add(elapsedBorrowedMillis);
+                maxUsageMillis.accumulateAndGet(elapsedBorrowedMillis, Math::max);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    /**
+     * Read live pool state from this pool (set once the data source is created)
+     */
+    void setPool(HikariPoolMXBean pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Register a sink that receives a snapshot on every {@link #publish}
+     */
+    public void addSink(PoolMetricsSink sink) {
+        sinks.add(sink);
+    }
+
+    public void removeSink(PoolMetricsSink sink) {
+        sinks.remove(sink);
+    }
+
+    public boolean hasSinks() {
+        return !sinks.isEmpty();
+    }
+
+    /**
+     * Push a snapshot to every registered sink (a failing sink does not affect the others)
+     */
+    public void publish() {
+        if (sinks.isEmpty()) {
+            return;
+        }
+        Snapshot snapshot = snapshot();
+        for (PoolMetricsSink sink : sinks) {
+            try {
+                sink.publish(snapshot);
+            } catch (Exception e) {
+                logger.log(Level.WARNING, "[DunceChat] Pool metrics sink " + sink.getClass().getName() + " failed", e);
+            }
+        }
+    }
+
+    /**
+     * Get the current pool state and accumulated counters
+     */
+    public Snapshot snapshot() {
+        PoolStats stats = poolStats;
+        HikariPoolMXBean live = pool;
+        long acquired = acquisitions.sum();
+        long used = usages.sum();
+        return new Snapshot(
+            live != null ? live.getActiveConnections() : stats != null ? stats.getActiveConnections() : 0,
+            live != null ? live.getIdleConnections() : stats != null ? stats.getIdleConnections() : 0,
+            live != null ? live.getTotalConnections() : stats != null ? stats.getTotalConnections() : 0,
+            stats != null ? stats.getMaxConnections() : 0,
+            live != null ? live.getThreadsAwaitingConnection() : stats != null ? stats.getPendingThreads() : 0,
+            acquired,
+            acquired == 0 ? 0.0 : totalAcquireNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1) / acquired,
+            maxAcquireNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1),
+            used == 0 ? 0.0 : (double) totalUsageMillis.sum() / used,
+            maxUsageMillis.get(),
+            timeouts.sum(),
+            connectionsCreated.sum());
+    }
+
+    /**
+     * Pool metrics; pendingThreads are threads currently waiting for a connection
+     */
+    public record Snapshot(int active, int idle, int total, int max, int pendingThreads,
+                           long acquisitions, double averageAcquireMillis, double maxAcquireMillis,
+                           double averageUsageMillis, long maxUsageMillis, long timeouts,
+                           long connectionsCreated) {
+    }
+}
@@ -0,0 +1,11 @@
+package gg.corn.DunceChat.database;
+
+/**
+ * Receives connection pool metrics every publish interval
+ * Register implementations with {@link PoolMetrics#addSink}
+ */
+@FunctionalInterface
+public interface PoolMetricsSink {
+
+    void publish(PoolMetrics.Snapshot snapshot);
+}
@@ -0,0 +1,29 @@
+package gg.corn.DunceChat.database;
+
+/**
+ * HikariCP connection pool settings (database.pool in config.yml)
+ * A keepalive time or leak detection threshold of 0 leaves the feature disabled
+ */
+public record PoolSettings(int maximumPoolSize, int minimumIdle, long connectionTimeoutMillis,
+                           long idleTimeoutMillis, long maxLifetimeMillis, long keepaliveTimeMillis,
+                           long validationTimeoutMillis, long leakDetectionThresholdMillis) {
+
+    public PoolSettings {
+        maximumPoolSize = Math.max(1, maximumPoolSize);
+        minimumIdle = Math.max(0, Math.min(minimumIdle, maximumPoolSize));
+        // Hikari rejects connection/validation timeouts below 250ms
+        connectionTimeoutMillis = Math.max(250, connectionTimeoutMillis);
+        validationTimeoutMillis = Math.max(250, validationTimeoutMillis);
+        idleTimeoutMillis = Math.max(0, idleTimeoutMillis);
+        maxLifetimeMillis = Math.max(0, maxLifetimeMillis);
+        keepaliveTimeMillis = Math.max(0, keepaliveTimeMillis);
+        leakDetectionThresholdMillis = Math.max(0, leakDetectionThresholdMillis);
+    }
+
+    /**
+     * The settings used before they were configurable
+     */
+    public static PoolSettings defaults() {
+        return new PoolSettings(10, 2, 30000, 600000, 1800000, 0, 5000, 0);
+    }
+}
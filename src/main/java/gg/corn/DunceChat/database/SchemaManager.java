@@ -1,8 +1,14 @@
 package gg.corn.DunceChat.database;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 /**
@@ -11,16 +17,22 @@ import java.util.logging.Logger;
 public class SchemaManager {
 
     private final DatabaseManager databaseManager;
-    private static final int CURRENT_SCHEMA_VERSION = 3;
+    private static final int CURRENT_SCHEMA_VERSION = 6;
     private static final Logger logger = Logger.getLogger("DunceChat");
 
+    // Rows copied per transaction by the version 5 upgrade
+    private static final int MIGRATION_CHUNK_SIZE = 5000;
+
+    // H2 error code for DROP INDEX on an index that a constraint uses
+    private static final int H2_INDEX_BELONGS_TO_CONSTRAINT = 90085;
+
     public SchemaManager(DatabaseManager databaseManager) {
         this.databaseManager = databaseManager;
     }
 
     /**
      * Initialize the new schema (fresh install only)
-     * Creates all tables with version 3 structure directly
+     * Creates all tables with the current version structure directly
      */
     public void initializeSchema() {
         try (Connection conn = databaseManager.getConnection();
@@ -41,81 +53,21 @@ public class SchemaManager {
                 return;
             }
 
-            // Fresh install - create all tables with version 3 structure
-            logger.info("[DunceChat] No existing tables detected. Creating tables...");
-
-            // Players table - central player information
-            stmt.execute("""
-                CREATE TABLE players (
-                    uuid VARCHAR(36) PRIMARY KEY,
-                    username VARCHAR(16) NOT NULL,
-                    first_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    last_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    last_quit TIMESTAMP NULL,
-                    INDEX idx_username (username)
-                )
-            """);
-
-            // Dunce records table - tracks all dunce actions (with trigger_message column)
-            stmt.execute("""
-                CREATE TABLE dunce_records (
-                    id INT AUTO_INCREMENT PRIMARY KEY,
-                    player_uuid VARCHAR(36) NOT NULL,
-                    is_dunced BOOLEAN NOT NULL DEFAULT FALSE,
-                    reason TEXT,
-                    staff_uuid VARCHAR(36),
-                    dunced_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    expires_at TIMESTAMP NULL,
-                    undunced_at TIMESTAMP NULL,
-                    trigger_message TEXT,
-                    INDEX idx_player (player_uuid),
-                    INDEX idx_active (player_uuid, is_dunced),
-                    INDEX idx_expiry (expires_at),
-                    FOREIGN KEY (player_uuid) REFERENCES players(uuid) ON DELETE CASCADE
-                )
-            """);
-
-            // Player preferences table
-            stmt.execute("""
-                CREATE TABLE player_preferences (
-                    player_uuid VARCHAR(36) PRIMARY KEY,
-                    dunce_chat_visible BOOLEAN DEFAULT FALSE,
-                    in_dunce_chat BOOLEAN DEFAULT FALSE,
-                    FOREIGN KEY (player_uuid) REFERENCES players(uuid) ON DELETE CASCADE
-                )
-            """);
+            // Tables without a version: an unversioned install, or an H2 install whose creation failed
+            // part way (older versions reused index names, which H2 rejects) - the upgrades complete it
+            if (tableExists(conn, "players")) {
+                logger.info("[DunceChat] Found tables without a schema version, upgrading them instead.");
+                return;
+            }
 
-            // Pending messages table
-            stmt.execute("""
-                CREATE TABLE pending_messages (
-                    id INT AUTO_INCREMENT PRIMARY KEY,
-                    player_uuid VARCHAR(36) NOT NULL,
-                    message_key VARCHAR(255) NOT NULL,
-                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    INDEX idx_player (player_uuid),
-                    FOREIGN KEY (player_uuid) REFERENCES players(uuid) ON DELETE CASCADE
-                )
-            """);
+            // Fresh install - create all tables with the current version structure
+            logger.info("[DunceChat] No existing tables detected. Creating tables...");
 
-            // Player IP log table - silently tracks IP associations
-            stmt.execute("""
-                CREATE TABLE player_ip_log (
-                    id INT AUTO_INCREMENT PRIMARY KEY,
-                    player_uuid VARCHAR(36) NOT NULL,
-                    ip_address VARCHAR(45) NOT NULL,
-                    first_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                    INDEX idx_player (player_uuid),
-                    INDEX idx_ip (ip_address),
-                    INDEX idx_last_seen (last_seen),
-                    UNIQUE KEY unique_player_ip (player_uuid, ip_address),
-                    FOREIGN KEY (player_uuid) REFERENCES players(uuid) ON DELETE CASCADE
-                )
-            """);
+            createTables(stmt, "");
 
-            // Set schema version to 3
+            // Set schema version to current
             updateSchemaVersion(CURRENT_SCHEMA_VERSION);
-            logger.info("[DunceChat] Database schema v3 initialized successfully!");
+            logger.info("[DunceChat] Database schema v" + CURRENT_SCHEMA_VERSION + " initialized successfully!");
 
         } catch (SQLException e) {
             logger.severe("[DunceChat] Failed to initialize database schema!");
@@ -123,6 +75,87 @@ public class SchemaManager {
         }
     }
 
+    /**
+     * Create all tables with the current version structure
+     * UUIDs are BINARY(16) and IPs VARBINARY(16) (see BinaryCodec). The suffix is appended to every
+     * table name ("" for a fresh install, "_v5" for the shadow tables of the version 5 upgrade);
+     * index names are prefixed with their table because H2 index names are unique per schema
+     */
+    private void createTables(Statement stmt, String suffix) throws SQLException {
+        // Players table - central player information
+        stmt.execute("""
+            CREATE TABLE players%1$s (
+                uuid BINARY(16) PRIMARY KEY,
+                username VARCHAR(16) NOT NULL,
+                first_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                last_join TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                last_quit TIMESTAMP NULL,
+                INDEX idx_players_username_last_join (username, last_join)
+            )
+        """.formatted(suffix));
+
+        // Dunce records table - tracks all dunce actions (with trigger_message and IP link columns)
+        stmt.execute("""
+            CREATE TABLE dunce_records%1$s (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                player_uuid BINARY(16) NOT NULL,
+                is_dunced BOOLEAN NOT NULL DEFAULT FALSE,
+                reason TEXT,
+                staff_uuid BINARY(16),
+                dunced_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                expires_at TIMESTAMP NULL,
+                undunced_at TIMESTAMP NULL,
+                trigger_message TEXT,
+                linked_from_uuid BINARY(16) NULL,
+                linked_from_ip VARBINARY(16) NULL,
+                INDEX idx_dunce_records_player_dunced_at (player_uuid, dunced_at),
+                INDEX idx_dunce_records_active_id (player_uuid, is_dunced, id),
+                INDEX idx_dunce_records_dunced_expiry (is_dunced, expires_at),
+                INDEX idx_dunce_records_linked_uuid (linked_from_uuid),
+                INDEX idx_dunce_records_linked_ip (linked_from_ip),
+                FOREIGN KEY (player_uuid) REFERENCES players%1$s(uuid) ON DELETE CASCADE
+            )
+        """.formatted(suffix));
+
+        // Player preferences table
+        stmt.execute("""
+            CREATE TABLE player_preferences%1$s (
+                player_uuid BINARY(16) PRIMARY KEY,
+                dunce_chat_visible BOOLEAN DEFAULT FALSE,
+                in_dunce_chat BOOLEAN DEFAULT FALSE,
+                FOREIGN KEY (player_uuid) REFERENCES players%1$s(uuid) ON DELETE CASCADE
+            )
+        """.formatted(suffix));
+
+        // Pending messages table
+        stmt.execute("""
+            CREATE TABLE pending_messages%1$s (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                player_uuid BINARY(16) NOT NULL,
+                message_key VARCHAR(255) NOT NULL,
+                created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                INDEX idx_pending_messages_player_created (player_uuid, created_at),
+                FOREIGN KEY (player_uuid) REFERENCES players%1$s(uuid) ON DELETE CASCADE
+            )
+        """.formatted(suffix));
+
+        // Player IP log table - silently tracks IP associations
+        stmt.execute("""
+            CREATE TABLE player_ip_log%1$s (
+                id INT AUTO_INCREMENT PRIMARY KEY,
+                player_uuid BINARY(16) NOT NULL,
+                ip_address VARBINARY(16) NOT NULL,
+                first_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                INDEX idx_player_ip_log_player_last_seen (player_uuid, last_seen DESC, ip_address, first_seen),
+                INDEX idx_player_ip_log_ip_player (ip_address, player_uuid),
+                INDEX idx_player_ip_log_last_seen (last_seen),
+                UNIQUE KEY uq_player_ip_log_player_ip (player_uuid, ip_address),
+                FOREIGN KEY (player_uuid) REFERENCES players%1$s(uuid) ON DELETE CASCADE
+            )
+        """.formatted(suffix));
+    }
+
     /**
      * Apply schema upgrades if needed
      */
@@ -134,10 +167,36 @@ public class SchemaManager {
 
             // Note: We skip version 2 as it only existed in debug environments
             // The migration from unversioned schema goes directly to version 3
-            boolean upgradeSuccess = upgradeToVersion3();
+            boolean upgradeSuccess = true;
+            if (currentVersion < 3) {
+                upgradeSuccess = upgradeToVersion3();
+                if (upgradeSuccess) {
+                    updateSchemaVersion(3);
+                }
+            }
+
+            if (upgradeSuccess && currentVersion < 4) {
+                upgradeSuccess = upgradeToVersion4();
+                if (upgradeSuccess) {
+                    updateSchemaVersion(4);
+                }
+            }
+
+            if (upgradeSuccess && currentVersion < 5) {
+                upgradeSuccess = upgradeToVersion5();
+                if (upgradeSuccess) {
+                    updateSchemaVersion(5);
+                }
+            }
+
+            if (upgradeSuccess && currentVersion < 6) {
+                upgradeSuccess = upgradeToVersion6();
+                if (upgradeSuccess) {
+                    updateSchemaVersion(6);
+                }
+            }
 
             if (upgradeSuccess) {
-                updateSchemaVersion(CURRENT_SCHEMA_VERSION);
                 logger.info("[DunceChat] Schema upgrade complete!");
             } else {
                 logger.severe("[DunceChat] Schema upgrade FAILED! Database may be in inconsistent state.");
@@ -183,7 +242,7 @@ public class SchemaManager {
                         player_uuid VARCHAR(36) NOT NULL,
                         message_key VARCHAR(255) NOT NULL,
                         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                        INDEX idx_player (player_uuid),
+                        INDEX idx_pending_messages_v3_player (player_uuid),
                         FOREIGN KEY (player_uuid) REFERENCES players(uuid) ON DELETE CASCADE
                     )
                 """;
@@ -207,9 +266,9 @@ public class SchemaManager {
                         ip_address VARCHAR(45) NOT NULL,
                         first_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
                         last_seen TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
-                        INDEX idx_player (player_uuid),
-                        INDEX idx_ip (ip_address),
-                        INDEX idx_last_seen (last_seen),
+                        INDEX idx_player_ip_log_v3_player (player_uuid),
+                        INDEX idx_player_ip_log_v3_ip (ip_address),
+                        INDEX idx_player_ip_log_v3_last_seen (last_seen),
                         UNIQUE KEY unique_player_ip (player_uuid, ip_address),
                         FOREIGN KEY (player_uuid) REFERENCES players(uuid) ON DELETE CASCADE
                     )
@@ -234,6 +293,500 @@ public class SchemaManager {
         }
     }
 
+    /**
+     * Upgrade schema to version 4: Store IP-link origins as structured columns
+     * Adds linked_from_uuid/linked_from_ip to dunce_records and backfills them from the
+     * "(IP Link: name)" and "(IP: address)" markers in existing reasons
+     * @return true if upgrade succeeded, false otherwise
+     */
+    private boolean upgradeToVersion4() {
+        logger.info("[DunceChat] Applying schema upgrade to version 4...");
+
+        try (Connection conn = databaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            if (!columnExists(conn, "dunce_records", "linked_from_uuid")) {
+                stmt.execute("ALTER TABLE dunce_records ADD COLUMN linked_from_uuid VARCHAR(36) NULL");
+                stmt.execute("CREATE INDEX idx_linked_from_uuid ON dunce_records (linked_from_uuid)");
+                logger.info("[DunceChat] Added linked_from_uuid column to dunce_records table.");
+            }
+
+            if (!columnExists(conn, "dunce_records", "linked_from_ip")) {
+                stmt.execute("ALTER TABLE dunce_records ADD COLUMN linked_from_ip VARCHAR(45) NULL");
+                stmt.execute("CREATE INDEX idx_linked_from_ip ON dunce_records (linked_from_ip)");
+                logger.info("[DunceChat] Added linked_from_ip column to dunce_records table.");
+            }
+
+            int backfilled = backfillIPLinks(conn);
+            logger.info("[DunceChat] Backfilled IP link origin for " + backfilled + " dunce records.");
+
+            return true;
+
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to upgrade schema to version 4!");
+            logger.severe("[DunceChat] Error: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * Upgrade schema to version 5: Store UUIDs as BINARY(16) and IP addresses as VARBINARY(16)
+     * Every table is copied into a "_v5" shadow table in key order, a chunk at a time. Each chunk
+     * commits together with its position in schema_migration_progress, so the old tables are never
+     * locked for long and an interrupted upgrade resumes at the last committed chunk. Once all
+     * tables are copied the shadow tables replace them; the old ones are kept as "_v4_backup"
+     * @return true if upgrade succeeded, false otherwise
+     */
+    private boolean upgradeToVersion5() {
+        logger.info("[DunceChat] Applying schema upgrade to version 5 (binary UUID and IP columns)...");
+
+        try (Connection conn = databaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS schema_migration_progress (
+                    table_name VARCHAR(64) PRIMARY KEY,
+                    last_key VARCHAR(64) NULL,
+                    completed BOOLEAN NOT NULL DEFAULT FALSE
+                )
+            """);
+
+            List<TableCopy> copies = binaryTableCopies();
+            if (!hasProgress(conn)) {
+                // Nothing copied yet - (re)create the shadow tables, children before their parent
+                for (int i = copies.size() - 1; i >= 0; i--) {
+                    stmt.execute("DROP TABLE IF EXISTS " + copies.get(i).table() + "_v5");
+                }
+                createTables(stmt, "_v5");
+            }
+
+            for (TableCopy copy : copies) {
+                copyTable(conn, copy);
+            }
+
+            // Swap each table (foreign keys follow a renamed table, so the backups keep referencing each other)
+            for (TableCopy copy : copies) {
+                String shadow = copy.table() + "_v5";
+                if (!tableExists(conn, shadow)) {
+                    continue;
+                }
+                if (tableExists(conn, copy.table())) {
+                    stmt.execute("ALTER TABLE " + copy.table() + " RENAME TO " + copy.table() + "_v4_backup");
+                }
+                stmt.execute("ALTER TABLE " + shadow + " RENAME TO " + copy.table());
+            }
+
+            stmt.execute("DROP TABLE schema_migration_progress");
+            logger.info("[DunceChat] Binary tables are live. The previous tables were kept with the suffix _v4_backup"
+                + " and can be dropped once everything looks right.");
+            return true;
+
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to upgrade schema to version 5!");
+            logger.severe("[DunceChat] Error: " + e.getMessage());
+            logger.severe("[DunceChat] Copied chunks are kept - the upgrade resumes on the next start.");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * How each table is copied into its binary shadow table (players first - the others reference it)
+     * Rows whose UUID cannot be parsed are skipped; rows that collide once encoded (e.g. two spellings
+     * of the same IPv6 address) are merged
+     */
+    private List<TableCopy> binaryTableCopies() {
+        return List.of(
+            new TableCopy("players", "uuid", false,
+                "uuid, username, first_join, last_join, last_quit",
+                """
+                    INSERT INTO players_v5 (uuid, username, first_join, last_join, last_quit)
+                    VALUES (?, ?, ?, ?, ?)
+                    ON DUPLICATE KEY UPDATE last_join = GREATEST(last_join, VALUES(last_join))
+                """,
+                (rs, insert) -> {
+                    byte[] uuid = parseUuid(rs.getString("uuid"));
+                    if (uuid == null) {
+                        return false;
+                    }
+                    insert.setBytes(1, uuid);
+                    insert.setString(2, rs.getString("username"));
+                    insert.setTimestamp(3, rs.getTimestamp("first_join"));
+                    insert.setTimestamp(4, rs.getTimestamp("last_join"));
+                    insert.setTimestamp(5, rs.getTimestamp("last_quit"));
+                    return true;
+                }),
+            new TableCopy("dunce_records", "id", true,
+                "id, player_uuid, is_dunced, reason, staff_uuid, dunced_at, expires_at, undunced_at,"
+                    + " trigger_message, linked_from_uuid, linked_from_ip",
+                """
+                    INSERT INTO dunce_records_v5 (id, player_uuid, is_dunced, reason, staff_uuid, dunced_at, expires_at,
+                                                  undunced_at, trigger_message, linked_from_uuid, linked_from_ip)
+                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """,
+                (rs, insert) -> {
+                    byte[] playerUuid = parseUuid(rs.getString("player_uuid"));
+                    if (playerUuid == null) {
+                        return false;
+                    }
+                    insert.setInt(1, rs.getInt("id"));
+                    insert.setBytes(2, playerUuid);
+                    insert.setBoolean(3, rs.getBoolean("is_dunced"));
+                    insert.setString(4, rs.getString("reason"));
+                    insert.setBytes(5, parseUuid(rs.getString("staff_uuid")));
+                    insert.setTimestamp(6, rs.getTimestamp("dunced_at"));
+                    insert.setTimestamp(7, rs.getTimestamp("expires_at"));
+                    insert.setTimestamp(8, rs.getTimestamp("undunced_at"));
+                    insert.setString(9, rs.getString("trigger_message"));
+                    insert.setBytes(10, parseUuid(rs.getString("linked_from_uuid")));
+                    insert.setBytes(11, BinaryCodec.ipToBytes(rs.getString("linked_from_ip")));
+                    return true;
+                }),
+            new TableCopy("player_preferences", "player_uuid", false,
+                "player_uuid, dunce_chat_visible, in_dunce_chat",
+                """
+                    INSERT INTO player_preferences_v5 (player_uuid, dunce_chat_visible, in_dunce_chat)
+                    VALUES (?, ?, ?)
+                    ON DUPLICATE KEY UPDATE dunce_chat_visible = VALUES(dunce_chat_visible)
+                """,
+                (rs, insert) -> {
+                    byte[] playerUuid = parseUuid(rs.getString("player_uuid"));
+                    if (playerUuid == null) {
+                        return false;
+                    }
+                    insert.setBytes(1, playerUuid);
+                    insert.setBoolean(2, rs.getBoolean("dunce_chat_visible"));
+                    insert.setBoolean(3, rs.getBoolean("in_dunce_chat"));
+                    return true;
+                }),
+            new TableCopy("pending_messages", "id", true,
+                "id, player_uuid, message_key, created_at",
+                """
+                    INSERT INTO pending_messages_v5 (id, player_uuid, message_key, created_at)
+                    VALUES (?, ?, ?, ?)
+                """,
+                (rs, insert) -> {
+                    byte[] playerUuid = parseUuid(rs.getString("player_uuid"));
+                    if (playerUuid == null) {
+                        return false;
+                    }
+                    insert.setInt(1, rs.getInt("id"));
+                    insert.setBytes(2, playerUuid);
+                    insert.setString(3, rs.getString("message_key"));
+                    insert.setTimestamp(4, rs.getTimestamp("created_at"));
+                    return true;
+                }),
+            new TableCopy("player_ip_log", "id", true,
+                "id, player_uuid, ip_address, first_seen, last_seen",
+                """
+                    INSERT INTO player_ip_log_v5 (id, player_uuid, ip_address, first_seen, last_seen)
+                    VALUES (?, ?, ?, ?, ?)
+                    ON DUPLICATE KEY UPDATE
+                        first_seen = LEAST(first_seen, VALUES(first_seen)),
+                        last_seen = GREATEST(last_seen, VALUES(last_seen))
+                """,
+                (rs, insert) -> {
+                    byte[] playerUuid = parseUuid(rs.getString("player_uuid"));
+                    byte[] ipAddress = BinaryCodec.ipToBytes(rs.getString("ip_address"));
+                    if (playerUuid == null || ipAddress == null) {
+                        return false;
+                    }
+                    insert.setInt(1, rs.getInt("id"));
+                    insert.setBytes(2, playerUuid);
+                    insert.setBytes(3, ipAddress);
+                    insert.setTimestamp(4, rs.getTimestamp("first_seen"));
+                    insert.setTimestamp(5, rs.getTimestamp("last_seen"));
+                    return true;
+                })
+        );
+    }
+
+    /**
+     * Copy one table into its shadow table, resuming after the last committed chunk
+     */
+    private void copyTable(Connection conn, TableCopy copy) throws SQLException {
+        String lastKey = null;
+        try (PreparedStatement progress = conn.prepareStatement(
+                "SELECT last_key, completed FROM schema_migration_progress WHERE table_name = ?")) {
+            progress.setString(1, copy.table());
+            try (ResultSet rs = progress.executeQuery()) {
+                if (rs.next()) {
+                    if (rs.getBoolean("completed")) {
+                        return;
+                    }
+                    lastKey = rs.getString("last_key");
+                }
+            }
+        }
+
+        if (!tableExists(conn, copy.table())) {
+            saveProgress(conn, copy.table(), null, true);
+            return;
+        }
+
+        logger.info("[DunceChat] Copying " + copy.table() + (lastKey != null ? " (resuming after " + lastKey + ")" : "") + "...");
+
+        String firstChunkSQL = "SELECT " + copy.columns() + " FROM " + copy.table()
+            + " ORDER BY " + copy.keyColumn() + " LIMIT " + MIGRATION_CHUNK_SIZE;
+        String nextChunkSQL = "SELECT " + copy.columns() + " FROM " + copy.table()
+            + " WHERE " + copy.keyColumn() + " > ? ORDER BY " + copy.keyColumn() + " LIMIT " + MIGRATION_CHUNK_SIZE;
+
+        long copied = 0;
+        long skipped = 0;
+        boolean completed = false;
+
+        while (!completed) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(lastKey == null ? firstChunkSQL : nextChunkSQL);
+                 PreparedStatement insert = conn.prepareStatement(copy.insertSQL())) {
+
+                if (lastKey != null) {
+                    if (copy.numericKey()) {
+                        select.setLong(1, Long.parseLong(lastKey));
+                    } else {
+                        select.setString(1, lastKey);
+                    }
+                }
+
+                int read = 0;
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        read++;
+                        lastKey = rs.getString(copy.keyColumn());
+                        if (copy.converter().convert(rs, insert)) {
+                            insert.addBatch();
+                            copied++;
+                        } else {
+                            skipped++;
+                        }
+                    }
+                }
+                insert.executeBatch();
+
+                completed = read < MIGRATION_CHUNK_SIZE;
+                saveProgress(conn, copy.table(), lastKey, completed);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        if (copy.numericKey() && databaseManager.getDatabaseType() == DatabaseManager.DatabaseType.H2) {
+            // H2 does not move the identity past explicitly inserted ids (MySQL does)
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + copy.table() + "_v5")) {
+                rs.next();
+                long next = rs.getLong(1);
+                stmt.execute("ALTER TABLE " + copy.table() + "_v5 ALTER COLUMN id RESTART WITH " + next);
+            }
+        }
+
+        logger.info("[DunceChat] Copied " + copied + " rows of " + copy.table()
+            + (skipped > 0 ? " (skipped " + skipped + " rows with an invalid UUID or IP address)" : ""));
+    }
+
+    /**
+     * Record how far a table has been copied (on the caller's connection, in the chunk's transaction)
+     */
+    private void saveProgress(Connection conn, String table, String lastKey, boolean completed) throws SQLException {
+        String sql = """
+            INSERT INTO schema_migration_progress (table_name, last_key, completed)
+            VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE last_key = VALUES(last_key), completed = VALUES(completed)
+        """;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            stmt.setString(2, lastKey);
+            stmt.setBoolean(3, completed);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Check if an earlier run of the version 5 upgrade recorded any progress
+     */
+    private boolean hasProgress(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM schema_migration_progress")) {
+            return rs.next() && rs.getInt(1) > 0;
+        }
+    }
+
+    /**
+     * Encode a stored UUID string, or null if it is not a UUID
+     */
+    private static byte[] parseUuid(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return BinaryCodec.uuidToBytes(UUID.fromString(value.trim()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Fills the insert parameters from one source row; returns false to skip the row
+     */
+    @FunctionalInterface
+    private interface RowConverter {
+        boolean convert(ResultSet rs, PreparedStatement insert) throws SQLException;
+    }
+
+    /**
+     * One table of the version 5 upgrade, copied in order of a unique key column
+     */
+    private record TableCopy(String table, String keyColumn, boolean numericKey, String columns,
+                             String insertSQL, RowConverter converter) {
+    }
+
+    /**
+     * Upgrade schema to version 6: Indexes matched to the hot queries
+     * Adds composite indexes that cover the lookup and its ORDER BY (current IP, active record,
+     * expiry sweep, history, pending messages, player by name) and drops the single-column
+     * indexes they replace. Idempotent - installs created at version 6 already have them
+     * @return true if upgrade succeeded, false otherwise
+     */
+    private boolean upgradeToVersion6() {
+        logger.info("[DunceChat] Applying schema upgrade to version 6 (query indexes)...");
+
+        try (Connection conn = databaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            // New indexes first, so the foreign keys always keep an index on player_uuid
+            createIndexIfMissing(conn, stmt, "players", "idx_players_username_last_join", "username, last_join");
+            createIndexIfMissing(conn, stmt, "dunce_records", "idx_dunce_records_player_dunced_at", "player_uuid, dunced_at");
+            createIndexIfMissing(conn, stmt, "dunce_records", "idx_dunce_records_active_id", "player_uuid, is_dunced, id");
+            createIndexIfMissing(conn, stmt, "dunce_records", "idx_dunce_records_dunced_expiry", "is_dunced, expires_at");
+            createIndexIfMissing(conn, stmt, "pending_messages", "idx_pending_messages_player_created", "player_uuid, created_at");
+            createIndexIfMissing(conn, stmt, "player_ip_log", "idx_player_ip_log_player_last_seen",
+                "player_uuid, last_seen DESC, ip_address, first_seen");
+            createIndexIfMissing(conn, stmt, "player_ip_log", "idx_player_ip_log_ip_player", "ip_address, player_uuid");
+
+            // Prefixes of the indexes above
+            dropIndexIfExists(conn, stmt, "players", "idx_players_username");
+            dropIndexIfExists(conn, stmt, "dunce_records", "idx_dunce_records_player");
+            dropIndexIfExists(conn, stmt, "dunce_records", "idx_dunce_records_active");
+            dropIndexIfExists(conn, stmt, "dunce_records", "idx_dunce_records_expiry");
+            dropIndexIfExists(conn, stmt, "pending_messages", "idx_pending_messages_player");
+            dropIndexIfExists(conn, stmt, "player_ip_log", "idx_player_ip_log_player");
+            dropIndexIfExists(conn, stmt, "player_ip_log", "idx_player_ip_log_ip");
+
+            return true;
+
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to upgrade schema to version 6!");
+            logger.severe("[DunceChat] Error: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void createIndexIfMissing(Connection conn, Statement stmt, String table, String index, String columns)
+            throws SQLException {
+        if (!indexExists(conn, table, index)) {
+            stmt.execute("CREATE INDEX " + index + " ON " + table + " (" + columns + ")");
+            logger.info("[DunceChat] Created index " + index + " on " + table + " (" + columns + ").");
+        }
+    }
+
+    private void dropIndexIfExists(Connection conn, Statement stmt, String table, String index) throws SQLException {
+        if (indexExists(conn, table, index)) {
+            try {
+                stmt.execute("DROP INDEX " + index + " ON " + table);
+            } catch (SQLException e) {
+                // H2 adopts an existing index for a foreign key and refuses to drop it afterwards;
+                // the composite index makes it redundant but harmless, so keep it
+                if (databaseManager.getDatabaseType() == DatabaseManager.DatabaseType.H2
+                        && e.getErrorCode() == H2_INDEX_BELONGS_TO_CONSTRAINT) {
+                    logger.info("[DunceChat] Kept index " + index + " on " + table + " (it backs a foreign key).");
+                    return;
+                }
+                throw e;
+            }
+            logger.info("[DunceChat] Dropped index " + index + " on " + table + ".");
+        }
+    }
+
+    /**
+     * Parse IP link markers out of existing dunce reasons into the linked_from columns
+     * Names are resolved to UUIDs through the players table
+     * @return Number of records updated
+     */
+    private int backfillIPLinks(Connection conn) throws SQLException {
+        String selectSQL = """
+            SELECT id, reason FROM dunce_records
+            WHERE linked_from_uuid IS NULL AND linked_from_ip IS NULL
+            AND (reason LIKE '%(IP Link: %' OR reason LIKE '%(IP: %')
+        """;
+        String findPlayerSQL = "SELECT uuid FROM players WHERE username = ? ORDER BY last_join DESC LIMIT 1";
+        String updateSQL = "UPDATE dunce_records SET linked_from_uuid = ?, linked_from_ip = ? WHERE id = ?";
+
+        Map<String, String> uuidsByName = new HashMap<>();
+        int updated = 0;
+
+        try (Statement select = conn.createStatement();
+             ResultSet rs = select.executeQuery(selectSQL);
+             PreparedStatement findPlayer = conn.prepareStatement(findPlayerSQL);
+             PreparedStatement update = conn.prepareStatement(updateSQL)) {
+
+            while (rs.next()) {
+                String reason = rs.getString("reason");
+                String linkedName = extractMarker(reason, "(IP Link: ");
+                String linkedIp = extractMarker(reason, "(IP: ");
+
+                String linkedUuid = null;
+                if (linkedName != null) {
+                    linkedUuid = uuidsByName.computeIfAbsent(linkedName, name -> {
+                        try {
+                            findPlayer.setString(1, name);
+                            try (ResultSet playerRs = findPlayer.executeQuery()) {
+                                return playerRs.next() ? playerRs.getString("uuid") : null;
+                            }
+                        } catch (SQLException e) {
+                            return null;
+                        }
+                    });
+                }
+
+                if (linkedUuid == null && linkedIp == null) {
+                    continue;
+                }
+
+                update.setString(1, linkedUuid);
+                update.setString(2, linkedIp);
+                update.setInt(3, rs.getInt("id"));
+                update.addBatch();
+                updated++;
+            }
+
+            update.executeBatch();
+        }
+
+        return updated;
+    }
+
+    /**
+     * Extract the value of a "(Marker: value)" tag from a reason, or null if absent
+     */
+    private String extractMarker(String reason, String marker) {
+        if (reason == null) {
+            return null;
+        }
+        int start = reason.indexOf(marker);
+        if (start == -1) {
+            return null;
+        }
+        start += marker.length();
+        int end = reason.indexOf(')', start);
+        return end == -1 ? null : reason.substring(start, end);
+    }
+
     /**
      * Check if old schema tables exist that need migration
      * H2 databases never need migration as they are only used for fresh installs
@@ -259,6 +812,7 @@ public class SchemaManager {
     /**
      * Migrate from old schema to new schema
      * Only supported for MySQL databases - H2 is always a fresh install
+     * UUID strings are converted to the binary columns with UNHEX(REPLACE(uuid, '-', ''))
      */
     public boolean migrateFromOldSchema() {
         // H2 databases don't support migration (they're always fresh installs)
@@ -283,7 +837,7 @@ public class SchemaManager {
                         sql = """
                             MERGE INTO players (uuid, username, first_join, last_join, last_quit)
                             KEY(uuid)
-                            SELECT uuid, display_name, 
+                            SELECT UNHEX(REPLACE(uuid, '-', '')), display_name, 
                                    COALESCE(last_login, CURRENT_TIMESTAMP),
                                    COALESCE(last_login, CURRENT_TIMESTAMP),
                                    last_logout
@@ -293,7 +847,7 @@ public class SchemaManager {
                         // MySQL: Use INSERT ON DUPLICATE KEY UPDATE
                         sql = """
                             INSERT INTO players (uuid, username, first_join, last_join, last_quit)
-                            SELECT uuid, display_name, 
+                            SELECT UNHEX(REPLACE(uuid, '-', '')), display_name, 
                                    COALESCE(last_login, CURRENT_TIMESTAMP),
                                    COALESCE(last_login, CURRENT_TIMESTAMP),
                                    last_logout
@@ -317,7 +871,7 @@ public class SchemaManager {
                 try {
                     stmt.execute("""
                         INSERT INTO dunce_records (player_uuid, is_dunced, reason, staff_uuid, dunced_at, expires_at)
-                        SELECT uuid, dunced, reason, staff_uuid, 
+                        SELECT UNHEX(REPLACE(uuid, '-', '')), dunced, reason, UNHEX(REPLACE(staff_uuid, '-', '')),
                                COALESCE(date, CURRENT_TIMESTAMP),
                                expiry
                         FROM dunced_players
@@ -339,13 +893,13 @@ public class SchemaManager {
                         sql = """
                             MERGE INTO player_preferences (player_uuid, dunce_chat_visible)
                             KEY(player_uuid)
-                            SELECT uuid, visible FROM dunce_visible
+                            SELECT UNHEX(REPLACE(uuid, '-', '')), visible FROM dunce_visible
                         """;
                     } else {
                         // MySQL: Use INSERT ON DUPLICATE KEY UPDATE
                         sql = """
                             INSERT INTO player_preferences (player_uuid, dunce_chat_visible)
-                            SELECT uuid, visible FROM dunce_visible
+                            SELECT UNHEX(REPLACE(uuid, '-', '')), visible FROM dunce_visible
                             ON DUPLICATE KEY UPDATE dunce_chat_visible = VALUES(dunce_chat_visible)
                         """;
                     }
@@ -365,13 +919,13 @@ public class SchemaManager {
                         sql = """
                             MERGE INTO player_preferences (player_uuid, in_dunce_chat)
                             KEY(player_uuid)
-                            SELECT uuid, in_chat FROM dunce_chat
+                            SELECT UNHEX(REPLACE(uuid, '-', '')), in_chat FROM dunce_chat
                         """;
                     } else {
                         // MySQL: Use INSERT ON DUPLICATE KEY UPDATE
                         sql = """
                             INSERT INTO player_preferences (player_uuid, in_dunce_chat)
-                            SELECT uuid, in_chat FROM dunce_chat
+                            SELECT UNHEX(REPLACE(uuid, '-', '')), in_chat FROM dunce_chat
                             ON DUPLICATE KEY UPDATE in_dunce_chat = VALUES(in_dunce_chat)
                         """;
                     }
@@ -480,6 +1034,26 @@ public class SchemaManager {
         return false;
     }
 
+    /**
+     * Check if an index exists on a table
+     */
+    private boolean indexExists(Connection conn, String tableName, String indexName) throws SQLException {
+        var meta = conn.getMetaData();
+        String catalog = conn.getCatalog();
+
+        for (String table : new String[]{tableName, tableName.toUpperCase(), tableName.toLowerCase()}) {
+            try (var rs = meta.getIndexInfo(catalog, null, table, false, false)) {
+                while (rs.next()) {
+                    if (indexName.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
     /**
      * Check if a column exists in a table
      */
@@ -0,0 +1,16 @@
+package gg.corn.DunceChat.database;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Binds the parameters of a prepared statement
+ */
+@FunctionalInterface
+public interface StatementBinder {
+
+    StatementBinder NONE = stmt -> {
+    };
+
+    void bind(PreparedStatement stmt) throws SQLException;
+}
@@ -0,0 +1,70 @@
+package gg.corn.DunceChat.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * One database transaction on one pooled connection, see {@link DatabaseManager#inTransaction}
+ * Repository writes take {@link #connection()}; in-memory state (caches, schedulers, messages to
+ * players) is changed through {@link #afterCommit} so it never runs for a rolled back transaction
+ */
+public class UnitOfWork {
+
+    private static final Logger logger = Logger.getLogger("DunceChat");
+
+    private final Connection connection;
+    private final List<Runnable> afterCommit = new ArrayList<>();
+
+    UnitOfWork(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * The transaction's connection (do not close it, commit or change its auto-commit mode)
+     */
+    public Connection connection() {
+        return connection;
+    }
+
+    /**
+     * Run an effect once the transaction has committed, in registration order
+     * Dropped if it rolls back
+     */
+    public void afterCommit(Runnable effect) {
+        afterCommit.add(effect);
+    }
+
+    /**
+     * Run the post-commit effects; a failing effect is logged and does not stop the others
+     */
+    void runAfterCommit() {
+        for (Runnable effect : afterCommit) {
+            try {
+                effect.run();
+            } catch (RuntimeException e) {
+                logger.severe("[DunceChat] Post-commit action failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+        afterCommit.clear();
+    }
+
+    /**
+     * Work that produces a result
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T run(UnitOfWork unit) throws SQLException;
+    }
+
+    /**
+     * Work without a result
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run(UnitOfWork unit) throws SQLException;
+    }
+}
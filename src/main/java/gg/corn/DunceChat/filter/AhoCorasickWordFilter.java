@@ -0,0 +1,145 @@
+package gg.corn.DunceChat.filter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.TreeMap;
+
+/**
+ * Word filter backed by an Aho-Corasick automaton
+ * Scans each message once in linear time regardless of how many terms are configured,
+ * case-folding character by character without building a lowercase copy of the message
+ */
+public class AhoCorasickWordFilter implements WordFilter {
+
+    private static final int ROOT = 0;
+    private static final int NO_MATCH = -1;
+
+    private final List<String> terms;
+
+    // Goto function: per-node sorted edge labels and their target nodes
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+
+    // Failure link for each node
+    private final int[] fail;
+
+    // Index into terms of a term ending at this node (or reachable through failure links)
+    private final int[] output;
+
+    public AhoCorasickWordFilter(List<String> terms) {
+        this.terms = List.copyOf(terms);
+
+        // Build the trie with sorted maps, then freeze it into compact arrays
+        List<TreeMap<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> termAtNode = new ArrayList<>();
+        trie.add(new TreeMap<>());
+        termAtNode.add(NO_MATCH);
+
+        for (int t = 0; t < this.terms.size(); t++) {
+            String term = this.terms.get(t);
+            int node = ROOT;
+            for (int i = 0; i < term.length(); i++) {
+                char c = fold(term.charAt(i));
+                Integer next = trie.get(node).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new TreeMap<>());
+                    termAtNode.add(NO_MATCH);
+                    trie.get(node).put(c, next);
+                }
+                node = next;
+            }
+            if (termAtNode.get(node) == NO_MATCH) {
+                termAtNode.set(node, t);
+            }
+        }
+
+        int size = trie.size();
+        this.edgeChars = new char[size][];
+        this.edgeTargets = new int[size][];
+        this.fail = new int[size];
+        this.output = new int[size];
+
+        for (int n = 0; n < size; n++) {
+            TreeMap<Character, Integer> edges = trie.get(n);
+            char[] chars = new char[edges.size()];
+            int[] targets = new int[edges.size()];
+            int i = 0;
+            for (var edge : edges.entrySet()) {
+                chars[i] = edge.getKey();
+                targets[i] = edge.getValue();
+                i++;
+            }
+            edgeChars[n] = chars;
+            edgeTargets[n] = targets;
+            output[n] = termAtNode.get(n);
+        }
+
+        // Breadth-first pass to compute failure links and propagate outputs
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int target : edgeTargets[ROOT]) {
+            fail[target] = ROOT;
+            queue.add(target);
+        }
+
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            char[] chars = edgeChars[node];
+            int[] targets = edgeTargets[node];
+
+            for (int i = 0; i < chars.length; i++) {
+                int child = targets[i];
+                int f = fail[node];
+                int next;
+                while ((next = step(f, chars[i])) == NO_MATCH && f != ROOT) {
+                    f = fail[f];
+                }
+                fail[child] = next == NO_MATCH ? ROOT : next;
+
+                // A shorter term ending here is still a match for this node
+                if (output[child] == NO_MATCH) {
+                    output[child] = output[fail[child]];
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    @Override
+    public Optional<String> findMatch(CharSequence message) {
+        int node = ROOT;
+        for (int i = 0, len = message.length(); i < len; i++) {
+            char c = fold(message.charAt(i));
+
+            int next;
+            while ((next = step(node, c)) == NO_MATCH && node != ROOT) {
+                node = fail[node];
+            }
+            node = next == NO_MATCH ? ROOT : next;
+
+            if (output[node] != NO_MATCH) {
+                return Optional.of(terms.get(output[node]));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Follow the goto edge for a character, or NO_MATCH if there is none
+     */
+    private int step(int node, char c) {
+        int index = Arrays.binarySearch(edgeChars[node], c);
+        return index >= 0 ? edgeTargets[node][index] : NO_MATCH;
+    }
+
+    /**
+     * Case-fold a single character
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
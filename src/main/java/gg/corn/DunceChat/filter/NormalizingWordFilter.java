@@ -0,0 +1,47 @@
+package gg.corn.DunceChat.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Word filter that matches on normalized skeletons instead of raw text
+ * Both the configured terms and each message are folded by {@link TextNormalizer},
+ * so bypass variants are caught by the plain dictionary entry. Repeat collapsing only
+ * applies to messages - a term's own letters are never merged ("ass" must not become "as")
+ */
+public class NormalizingWordFilter implements WordFilter {
+
+    private final WordFilter delegate;
+    private final boolean collapseRepeats;
+
+    // Skeleton of each term back to the term as it was configured
+    private final Map<String, String> originalTerms;
+
+    public NormalizingWordFilter(String engine, List<String> terms, boolean collapseRepeats) {
+        this.collapseRepeats = collapseRepeats;
+        this.originalTerms = new HashMap<>();
+
+        List<String> skeletons = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            String skeleton = TextNormalizer.normalize(term, false).toString();
+            if (!skeleton.isBlank() && originalTerms.putIfAbsent(skeleton, term) == null) {
+                skeletons.add(skeleton);
+            }
+        }
+
+        this.delegate = WordFilter.compile(engine, skeletons, false, false);
+    }
+
+    @Override
+    public Optional<String> findMatch(CharSequence message) {
+        if (delegate == null) {
+            return Optional.empty();
+        }
+
+        return delegate.findMatch(TextNormalizer.normalize(message, collapseRepeats))
+            .map(skeleton -> originalTerms.getOrDefault(skeleton, skeleton));
+    }
+}
@@ -0,0 +1,37 @@
+package gg.corn.DunceChat.filter;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Word filter backed by a single case-insensitive alternation regex
+ * Kept as a fallback engine; slows down noticeably with very large word lists
+ */
+public class RegexWordFilter implements WordFilter {
+
+    private final Pattern pattern;
+
+    public RegexWordFilter(List<String> terms) {
+        StringBuilder regex = new StringBuilder("(?i)(");
+        boolean first = true;
+        for (String term : terms) {
+            if (!first) regex.append("|");
+            regex.append(Pattern.quote(term));
+            first = false;
+        }
+        regex.append(")");
+
+        this.pattern = Pattern.compile(regex.toString());
+    }
+
+    @Override
+    public Optional<String> findMatch(CharSequence message) {
+        Matcher matcher = pattern.matcher(message);
+        if (matcher.find()) {
+            return Optional.of(matcher.group(1));
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,148 @@
+package gg.corn.DunceChat.filter;
+
+import java.text.Normalizer;
+
+/**
+ * Folds chat text into a canonical skeleton before word matching
+ * Each character goes through a precomputed lookup table that strips accents and
+ * full-width forms, lowercases, and maps Cyrillic/Greek look-alikes onto Latin letters.
+ * Leetspeak digits/symbols are only mapped inside a word that also has a letter ("n1gg3r"),
+ * so plain numbers and punctuation ("455", "5+1", "!") are left alone. Zero-width and
+ * combining characters are dropped and runs of the same skeleton character can be capped
+ * at two, so "N1gggg3r" and "nigger" fold the same
+ */
+public final class TextNormalizer {
+
+    // Table marker for characters that are removed from the skeleton
+    private static final char STRIP = '\uFFFF';
+
+    // Longest run of one character kept when collapsing; two keeps real double letters ("ass", "grass")
+    private static final int MAX_RUN = 2;
+
+    // Cyrillic and Greek substitutions (aligned by index), applied after case and accent
+    // folding; only letters that look alike in both cases are mapped
+    private static final String SUBSTITUTE_FROM =
+        "авеёкмнорстухѕіїјьԁ" +
+        "αβεζικορτχ";
+    private static final String SUBSTITUTE_TO =
+        "abeekmhopctyxsiijbd" +
+        "abezikoptx";
+
+    // Leetspeak substitutions (aligned by index), applied to folded characters within a word
+    private static final String LEET_FROM = "01345789@$!|+";
+    private static final String LEET_TO = "oieastbgasiit";
+
+    private static final char[] TABLE = buildTable();
+
+    // Folded character -> letter it stands for in leetspeak, or 0
+    private static final char[] LEET = buildLeetTable();
+
+    private TextNormalizer() {
+    }
+
+    private static char[] buildTable() {
+        char[] table = new char[Character.MAX_VALUE + 1];
+
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            char ch = (char) c;
+            if (Character.isSurrogate(ch)) {
+                table[c] = ch;
+                continue;
+            }
+
+            int type = Character.getType(ch);
+            if (type == Character.FORMAT || type == Character.NON_SPACING_MARK
+                    || type == Character.ENCLOSING_MARK || type == Character.COMBINING_SPACING_MARK) {
+                // Zero-width spaces/joiners, soft hyphens, BOMs and combining accents
+                table[c] = STRIP;
+                continue;
+            }
+
+            // Compatibility decomposition handles accents, full-width and styled letters
+            String decomposed = Normalizer.normalize(String.valueOf(ch), Normalizer.Form.NFKD);
+            char base = decomposed.isEmpty() ? ch : decomposed.charAt(0);
+            table[c] = Character.toLowerCase(Character.toUpperCase(base));
+        }
+
+        for (int c = 0; c <= Character.MAX_VALUE; c++) {
+            char mapped = table[c];
+            if (mapped == STRIP) {
+                continue;
+            }
+            int index = SUBSTITUTE_FROM.indexOf(mapped);
+            if (index != -1) {
+                table[c] = SUBSTITUTE_TO.charAt(index);
+            }
+        }
+
+        table[STRIP] = STRIP;
+        return table;
+    }
+
+    private static char[] buildLeetTable() {
+        char[] leet = new char[Character.MAX_VALUE + 1];
+        for (int i = 0; i < LEET_FROM.length(); i++) {
+            leet[LEET_FROM.charAt(i)] = LEET_TO.charAt(i);
+        }
+        return leet;
+    }
+
+    /**
+     * Whether a folded character belongs to a word (letters, digits and leetspeak symbols)
+     */
+    private static boolean isWordChar(char folded) {
+        return Character.isLetterOrDigit(folded) || LEET[folded] != 0;
+    }
+
+    /**
+     * Fold text into its skeleton
+     * @param collapseRepeats Whether runs of the same skeleton character are capped at two
+     * @return A builder holding the skeleton, sized once for the input
+     */
+    public static StringBuilder normalize(CharSequence text, boolean collapseRepeats) {
+        int length = text.length();
+        StringBuilder skeleton = new StringBuilder(length);
+        char previous = STRIP;
+        int run = 0;
+        // End of the current word, and whether it has a letter (its leetspeak is mapped then)
+        int wordEnd = -1;
+        boolean wordHasLetter = false;
+
+        for (int i = 0; i < length; i++) {
+            char mapped = TABLE[text.charAt(i)];
+            if (mapped == STRIP) {
+                continue;
+            }
+
+            if (isWordChar(mapped)) {
+                if (i >= wordEnd) {
+                    // First character of a word - scan ahead to its end (stripped characters do not split it)
+                    wordHasLetter = false;
+                    wordEnd = i;
+                    while (wordEnd < length) {
+                        char next = TABLE[text.charAt(wordEnd)];
+                        if (next != STRIP) {
+                            if (!isWordChar(next)) {
+                                break;
+                            }
+                            wordHasLetter |= Character.isLetter(next);
+                        }
+                        wordEnd++;
+                    }
+                }
+                if (wordHasLetter && LEET[mapped] != 0) {
+                    mapped = LEET[mapped];
+                }
+            }
+
+            run = mapped == previous ? run + 1 : 1;
+            if (collapseRepeats && run > MAX_RUN) {
+                continue;
+            }
+            skeleton.append(mapped);
+            previous = mapped;
+        }
+
+        return skeleton;
+    }
+}
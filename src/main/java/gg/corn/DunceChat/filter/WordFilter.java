@@ -0,0 +1,57 @@
+package gg.corn.DunceChat.filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Matches chat messages against the disallowed word list
+ * Implementations are immutable once compiled and safe to share between chat threads
+ */
+public interface WordFilter {
+
+    /**
+     * Find the first disallowed term contained in a message (case-insensitive)
+     * @return The configured term that matched, or empty if the message is clean
+     */
+    Optional<String> findMatch(CharSequence message);
+
+    /**
+     * Compile a word filter using the named engine, without normalization
+     * Returns null if no words are configured (skip filtering entirely)
+     * @param engine "aho-corasick" (default) or "regex"
+     */
+    static WordFilter compile(String engine, List<String> words) {
+        return compile(engine, words, false, false);
+    }
+
+    /**
+     * Compile a word filter using the named engine
+     * Returns null if no words are configured (skip filtering entirely)
+     * @param engine "aho-corasick" (default) or "regex"
+     * @param normalize Fold leetspeak, homoglyphs and zero-width characters before matching
+     * @param collapseRepeats Collapse repeated characters when normalizing
+     */
+    static WordFilter compile(String engine, List<String> words, boolean normalize, boolean collapseRepeats) {
+        List<String> terms = new ArrayList<>();
+        if (words != null) {
+            for (String word : words) {
+                if (word != null && !word.isBlank()) {
+                    terms.add(word.trim());
+                }
+            }
+        }
+
+        if (terms.isEmpty()) {
+            return null;
+        }
+
+        if (normalize) {
+            return new NormalizingWordFilter(engine, terms, collapseRepeats);
+        }
+        if ("regex".equalsIgnoreCase(engine)) {
+            return new RegexWordFilter(terms);
+        }
+        return new AhoCorasickWordFilter(terms);
+    }
+}
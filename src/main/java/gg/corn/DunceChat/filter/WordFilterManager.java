@@ -0,0 +1,202 @@
+package gg.corn.DunceChat.filter;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Owns the active word filter and rebuilds it off the main thread
+ * A new filter is compiled on a background thread from words.yml and then published
+ * with a single volatile write, so chat threads never wait for or see a half-built filter
+ */
+public class WordFilterManager {
+
+    private static final Logger logger = Logger.getLogger("DunceChat");
+
+    // Delay before reloading after a change to words.yml (editors often write several times)
+    private static final long WATCH_DEBOUNCE_MS = 500;
+
+    private final File wordsFile;
+    private final ScheduledExecutorService compileExecutor;
+
+    private volatile WordFilter filter;
+    private volatile FilterSettings settings;
+
+    private WatchService watchService;
+    private Thread watchThread;
+    private ScheduledFuture<?> pendingWatchReload;
+
+    public WordFilterManager(File wordsFile, FileConfiguration config) {
+        this.wordsFile = wordsFile;
+        this.settings = FilterSettings.from(config);
+        this.compileExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DunceChat-WordFilter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Get the active word filter
+     * @return The filter, or null if no words are configured or the first compile has not finished
+     */
+    public WordFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Re-read words.yml and compile a new filter in the background
+     * The previous filter stays active until the new one is ready
+     * @param config Plugin configuration holding the word-filter settings
+     * @return Future completing with the number of words in the new filter
+     */
+    public CompletableFuture<Integer> reloadAsync(FileConfiguration config) {
+        // Read settings on the calling thread so they match the config that was just reloaded
+        settings = FilterSettings.from(config);
+        return reloadAsync();
+    }
+
+    private CompletableFuture<Integer> reloadAsync() {
+        FilterSettings current = settings;
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            YamlConfiguration yaml = new YamlConfiguration();
+            try {
+                // Not loadConfiguration - it swallows parse errors and returns an empty config
+                yaml.load(wordsFile);
+            } catch (IOException | InvalidConfigurationException e) {
+                throw new CompletionException(e);
+            }
+
+            // A missing list is a broken or half-written file (an intentionally empty list is "[]")
+            if (!yaml.contains("disallowed-words") && filter != null) {
+                throw new CompletionException(new InvalidConfigurationException(
+                    "no disallowed-words list in " + wordsFile.getName()));
+            }
+
+            List<String> words = yaml.getStringList("disallowed-words");
+            WordFilter compiled = WordFilter.compile(current.engine, words, current.normalize, current.collapseRepeats);
+
+            // Atomic publish - readers see either the old filter or the complete new one
+            filter = compiled;
+
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            logger.info("[DunceChat] Word filter compiled with " + words.size() + " words in " + elapsedMs
+                + "ms (engine: " + current.engine + ", normalize: " + current.normalize + ")");
+            return words.size();
+        }, compileExecutor).whenComplete((count, error) -> {
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                logger.warning("[DunceChat] Failed to load word filter from " + wordsFile.getName()
+                    + ", keeping the previous one: " + cause.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Watch words.yml and reload automatically when it changes
+     */
+    public void startWatching() {
+        if (watchThread != null) {
+            return;
+        }
+
+        Path directory = wordsFile.getAbsoluteFile().getParentFile().toPath();
+        Path fileName = wordsFile.toPath().getFileName();
+
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            logger.warning("[DunceChat] Could not watch " + wordsFile.getName() + " for changes: " + e.getMessage());
+            return;
+        }
+
+        watchThread = new Thread(() -> watchLoop(fileName), "DunceChat-WordFilter-Watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        logger.info("[DunceChat] Watching " + wordsFile.getName() + " for changes.");
+    }
+
+    private void watchLoop(Path fileName) {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (fileName.equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    scheduleWatchReload();
+                }
+                if (!key.reset()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Shutting down
+        }
+    }
+
+    /**
+     * Debounce reloads triggered by the file watcher
+     */
+    private synchronized void scheduleWatchReload() {
+        if (pendingWatchReload != null) {
+            pendingWatchReload.cancel(false);
+        }
+        pendingWatchReload = compileExecutor.schedule(() -> {
+            logger.info("[DunceChat] " + wordsFile.getName() + " changed, reloading word filter...");
+            reloadAsync();
+        }, WATCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the file watcher and the compile thread
+     */
+    public void shutdown() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        compileExecutor.shutdownNow();
+    }
+
+    /**
+     * Snapshot of the word-filter settings from config.yml
+     */
+    private record FilterSettings(String engine, boolean normalize, boolean collapseRepeats) {
+        static FilterSettings from(FileConfiguration config) {
+            return new FilterSettings(
+                config.getString("word-filter.engine", "aho-corasick"),
+                config.getBoolean("word-filter.normalize", true),
+                config.getBoolean("word-filter.collapse-repeats", false));
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package gg.corn.DunceChat.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Disjoint-set (union-find) index of alt clusters
+ * Players and non-whitelisted IPs are nodes; each logged association unions the player with
+ * the IP, so two players end up in the same cluster when they are connected through shared
+ * IPs at any depth. Each root keeps a count of dunced players, making "is anyone in my
+ * cluster dunced" a near O(1) check. Union-find cannot delete, so unlinks require a rebuild
+ */
+public class AltClusterIndex {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Map<UUID, Integer> playerNodes = new HashMap<>();
+    private final Map<String, Integer> ipNodes = new HashMap<>();
+
+    private int[] parent = new int[INITIAL_CAPACITY];
+    private byte[] rank = new byte[INITIAL_CAPACITY];
+    // Per root: number of player nodes and dunced player nodes in the cluster
+    private int[] playerCount = new int[INITIAL_CAPACITY];
+    private int[] duncedCount = new int[INITIAL_CAPACITY];
+    private final BitSet duncedNodes = new BitSet();
+    private int nodeCount;
+
+    private volatile boolean ready;
+
+    /**
+     * Union a player with a (non-whitelisted) IP they joined from
+     */
+    public synchronized void union(UUID playerUuid, String ipAddress) {
+        int player = playerNode(playerUuid);
+        int ip = ipNode(ipAddress);
+        link(find(player), find(ip));
+    }
+
+    /**
+     * Record a change in a player's dunce state
+     */
+    public synchronized void setDunced(UUID playerUuid, boolean dunced) {
+        int player = playerNode(playerUuid);
+        if (duncedNodes.get(player) == dunced) {
+            return;
+        }
+        duncedNodes.set(player, dunced);
+        duncedCount[find(player)] += dunced ? 1 : -1;
+    }
+
+    /**
+     * Check if any other player in this player's cluster is dunced
+     */
+    public synchronized boolean hasDuncedAlt(UUID playerUuid) {
+        Integer player = playerNodes.get(playerUuid);
+        if (player == null) {
+            return false;
+        }
+        int others = duncedCount[find(player)] - (duncedNodes.get(player) ? 1 : 0);
+        return others > 0;
+    }
+
+    /**
+     * Number of players in this player's cluster (including the player)
+     */
+    public synchronized int getClusterSize(UUID playerUuid) {
+        Integer player = playerNodes.get(playerUuid);
+        return player == null ? 1 : playerCount[find(player)];
+    }
+
+    /**
+     * Check if two players are in the same cluster
+     */
+    public synchronized boolean isSameCluster(UUID first, UUID second) {
+        Integer a = playerNodes.get(first);
+        Integer b = playerNodes.get(second);
+        return a != null && b != null && find(a) == find(b);
+    }
+
+    /**
+     * Mark all dunced players after a build and make the index available
+     */
+    public synchronized void markReady(Supplier<Collection<UUID>> duncedPlayers) {
+        for (UUID playerUuid : duncedPlayers.get()) {
+            setDunced(playerUuid, true);
+        }
+        ready = true;
+    }
+
+    /**
+     * Whether the index has been fully built
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    public synchronized int getNodeCount() {
+        return nodeCount;
+    }
+
+    private int find(int node) {
+        // Path halving
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]];
+            node = parent[node];
+        }
+        return node;
+    }
+
+    private void link(int rootA, int rootB) {
+        if (rootA == rootB) {
+            return;
+        }
+        if (rank[rootA] < rank[rootB]) {
+            int swap = rootA;
+            rootA = rootB;
+            rootB = swap;
+        }
+        parent[rootB] = rootA;
+        playerCount[rootA] += playerCount[rootB];
+        duncedCount[rootA] += duncedCount[rootB];
+        if (rank[rootA] == rank[rootB]) {
+            rank[rootA]++;
+        }
+    }
+
+    private int playerNode(UUID playerUuid) {
+        Integer node = playerNodes.get(playerUuid);
+        if (node == null) {
+            node = newNode();
+            playerCount[node] = 1;
+            playerNodes.put(playerUuid, node);
+        }
+        return node;
+    }
+
+    private int ipNode(String ipAddress) {
+        Integer node = ipNodes.get(ipAddress);
+        if (node == null) {
+            node = newNode();
+            ipNodes.put(ipAddress, node);
+        }
+        return node;
+    }
+
+    private int newNode() {
+        int node = nodeCount++;
+        if (node == parent.length) {
+            int capacity = node * 2;
+            parent = Arrays.copyOf(parent, capacity);
+            rank = Arrays.copyOf(rank, capacity);
+            playerCount = Arrays.copyOf(playerCount, capacity);
+            duncedCount = Arrays.copyOf(duncedCount, capacity);
+        }
+        parent[node] = node;
+        return node;
+    }
+}
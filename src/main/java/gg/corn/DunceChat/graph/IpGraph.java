@@ -0,0 +1,369 @@
+package gg.corn.DunceChat.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+
+/**
+ * In-memory copy of the player_ip_log bipartite graph (players on one side, IPs on the other)
+ * Players and IPs are interned to int IDs and edges are stored as primitive int adjacency
+ * arrays, so alt traversals run without any database access
+ */
+public class IpGraph {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ID interning
+    private final Map<UUID, Integer> playerIds = new HashMap<>();
+    private final List<UUID> playerUuids = new ArrayList<>();
+    private final Map<String, Integer> ipIds = new HashMap<>();
+    private final List<String> ipAddresses = new ArrayList<>();
+
+    // Adjacency: player ID -> IP IDs, IP ID -> player IDs (only the first degree[i] entries are valid)
+    private int[][] playerAdjacency = new int[INITIAL_CAPACITY][];
+    private int[] playerDegree = new int[INITIAL_CAPACITY];
+    private int[][] ipAdjacency = new int[INITIAL_CAPACITY][];
+    private int[] ipDegree = new int[INITIAL_CAPACITY];
+
+    private int edgeCount;
+    private volatile boolean loaded;
+
+    /**
+     * Add a player-IP association (no-op if it already exists)
+     */
+    public void addEdge(UUID playerUuid, String ipAddress) {
+        lock.writeLock().lock();
+        try {
+            int player = internPlayer(playerUuid);
+            int ip = internIp(ipAddress);
+
+            int[] ips = playerAdjacency[player];
+            for (int i = 0; i < playerDegree[player]; i++) {
+                if (ips[i] == ip) {
+                    return;
+                }
+            }
+
+            playerAdjacency[player] = append(ips, playerDegree[player]++, ip);
+            ipAdjacency[ip] = append(ipAdjacency[ip], ipDegree[ip]++, player);
+            edgeCount++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all IP associations of a player (used when a player is unlinked)
+     */
+    public void removePlayer(UUID playerUuid) {
+        lock.writeLock().lock();
+        try {
+            Integer player = playerIds.get(playerUuid);
+            if (player == null) {
+                return;
+            }
+
+            int[] ips = playerAdjacency[player];
+            for (int i = 0; i < playerDegree[player]; i++) {
+                int ip = ips[i];
+                int[] players = ipAdjacency[ip];
+                int degree = ipDegree[ip];
+                for (int j = 0; j < degree; j++) {
+                    if (players[j] == player) {
+                        // Swap-remove, order does not matter
+                        players[j] = players[degree - 1];
+                        ipDegree[ip] = degree - 1;
+                        break;
+                    }
+                }
+                edgeCount--;
+            }
+            playerDegree[player] = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove everything (before a reload)
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            playerIds.clear();
+            playerUuids.clear();
+            ipIds.clear();
+            ipAddresses.clear();
+            playerAdjacency = new int[INITIAL_CAPACITY][];
+            playerDegree = new int[INITIAL_CAPACITY];
+            ipAdjacency = new int[INITIAL_CAPACITY][];
+            ipDegree = new int[INITIAL_CAPACITY];
+            edgeCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Mark the graph as fully loaded; until then callers should fall back to the database
+     */
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Find all players connected to a player through shared IPs, up to maxDepth player hops
+     * Same semantics as PlayerIPRepository.findAllConnectedPlayers
+     * @return Connected player -> the IPs through which they were reached (start player excluded)
+     */
+    public Map<UUID, Set<String>> findConnectedPlayers(UUID startPlayerUuid, int maxDepth) {
+        Map<UUID, Set<String>> connectedPlayers = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            Integer start = playerIds.get(startPlayerUuid);
+            if (start == null) {
+                return connectedPlayers;
+            }
+
+            BitSet processedPlayers = new BitSet(playerUuids.size());
+            BitSet processedIps = new BitSet(ipAddresses.size());
+            int[] current = {start};
+            int currentSize = 1;
+            int depth = 0;
+
+            while (currentSize > 0 && depth < maxDepth) {
+                int[] next = new int[INITIAL_CAPACITY];
+                int nextSize = 0;
+
+                for (int c = 0; c < currentSize; c++) {
+                    int player = current[c];
+                    if (processedPlayers.get(player)) {
+                        continue;
+                    }
+                    processedPlayers.set(player);
+
+                    int[] ips = playerAdjacency[player];
+                    for (int i = 0; i < playerDegree[player]; i++) {
+                        int ip = ips[i];
+                        if (processedIps.get(ip)) {
+                            continue;
+                        }
+                        processedIps.set(ip);
+
+                        String ipAddress = ipAddresses.get(ip);
+                        int[] players = ipAdjacency[ip];
+                        for (int j = 0; j < ipDegree[ip]; j++) {
+                            int linked = players[j];
+                            if (linked == start) {
+                                continue;
+                            }
+                            connectedPlayers.computeIfAbsent(playerUuids.get(linked), k -> new HashSet<>()).add(ipAddress);
+                            if (!processedPlayers.get(linked)) {
+                                next = append(next, nextSize++, linked);
+                            }
+                        }
+                    }
+                }
+
+                current = next;
+                currentSize = nextSize;
+                depth++;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return connectedPlayers;
+    }
+
+    /**
+     * Get all players that have used an IP address
+     */
+    public Set<UUID> getPlayersByIP(String ipAddress) {
+        lock.readLock().lock();
+        try {
+            Integer ip = ipIds.get(ipAddress);
+            if (ip == null) {
+                return new HashSet<>();
+            }
+            Set<UUID> players = new HashSet<>();
+            for (int j = 0; j < ipDegree[ip]; j++) {
+                players.add(playerUuids.get(ipAdjacency[ip][j]));
+            }
+            return players;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find players linked to an IP through its players' other IPs
+     * Returns each player that never used the IP but shares another IP with one of its players,
+     * mapped to the shared IPs
+     */
+    public Map<UUID, Set<String>> findHistoricalLinks(String ipAddress) {
+        Map<UUID, Set<String>> links = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            Integer start = ipIds.get(ipAddress);
+            if (start == null) {
+                return links;
+            }
+
+            BitSet directPlayers = new BitSet();
+            for (int j = 0; j < ipDegree[start]; j++) {
+                directPlayers.set(ipAdjacency[start][j]);
+            }
+
+            BitSet visitedIps = new BitSet();
+            visitedIps.set(start);
+            for (int direct = directPlayers.nextSetBit(0); direct >= 0; direct = directPlayers.nextSetBit(direct + 1)) {
+                for (int i = 0; i < playerDegree[direct]; i++) {
+                    int ip = playerAdjacency[direct][i];
+                    if (visitedIps.get(ip)) {
+                        continue;
+                    }
+                    visitedIps.set(ip);
+
+                    for (int j = 0; j < ipDegree[ip]; j++) {
+                        int linked = ipAdjacency[ip][j];
+                        if (!directPlayers.get(linked)) {
+                            links.computeIfAbsent(playerUuids.get(linked), k -> new HashSet<>())
+                                .add(ipAddresses.get(ip));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return links;
+    }
+
+    /**
+     * Get all IP addresses a player has used
+     */
+    public Set<String> getIPsByPlayer(UUID playerUuid) {
+        lock.readLock().lock();
+        try {
+            Integer player = playerIds.get(playerUuid);
+            if (player == null) {
+                return new HashSet<>();
+            }
+            Set<String> ips = new HashSet<>();
+            for (int i = 0; i < playerDegree[player]; i++) {
+                ips.add(ipAddresses.get(playerAdjacency[player][i]));
+            }
+            return ips;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visit every player/IP association (holds the read lock for the whole pass)
+     */
+    public void forEachEdge(BiConsumer<UUID, String> consumer) {
+        lock.readLock().lock();
+        try {
+            for (int player = 0; player < playerUuids.size(); player++) {
+                UUID playerUuid = playerUuids.get(player);
+                int[] ips = playerAdjacency[player];
+                for (int i = 0; i < playerDegree[player]; i++) {
+                    consumer.accept(playerUuid, ipAddresses.get(ips[i]));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getPlayerCount() {
+        lock.readLock().lock();
+        try {
+            return playerUuids.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getIpCount() {
+        lock.readLock().lock();
+        try {
+            return ipAddresses.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getEdgeCount() {
+        lock.readLock().lock();
+        try {
+            return edgeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int internPlayer(UUID playerUuid) {
+        Integer id = playerIds.get(playerUuid);
+        if (id != null) {
+            return id;
+        }
+        int newId = playerUuids.size();
+        playerIds.put(playerUuid, newId);
+        playerUuids.add(playerUuid);
+        if (newId == playerAdjacency.length) {
+            playerAdjacency = Arrays.copyOf(playerAdjacency, newId * 2);
+            playerDegree = Arrays.copyOf(playerDegree, newId * 2);
+        }
+        return newId;
+    }
+
+    private int internIp(String ipAddress) {
+        Integer id = ipIds.get(ipAddress);
+        if (id != null) {
+            return id;
+        }
+        int newId = ipAddresses.size();
+        ipIds.put(ipAddress, newId);
+        ipAddresses.add(ipAddress);
+        if (newId == ipAdjacency.length) {
+            ipAdjacency = Arrays.copyOf(ipAdjacency, newId * 2);
+            ipDegree = Arrays.copyOf(ipDegree, newId * 2);
+        }
+        return newId;
+    }
+
+    /**
+     * Append a value at index size, growing the array if needed
+     */
+    private static int[] append(int[] array, int size, int value) {
+        if (array == null) {
+            array = new int[2];
+        } else if (size == array.length) {
+            array = Arrays.copyOf(array, size * 2);
+        }
+        array[size] = value;
+        return array;
+    }
+}
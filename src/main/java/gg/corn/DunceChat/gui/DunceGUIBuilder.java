@@ -15,7 +15,8 @@ import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.persistence.PersistentDataType;
 import org.bukkit.plugin.Plugin;
 
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -31,7 +32,8 @@ public class DunceGUIBuilder {
     private final MessageManager messageManager;
     private final NamespacedKey dunceVisibility;
     private final NamespacedKey talkingInDunceChat;
-    private static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+    private static final DateTimeFormatter DATE_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm").withZone(ZoneId.systemDefault());
 
     public DunceGUIBuilder(DunceService dunceService, PlayerService playerService,
                           PreferencesService preferencesService, MessageManager messageManager, Plugin plugin) {
@@ -76,11 +78,11 @@ public class DunceGUIBuilder {
         List<Component> lore = new ArrayList<>();
 
         String duncedDate = record.getDuncedAt() != null ?
-            DATE_FORMATTER.format(record.getDuncedAt()) : "Unknown";
+            DATE_FORMATTER.format(record.getDuncedAt().toInstant()) : "Unknown";
         lore.add(messageManager.get("gui_dunced_on", duncedDate));
 
         String expiryDate = record.getExpiresAt() != null ?
-            DATE_FORMATTER.format(record.getExpiresAt()) : messageManager.getRaw("dunce_expires_never");
+            DATE_FORMATTER.format(record.getExpiresAt().toInstant()) : messageManager.getRaw("dunce_expires_never");
         lore.add(messageManager.get("gui_expires_on", expiryDate));
 
         // Show who dunced the player (CONSOLE if staffUuid is null)
@@ -1,5 +1,7 @@
 package gg.corn.DunceChat.listener;
 
+import gg.corn.DunceChat.filter.WordFilter;
+import gg.corn.DunceChat.filter.WordFilterManager;
 import gg.corn.DunceChat.service.DunceService;
 import gg.corn.DunceChat.service.PlayerService;
 import gg.corn.DunceChat.service.PreferencesService;
@@ -14,18 +16,14 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.AsyncPlayerChatEvent;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Handles chat events for dunced players and dunce chat observers
- * Optimized for performance with pre-compiled regex and minimal allocations
+ * Optimized for performance with a pre-compiled word filter and chat templates
  *
  * Note: Player join/quit events moved to PlayerConnectionListener
  * Note: Command blocking moved to DunceCommandBlockListener
@@ -38,48 +36,35 @@ public class ChatListener implements Listener {
     private final MessageManager messageManager;
     private static final Logger logger = Logger.getLogger("DunceChat");
 
-    // Pre-compiled regex pattern for word filtering (much faster than loop + contains)
-    private final Pattern disallowedWordsPattern;
+    // Slot order for the dunce chat templates: <player>, <message>
+    private static final String[] CHAT_SLOTS = {"player", "message"};
+
+    // Holds the active word filter, swapped atomically on reload
+    private final WordFilterManager wordFilterManager;
 
     public ChatListener(DunceService dunceService, PlayerService playerService,
                        PreferencesService preferencesService, MessageManager messageManager,
-                       List<String> disallowedWords) {
+                       WordFilterManager wordFilterManager) {
         this.dunceService = dunceService;
         this.playerService = playerService;
         this.preferencesService = preferencesService;
         this.messageManager = messageManager;
-
-        // Pre-compile the disallowed words into a single regex pattern
-        // This is O(1) matching vs O(n) loop through words
-        this.disallowedWordsPattern = compileDisallowedWordsPattern(disallowedWords);
+        this.wordFilterManager = wordFilterManager;
     }
 
     /**
-     * Compile disallowed words into a single case-insensitive regex pattern
-     * Returns null if no words are configured (skip filtering entirely)
+     * Auto-dunce a player for a filtered message
+     * The message is stored unchanged as the trigger; the matched term only goes to the log
      */
-    private Pattern compileDisallowedWordsPattern(List<String> words) {
-        if (words == null || words.isEmpty()) {
-            return null;
-        }
+    private void autoDunce(Player player, String message, String matchedTerm) {
+        UUID playerUuid = player.getUniqueId();
 
-        StringBuilder regex = new StringBuilder("(?i)(");
-        boolean first = true;
-        for (String word : words) {
-            if (word == null || word.isBlank()) continue;
-            if (!first) regex.append("|");
-            regex.append(Pattern.quote(word.trim()));
-            first = false;
+        if (!dunceService.isDunced(playerUuid)) {
+            logger.info("[DunceChat] Auto-dunced " + player.getName() + " (matched word filter term: " + matchedTerm + ")");
+            dunceService.duncePlayer(playerUuid, "AutoDunced", null, null, message);
         }
-        regex.append(")");
-
-        // If no valid words, return null
-        if (first) return null;
-
-        return Pattern.compile(regex.toString());
     }
 
-
     /**
      * Cancel chat events for dunced players and dunce chat observers at LOWEST priority.
      * This prevents third-party plugins (Dynmap, etc.) from seeing these messages.
@@ -125,12 +110,9 @@ public class ChatListener implements Listener {
             // Handle dunced player chat - use dunce_chat_format
             Set<Player> recipients = preferencesService.getPlayersWithDunceChatVisible();
 
-            // Create placeholder map for MiniMessage
-            Map<String, Component> placeholders = new HashMap<>();
-            placeholders.put("player", fullNameComponent);
-            placeholders.put("message", event.message());
-
-            Component message = messageManager.getWithComponents("dunce_chat_format", placeholders);
+            // Fill the pre-compiled template slots (format is parsed once, not per message)
+            Component message = messageManager.getTemplate("dunce_chat_format", CHAT_SLOTS)
+                .render(fullNameComponent, event.message());
 
             // Manually send message to each recipient (event is cancelled, so we send directly)
             for (Player recipient : recipients) {
@@ -145,12 +127,9 @@ public class ChatListener implements Listener {
             Set<Player> recipients = preferencesService.getPlayersWithDunceChatVisible();
             recipients.add(player);
 
-            // Create placeholder map for MiniMessage
-            Map<String, Component> placeholders = new HashMap<>();
-            placeholders.put("player", fullNameComponent);
-            placeholders.put("message", event.message());
-
-            Component message = messageManager.getWithComponents("dunce_chat_observer_format", placeholders);
+            // Fill the pre-compiled template slots (format is parsed once, not per message)
+            Component message = messageManager.getTemplate("dunce_chat_observer_format", CHAT_SLOTS)
+                .render(fullNameComponent, event.message());
 
             // Manually send message to each recipient (event is cancelled, so we send directly)
             for (Player recipient : recipients) {
@@ -165,8 +144,9 @@ public class ChatListener implements Listener {
 
     @EventHandler(priority = EventPriority.LOW)
     public void onWordFilter(AsyncChatEvent event) {
-        // Skip if no disallowed words configured
-        if (disallowedWordsPattern == null) {
+        // Read the current filter once; skip if no disallowed words are configured
+        WordFilter wordFilter = wordFilterManager.getFilter();
+        if (wordFilter == null) {
             return;
         }
 
@@ -183,18 +163,11 @@ public class ChatListener implements Listener {
         }
 
         String message = PlainTextComponentSerializer.plainText().serialize(event.message());
-        String lowerMessage = message.toLowerCase();
-
-        // Use the pre-compiled regex pattern for fast matching
-        Matcher matcher = disallowedWordsPattern.matcher(lowerMessage);
-        if (matcher.find()) {
-            UUID playerUuid = player.getUniqueId();
-
-            if (!dunceService.isDunced(playerUuid)) {
-                // Auto-dunce with the trigger message stored
-                dunceService.duncePlayer(playerUuid, "AutoDunced", null, null, message);
-            }
 
+        // Single pass over the message; case folding is done by the filter
+        Optional<String> matchedTerm = wordFilter.findMatch(message);
+        if (matchedTerm.isPresent()) {
+            autoDunce(player, message, matchedTerm.get());
             event.setCancelled(true);
         }
     }
@@ -255,12 +228,9 @@ public class ChatListener implements Listener {
             // Handle dunced player chat - use dunce_chat_format
             Set<Player> recipients = preferencesService.getPlayersWithDunceChatVisible();
 
-            // Create placeholder map for MiniMessage
-            Map<String, Component> placeholders = new HashMap<>();
-            placeholders.put("player", fullNameComponent);
-            placeholders.put("message", messageComponent);
-
-            Component message = messageManager.getWithComponents("dunce_chat_format", placeholders);
+            // Fill the pre-compiled template slots (format is parsed once, not per message)
+            Component message = messageManager.getTemplate("dunce_chat_format", CHAT_SLOTS)
+                .render(fullNameComponent, messageComponent);
 
             // Manually send message to each recipient (event is cancelled, so we send directly)
             for (Player recipient : recipients) {
@@ -275,12 +245,9 @@ public class ChatListener implements Listener {
             Set<Player> recipients = preferencesService.getPlayersWithDunceChatVisible();
             recipients.add(player);
 
-            // Create placeholder map for MiniMessage
-            Map<String, Component> placeholders = new HashMap<>();
-            placeholders.put("player", fullNameComponent);
-            placeholders.put("message", messageComponent);
-
-            Component message = messageManager.getWithComponents("dunce_chat_observer_format", placeholders);
+            // Fill the pre-compiled template slots (format is parsed once, not per message)
+            Component message = messageManager.getTemplate("dunce_chat_observer_format", CHAT_SLOTS)
+                .render(fullNameComponent, messageComponent);
 
             // Manually send message to each recipient (event is cancelled, so we send directly)
             for (Player recipient : recipients) {
@@ -298,8 +265,9 @@ public class ChatListener implements Listener {
     @SuppressWarnings("deprecation")
     @EventHandler(priority = EventPriority.LOW)
     public void onLegacyWordFilter(AsyncPlayerChatEvent event) {
-        // Skip if no disallowed words configured
-        if (disallowedWordsPattern == null) {
+        // Read the current filter once; skip if no disallowed words are configured
+        WordFilter wordFilter = wordFilterManager.getFilter();
+        if (wordFilter == null) {
             return;
         }
 
@@ -316,18 +284,11 @@ public class ChatListener implements Listener {
         }
 
         String message = event.getMessage();
-        String lowerMessage = message.toLowerCase();
-
-        // Use the pre-compiled regex pattern for fast matching
-        Matcher matcher = disallowedWordsPattern.matcher(lowerMessage);
-        if (matcher.find()) {
-            UUID playerUuid = player.getUniqueId();
-
-            if (!dunceService.isDunced(playerUuid)) {
-                // Auto-dunce with the trigger message stored
-                dunceService.duncePlayer(playerUuid, "AutoDunced", null, null, message);
-            }
 
+        // Single pass over the message; case folding is done by the filter
+        Optional<String> matchedTerm = wordFilter.findMatch(message);
+        if (matchedTerm.isPresent()) {
+            autoDunce(player, message, matchedTerm.get());
             event.setCancelled(true);
         }
     }
@@ -1,5 +1,6 @@
 package gg.corn.DunceChat.listener;
 
+import gg.corn.DunceChat.database.DatabaseExecutor;
 import gg.corn.DunceChat.service.DunceService;
 import gg.corn.DunceChat.service.IPTrackingService;
 import gg.corn.DunceChat.service.PlayerService;
@@ -14,6 +15,7 @@ import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.Plugin;
 
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Logger;
 
 /**
@@ -26,16 +28,18 @@ public class PlayerConnectionListener implements Listener {
     private final PlayerService playerService;
     private final PreferencesService preferencesService;
     private final IPTrackingService ipTrackingService;
+    private final DatabaseExecutor databaseExecutor;
     private final Plugin plugin;
     private static final Logger logger = Logger.getLogger("DunceChat");
 
     public PlayerConnectionListener(DunceService dunceService, PlayerService playerService,
                                    PreferencesService preferencesService, IPTrackingService ipTrackingService,
-                                   Plugin plugin) {
+                                   DatabaseExecutor databaseExecutor, Plugin plugin) {
         this.dunceService = dunceService;
         this.playerService = playerService;
         this.preferencesService = preferencesService;
         this.ipTrackingService = ipTrackingService;
+        this.databaseExecutor = databaseExecutor;
         this.plugin = plugin;
     }
 
@@ -58,10 +62,13 @@ public class PlayerConnectionListener implements Listener {
         // This must run sync to ensure dunce status is correct before any chat
         dunceService.checkAndProcessExpiredDunceOnLogin(playerUuid);
 
+        // Refresh dunce state from the database in the background; chat keeps using the index meanwhile
+        dunceService.refreshDunceRecord(playerUuid);
+
         // === ASYNC OPERATIONS (moved to background thread) ===
 
-        // Run expensive database operations asynchronously to avoid blocking main thread
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        // Run expensive database operations on the database executor to avoid blocking main thread
+        runDatabaseTask(player, "join", () -> {
             try {
                 // Update player record in database (DB write operation)
                 playerService.handlePlayerJoin(player);
@@ -104,7 +111,7 @@ public class PlayerConnectionListener implements Listener {
         // === ASYNC OPERATIONS ===
 
         // Update quit time in database asynchronously
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
+        runDatabaseTask(player, "quit", () -> {
             try {
                 playerService.handlePlayerQuit(player);
             } catch (Exception e) {
@@ -113,5 +120,15 @@ public class PlayerConnectionListener implements Listener {
             }
         });
     }
-}
 
+    /**
+     * Queue join/quit work on the database executor (rejected only while the plugin is disabling)
+     */
+    private void runDatabaseTask(Player player, String action, Runnable task) {
+        try {
+            databaseExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.warning("[DunceChat] Skipped " + action + " processing for " + player.getName() + " (shutting down)");
+        }
+    }
+}
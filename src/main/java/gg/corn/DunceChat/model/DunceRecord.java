@@ -16,6 +16,8 @@ public class DunceRecord {
     private Timestamp expiresAt;
     private Timestamp unduncedAt;
     private String triggerMessage;
+    private UUID linkedFromUuid;
+    private String linkedFromIp;
 
     public DunceRecord(UUID playerUuid) {
         this.playerUuid = playerUuid;
@@ -103,6 +105,29 @@ public class DunceRecord {
         this.triggerMessage = triggerMessage;
     }
 
+    public UUID getLinkedFromUuid() {
+        return linkedFromUuid;
+    }
+
+    public void setLinkedFromUuid(UUID linkedFromUuid) {
+        this.linkedFromUuid = linkedFromUuid;
+    }
+
+    public String getLinkedFromIp() {
+        return linkedFromIp;
+    }
+
+    public void setLinkedFromIp(String linkedFromIp) {
+        this.linkedFromIp = linkedFromIp;
+    }
+
+    /**
+     * Check if this dunce was created through an IP link (from another player or an IP address)
+     */
+    public boolean isIPLinked() {
+        return linkedFromUuid != null || linkedFromIp != null;
+    }
+
     /**
      * Check if the dunce has expired
      */
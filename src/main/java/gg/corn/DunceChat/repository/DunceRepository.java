@@ -1,10 +1,15 @@
 package gg.corn.DunceChat.repository;
 
+import gg.corn.DunceChat.database.BinaryCodec;
 import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.database.Jdbc;
+import gg.corn.DunceChat.database.NamedStatement;
+import gg.corn.DunceChat.database.StatementBinder;
 import gg.corn.DunceChat.model.DunceRecord;
 
 import java.sql.*;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -12,29 +17,51 @@ import java.util.logging.Logger;
  */
 public class DunceRepository {
 
+    // Hot queries, also checked by QueryPlanCheck
+    static final NamedStatement ACTIVE_RECORD = NamedStatement.of("dunce_records.active",
+        "SELECT * FROM dunce_records WHERE player_uuid = ? AND is_dunced = TRUE ORDER BY id DESC LIMIT 1");
+    static final NamedStatement EXPIRED_RECORDS = NamedStatement.of("dunce_records.expired",
+        "SELECT * FROM dunce_records WHERE is_dunced = TRUE AND expires_at IS NOT NULL AND expires_at < NOW()");
+    static final NamedStatement HISTORY = NamedStatement.of("dunce_records.history",
+        "SELECT * FROM dunce_records WHERE player_uuid = ? ORDER BY dunced_at DESC");
+
+    private static final String INSERT_SQL = """
+        INSERT INTO dunce_records (player_uuid, is_dunced, reason, staff_uuid, dunced_at, expires_at, trigger_message,
+                                   linked_from_uuid, linked_from_ip)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+    """;
+
+    private static final NamedStatement ACTIVE_PLAYERS = NamedStatement.of("dunce_records.activePlayers",
+        "SELECT DISTINCT player_uuid FROM dunce_records WHERE is_dunced = TRUE");
+
+    private static final NamedStatement UPDATE = NamedStatement.of("dunce_records.update", """
+        UPDATE dunce_records
+        SET is_dunced = ?, reason = ?, staff_uuid = ?, expires_at = ?, undunced_at = ?
+        WHERE id = ?
+    """);
+
+    private static final NamedStatement UNDUNCE = NamedStatement.of("dunce_records.undunce", """
+        UPDATE dunce_records
+        SET is_dunced = FALSE, undunced_at = NOW()
+        WHERE player_uuid = ? AND is_dunced = TRUE
+    """);
+
     private final DatabaseManager databaseManager;
+    private final Jdbc jdbc;
     private static final Logger logger = Logger.getLogger("DunceChat");
 
     public DunceRepository(DatabaseManager databaseManager) {
         this.databaseManager = databaseManager;
+        this.jdbc = databaseManager.getJdbc();
     }
 
     /**
      * Get the active dunce record for a player
      */
     public Optional<DunceRecord> getActiveDunceRecord(UUID playerUuid) {
-        String query = "SELECT * FROM dunce_records WHERE player_uuid = ? AND is_dunced = TRUE ORDER BY id DESC LIMIT 1";
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, playerUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return Optional.of(mapResultSetToDunceRecord(rs));
-            }
-
+        try {
+            return jdbc.queryFirst(ACTIVE_RECORD, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid),
+                DunceRepository::mapResultSetToDunceRecord);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -47,16 +74,10 @@ public class DunceRepository {
      */
     public Set<UUID> getAllActiveDuncedPlayers() {
         Set<UUID> duncedPlayers = new HashSet<>();
-        String query = "SELECT DISTINCT player_uuid FROM dunce_records WHERE is_dunced = TRUE";
-
-        try (Connection conn = databaseManager.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-
-            while (rs.next()) {
-                duncedPlayers.add(UUID.fromString(rs.getString("player_uuid")));
-            }
 
+        try {
+            duncedPlayers.addAll(jdbc.query(ACTIVE_PLAYERS, StatementBinder.NONE,
+                rs -> BinaryCodec.getUuid(rs, "player_uuid")));
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -65,58 +86,61 @@ public class DunceRepository {
     }
 
     /**
-     * Get all expired dunce records
+     * Stream every active dunce record in a single query
+     * Records are visited in ascending id order, so the newest record for a player comes last
+     * @return Number of rows read
      */
-    public List<DunceRecord> getExpiredDunceRecords() {
-        List<DunceRecord> expiredRecords = new ArrayList<>();
-        String query = "SELECT * FROM dunce_records WHERE is_dunced = TRUE AND expires_at IS NOT NULL AND expires_at < NOW()";
+    public int forEachActiveDunceRecord(Consumer<DunceRecord> consumer) {
+        String query = "SELECT * FROM dunce_records WHERE is_dunced = TRUE ORDER BY id ASC";
+        int rows = 0;
 
         try (Connection conn = databaseManager.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // MySQL Connector/J only streams rows (instead of buffering the whole result) with this fetch size
+            if (databaseManager.getDatabaseType() == DatabaseManager.DatabaseType.MYSQL) {
+                stmt.setFetchSize(Integer.MIN_VALUE);
+            } else {
+                stmt.setFetchSize(1000);
+            }
 
-            while (rs.next()) {
-                expiredRecords.add(mapResultSetToDunceRecord(rs));
+            try (ResultSet rs = stmt.executeQuery(query)) {
+                while (rs.next()) {
+                    consumer.accept(mapResultSetToDunceRecord(rs));
+                    rows++;
+                }
             }
 
         } catch (SQLException e) {
             e.printStackTrace();
         }
 
-        return expiredRecords;
+        return rows;
     }
 
     /**
-     * Create a new dunce record
+     * Get all expired dunce records
      */
-    public DunceRecord create(DunceRecord record) {
-        String query = """
-            INSERT INTO dunce_records (player_uuid, is_dunced, reason, staff_uuid, dunced_at, expires_at, trigger_message)
-            VALUES (?, ?, ?, ?, ?, ?, ?)
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setString(1, record.getPlayerUuid().toString());
-            stmt.setBoolean(2, record.isDunced());
-            stmt.setString(3, record.getReason());
-            stmt.setString(4, record.getStaffUuid() != null ? record.getStaffUuid().toString() : null);
-            stmt.setTimestamp(5, record.getDuncedAt());
-            stmt.setTimestamp(6, record.getExpiresAt());
-            stmt.setString(7, record.getTriggerMessage());
-
-            stmt.executeUpdate();
+    public List<DunceRecord> getExpiredDunceRecords() {
+        try {
+            return jdbc.query(EXPIRED_RECORDS, StatementBinder.NONE, DunceRepository::mapResultSetToDunceRecord);
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
 
-            ResultSet generatedKeys = stmt.getGeneratedKeys();
-            if (generatedKeys.next()) {
-                record.setId(generatedKeys.getInt(1));
-            }
+        return new ArrayList<>();
+    }
 
+    /**
+     * Create a new dunce record
+     */
+    public DunceRecord create(DunceRecord record) {
+        try (Connection conn = databaseManager.getConnection()) {
+            create(conn, record);
         } catch (SQLException e) {
             logger.severe("[DunceChat] Failed to create dunce record!");
             logger.severe("[DunceChat] SQL Error: " + e.getMessage());
-            logger.severe("[DunceChat] This is likely because the trigger_message column is missing.");
+            logger.severe("[DunceChat] This is likely because the trigger_message or linked_from columns are missing.");
             logger.severe("[DunceChat] Please restart the server or run /duncemigrate to upgrade the schema.");
             e.printStackTrace();
         }
@@ -125,27 +149,80 @@ public class DunceRepository {
     }
 
     /**
-     * Update a dunce record
+     * Create a new dunce record on the caller's connection (part of a transaction)
+     * The generated id is set on the record
      */
-    public void update(DunceRecord record) {
-        String query = """
-            UPDATE dunce_records
-            SET is_dunced = ?, reason = ?, staff_uuid = ?, expires_at = ?, undunced_at = ?
-            WHERE id = ?
-        """;
+    public DunceRecord create(Connection conn, DunceRecord record) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindInsert(stmt, record);
+            stmt.executeUpdate();
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    record.setId(generatedKeys.getInt(1));
+                }
+            }
+        }
 
-            stmt.setBoolean(1, record.isDunced());
-            stmt.setString(2, record.getReason());
-            stmt.setString(3, record.getStaffUuid() != null ? record.getStaffUuid().toString() : null);
-            stmt.setTimestamp(4, record.getExpiresAt());
-            stmt.setTimestamp(5, record.getUnduncedAt());
-            stmt.setInt(6, record.getId());
+        return record;
+    }
 
-            stmt.executeUpdate();
+    /**
+     * Create several dunce records in one JDBC batch on the caller's connection (part of a transaction)
+     * The generated ids are set on the records, in order
+     * @throws SQLException Also if the driver returns fewer generated ids than records
+     */
+    public void createBatch(Connection conn, List<DunceRecord> records) throws SQLException {
+        if (records.isEmpty()) {
+            return;
+        }
 
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            for (DunceRecord record : records) {
+                bindInsert(stmt, record);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+
+            // Every record needs its id, so a short key set fails the batch (and rolls back the transaction)
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                int keys = 0;
+                for (DunceRecord record : records) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Expected " + records.size() + " generated dunce record ids, got " + keys);
+                    }
+                    record.setId(generatedKeys.getInt(1));
+                    keys++;
+                }
+            }
+        }
+    }
+
+    private static void bindInsert(PreparedStatement stmt, DunceRecord record) throws SQLException {
+        BinaryCodec.setUuid(stmt, 1, record.getPlayerUuid());
+        stmt.setBoolean(2, record.isDunced());
+        stmt.setString(3, record.getReason());
+        BinaryCodec.setUuid(stmt, 4, record.getStaffUuid());
+        stmt.setTimestamp(5, record.getDuncedAt());
+        stmt.setTimestamp(6, record.getExpiresAt());
+        stmt.setString(7, record.getTriggerMessage());
+        BinaryCodec.setUuid(stmt, 8, record.getLinkedFromUuid());
+        BinaryCodec.setIp(stmt, 9, record.getLinkedFromIp());
+    }
+
+    /**
+     * Update a dunce record
+     */
+    public void update(DunceRecord record) {
+        try {
+            jdbc.update(UPDATE, stmt -> {
+                stmt.setBoolean(1, record.isDunced());
+                stmt.setString(2, record.getReason());
+                BinaryCodec.setUuid(stmt, 3, record.getStaffUuid());
+                stmt.setTimestamp(4, record.getExpiresAt());
+                stmt.setTimestamp(5, record.getUnduncedAt());
+                stmt.setInt(6, record.getId());
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -155,56 +232,48 @@ public class DunceRepository {
      * Undunce a player by marking the active record as inactive
      */
     public void undunce(UUID playerUuid) {
-        String query = """
-            UPDATE dunce_records
-            SET is_dunced = FALSE, undunced_at = NOW()
-            WHERE player_uuid = ? AND is_dunced = TRUE
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, playerUuid.toString());
-            stmt.executeUpdate();
-
+        try {
+            jdbc.update(UNDUNCE, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid));
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Get dunce history for a player
+     * Undunce several players in one JDBC batch on the caller's connection (part of a transaction)
      */
-    public List<DunceRecord> getDunceHistory(UUID playerUuid) {
-        List<DunceRecord> history = new ArrayList<>();
-        String query = "SELECT * FROM dunce_records WHERE player_uuid = ? ORDER BY dunced_at DESC";
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, playerUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-
-            while (rs.next()) {
-                history.add(mapResultSetToDunceRecord(rs));
+    public void undunceBatch(Connection conn, Collection<UUID> playerUuids) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UNDUNCE.sql())) {
+            for (UUID playerUuid : playerUuids) {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                stmt.addBatch();
             }
+            stmt.executeBatch();
+        }
+    }
 
+    /**
+     * Get dunce history for a player
+     */
+    public List<DunceRecord> getDunceHistory(UUID playerUuid) {
+        try {
+            return jdbc.query(HISTORY, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid),
+                DunceRepository::mapResultSetToDunceRecord);
         } catch (SQLException e) {
             e.printStackTrace();
         }
 
-        return history;
+        return new ArrayList<>();
     }
 
     /**
      * Map ResultSet to DunceRecord
      */
-    private DunceRecord mapResultSetToDunceRecord(ResultSet rs) throws SQLException {
-        UUID playerUuid = UUID.fromString(rs.getString("player_uuid"));
-        String staffUuidStr = rs.getString("staff_uuid");
-        UUID staffUuid = staffUuidStr != null ? UUID.fromString(staffUuidStr) : null;
+    private static DunceRecord mapResultSetToDunceRecord(ResultSet rs) throws SQLException {
+        UUID playerUuid = BinaryCodec.getUuid(rs, "player_uuid");
+        UUID staffUuid = BinaryCodec.getUuid(rs, "staff_uuid");
 
-        return new DunceRecord(
+        DunceRecord record = new DunceRecord(
             rs.getInt("id"),
             playerUuid,
             rs.getBoolean("is_dunced"),
@@ -215,6 +284,11 @@ public class DunceRepository {
             rs.getTimestamp("undunced_at"),
             rs.getString("trigger_message")
         );
+
+        record.setLinkedFromUuid(BinaryCodec.getUuid(rs, "linked_from_uuid"));
+        record.setLinkedFromIp(BinaryCodec.getIp(rs, "linked_from_ip"));
+
+        return record;
     }
 }
 
@@ -0,0 +1,58 @@
+package gg.corn.DunceChat.repository;
+
+import gg.corn.DunceChat.database.BinaryCodec;
+import gg.corn.DunceChat.database.NamedStatement;
+import gg.corn.DunceChat.database.StatementBinder;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The repository queries on hot paths (joins, chat, lookups, expiry sweeps)
+ * Shared by the startup plan check and the query benchmark
+ */
+final class HotQueries {
+
+    /**
+     * A hot query, the index that should serve it and a binder with sample parameters
+     */
+    record HotQuery(String label, NamedStatement statement, String expectedIndex, StatementBinder sampleBinder) {
+    }
+
+    private HotQueries() {
+    }
+
+    /**
+     * Every hot query, bound to the given sample player and IP address
+     */
+    static List<HotQuery> all(UUID samplePlayer, String sampleIp, String sampleUsername) {
+        StatementBinder byPlayer = stmt -> BinaryCodec.setUuid(stmt, 1, samplePlayer);
+        StatementBinder byIp = stmt -> BinaryCodec.setIp(stmt, 1, sampleIp);
+
+        return List.of(
+            new HotQuery("current IP", PlayerIPRepository.CURRENT_IP,
+                "idx_player_ip_log_player_last_seen", byPlayer),
+            new HotQuery("IPs by player", PlayerIPRepository.IPS_BY_PLAYER,
+                "idx_player_ip_log_player_last_seen", byPlayer),
+            new HotQuery("players by IP", PlayerIPRepository.PLAYERS_BY_IP,
+                "idx_player_ip_log_ip_player", byIp),
+            new HotQuery("active dunce record", DunceRepository.ACTIVE_RECORD,
+                "idx_dunce_records_active_id", byPlayer),
+            new HotQuery("expired dunce records", DunceRepository.EXPIRED_RECORDS,
+                "idx_dunce_records_dunced_expiry", StatementBinder.NONE),
+            new HotQuery("dunce history", DunceRepository.HISTORY,
+                "idx_dunce_records_player_dunced_at", byPlayer),
+            new HotQuery("pending messages", PendingMessageRepository.PENDING_MESSAGES,
+                "idx_pending_messages_player_created", byPlayer),
+            new HotQuery("player by name", PlayerRepository.FIND_BY_USERNAME,
+                "idx_players_username_last_join", stmt -> stmt.setString(1, sampleUsername))
+        );
+    }
+
+    /**
+     * Every hot query, bound to placeholder values (enough for EXPLAIN)
+     */
+    static List<HotQuery> all() {
+        return all(new UUID(0, 0), "0.0.0.0", "");
+    }
+}
@@ -0,0 +1,44 @@
+package gg.corn.DunceChat.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Helpers for bulk "WHERE column IN (?, ?, ...)" queries
+ * Large key sets are split into chunks so statements stay within driver/parameter limits
+ */
+final class InClause {
+
+    static final int CHUNK_SIZE = 500;
+
+    private InClause() {
+    }
+
+    /**
+     * Build "?, ?, ?" with the given number of placeholders
+     */
+    static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * Split values into chunks of at most CHUNK_SIZE
+     */
+    static <T> List<List<T>> chunks(Collection<T> values) {
+        List<List<T>> chunks = new ArrayList<>();
+        List<T> current = new ArrayList<>(Math.min(values.size(), CHUNK_SIZE));
+        for (T value : values) {
+            current.add(value);
+            if (current.size() == CHUNK_SIZE) {
+                chunks.add(current);
+                current = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,125 @@
+package gg.corn.DunceChat.repository;
+
+import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.model.Player;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Times the join write paths with synthetic players: read then write (how joins used to be
+ * recorded), the single-statement upsert and the write buffer's JDBC batch
+ * Everything runs in one transaction that is always rolled back, so no synthetic row is ever
+ * committed to the players table (commit cost is therefore not part of the timings)
+ */
+public class JoinBenchmark {
+
+    private final DatabaseManager databaseManager;
+    private final PlayerRepository playerRepository;
+
+    public JoinBenchmark(DatabaseManager databaseManager, PlayerRepository playerRepository) {
+        this.databaseManager = databaseManager;
+        this.playerRepository = playerRepository;
+    }
+
+    /**
+     * Run each path for the given number of synthetic players, every player joining twice
+     * (first join, then a returning join)
+     */
+    public JoinTiming run(int joins) throws SQLException {
+        try (Connection conn = databaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                return run(conn, joins);
+            } finally {
+                // Auto-commit is only restored after a successful rollback (it would commit otherwise);
+                // if the rollback fails the pool rolls back or evicts the connection on return
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private JoinTiming run(Connection conn, int joins) throws SQLException {
+        List<UUID> readThenWrite = syntheticUuids(joins);
+        List<UUID> upsert = syntheticUuids(joins);
+        List<UUID> batched = syntheticUuids(joins);
+
+        // Previous join path: SELECT the player, then INSERT ... ON DUPLICATE KEY UPDATE
+        long start = System.nanoTime();
+        for (int pass = 0; pass < 2; pass++) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (UUID uuid : readThenWrite) {
+                Player player = playerRepository.findByUuid(conn, uuid).orElseGet(() -> {
+                    Player created = new Player(uuid, syntheticName(uuid));
+                    created.setFirstJoin(now);
+                    return created;
+                });
+                player.setLastJoin(now);
+                playerRepository.save(conn, player);
+            }
+        }
+        long readThenWriteNanos = System.nanoTime() - start;
+
+        // Single-statement upsert
+        start = System.nanoTime();
+        for (int pass = 0; pass < 2; pass++) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            for (UUID uuid : upsert) {
+                playerRepository.upsertJoin(conn, uuid, syntheticName(uuid), now);
+            }
+        }
+        long upsertNanos = System.nanoTime() - start;
+
+        // Write buffer: one JDBC batch per flush
+        start = System.nanoTime();
+        for (int pass = 0; pass < 2; pass++) {
+            Timestamp now = new Timestamp(System.currentTimeMillis());
+            List<Player> players = new ArrayList<>(joins);
+            for (UUID uuid : batched) {
+                Player player = new Player(uuid, syntheticName(uuid));
+                player.setFirstJoin(now);
+                player.setLastJoin(now);
+                players.add(player);
+            }
+            playerRepository.upsertJoinBatch(conn, players);
+        }
+        long batchedNanos = System.nanoTime() - start;
+
+        return new JoinTiming(joins * 2, readThenWriteNanos, upsertNanos, batchedNanos);
+    }
+
+    private static List<UUID> syntheticUuids(int count) {
+        List<UUID> uuids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            uuids.add(UUID.randomUUID());
+        }
+        return uuids;
+    }
+
+    private static String syntheticName(UUID uuid) {
+        return "bench" + uuid.toString().substring(0, 8);
+    }
+
+    /**
+     * Total time of each join path; statements per join are 2 (read then write), 1 (upsert)
+     * and 1/joins-per-flush (batched)
+     */
+    public record JoinTiming(int joins, long readThenWriteNanos, long upsertNanos, long batchedNanos) {
+        public double readThenWriteMillisPerJoin() {
+            return readThenWriteNanos / 1_000_000.0 / joins;
+        }
+
+        public double upsertMillisPerJoin() {
+            return upsertNanos / 1_000_000.0 / joins;
+        }
+
+        public double batchedMillisPerJoin() {
+            return batchedNanos / 1_000_000.0 / joins;
+        }
+    }
+}
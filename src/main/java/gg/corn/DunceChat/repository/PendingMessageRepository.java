@@ -1,6 +1,9 @@
 package gg.corn.DunceChat.repository;
 
+import gg.corn.DunceChat.database.BinaryCodec;
 import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.database.Jdbc;
+import gg.corn.DunceChat.database.NamedStatement;
 
 import java.sql.*;
 import java.util.*;
@@ -11,27 +14,32 @@ import java.util.logging.Logger;
  */
 public class PendingMessageRepository {
 
-    private final DatabaseManager databaseManager;
+    // Hot queries, also checked by QueryPlanCheck
+    static final NamedStatement PENDING_MESSAGES = NamedStatement.of("pending_messages.byPlayer",
+        "SELECT message_key FROM pending_messages WHERE player_uuid = ? ORDER BY created_at ASC");
+
+    private static final NamedStatement INSERT = NamedStatement.of("pending_messages.insert",
+        "INSERT INTO pending_messages (player_uuid, message_key) VALUES (?, ?)");
+
+    private static final NamedStatement DELETE = NamedStatement.of("pending_messages.delete",
+        "DELETE FROM pending_messages WHERE player_uuid = ?");
+
+    private final Jdbc jdbc;
     private static final Logger logger = Logger.getLogger("DunceChat");
 
     public PendingMessageRepository(DatabaseManager databaseManager) {
-        this.databaseManager = databaseManager;
+        this.jdbc = databaseManager.getJdbc();
     }
 
     /**
      * Add a pending message for a player
      */
     public void addPendingMessage(UUID playerUuid, String messageKey) {
-        String query = "INSERT INTO pending_messages (player_uuid, message_key) VALUES (?, ?)";
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, playerUuid.toString());
-            stmt.setString(2, messageKey);
-
-            stmt.executeUpdate();
-
+        try {
+            jdbc.update(INSERT, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                stmt.setString(2, messageKey);
+            });
         } catch (SQLException e) {
             logger.severe("[DunceChat] Failed to add pending message!");
             logger.severe("[DunceChat] SQL Error: " + e.getMessage());
@@ -40,44 +48,41 @@ public class PendingMessageRepository {
     }
 
     /**
-     * Get all pending messages for a player
+     * Add the same pending message for several players in one JDBC batch on the caller's connection (part of a transaction)
      */
-    public List<String> getPendingMessages(UUID playerUuid) {
-        List<String> messages = new ArrayList<>();
-        String query = "SELECT message_key FROM pending_messages WHERE player_uuid = ? ORDER BY created_at ASC";
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, playerUuid.toString());
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    messages.add(rs.getString("message_key"));
-                }
+    public void addPendingMessages(Connection conn, Collection<UUID> playerUuids, String messageKey) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT.sql())) {
+            for (UUID playerUuid : playerUuids) {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                stmt.setString(2, messageKey);
+                stmt.addBatch();
             }
+            stmt.executeBatch();
+        }
+    }
 
+    /**
+     * Get all pending messages for a player
+     */
+    public List<String> getPendingMessages(UUID playerUuid) {
+        try {
+            return jdbc.query(PENDING_MESSAGES, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid),
+                rs -> rs.getString("message_key"));
         } catch (SQLException e) {
             logger.severe("[DunceChat] Failed to get pending messages!");
             logger.severe("[DunceChat] SQL Error: " + e.getMessage());
             e.printStackTrace();
         }
 
-        return messages;
+        return new ArrayList<>();
     }
 
     /**
      * Delete all pending messages for a player
      */
     public void deletePendingMessages(UUID playerUuid) {
-        String query = "DELETE FROM pending_messages WHERE player_uuid = ?";
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, playerUuid.toString());
-            stmt.executeUpdate();
-
+        try {
+            jdbc.update(DELETE, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid));
         } catch (SQLException e) {
             logger.severe("[DunceChat] Failed to delete pending messages!");
             logger.severe("[DunceChat] SQL Error: " + e.getMessage());
@@ -85,4 +90,3 @@ public class PendingMessageRepository {
         }
     }
 }
-
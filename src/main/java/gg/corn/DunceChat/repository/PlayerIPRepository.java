@@ -1,22 +1,219 @@
 package gg.corn.DunceChat.repository;
 
+import gg.corn.DunceChat.database.BinaryCodec;
 import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.database.Jdbc;
+import gg.corn.DunceChat.database.NamedStatement;
+import gg.corn.DunceChat.graph.IpGraph;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.*;
+import java.util.function.BiConsumer;
 
 /**
  * Repository for managing player IP address associations
  */
 public class PlayerIPRepository {
 
+    // Hot queries, also checked by QueryPlanCheck
+    static final NamedStatement CURRENT_IP = NamedStatement.of("player_ip_log.currentIp", """
+        SELECT ip_address
+        FROM player_ip_log
+        WHERE player_uuid = ?
+        ORDER BY last_seen DESC
+        LIMIT 1
+    """);
+    static final NamedStatement IPS_BY_PLAYER = NamedStatement.of("player_ip_log.ipsByPlayer", """
+        SELECT ip_address, first_seen, last_seen
+        FROM player_ip_log
+        WHERE player_uuid = ?
+        ORDER BY last_seen DESC
+    """);
+    static final NamedStatement PLAYERS_BY_IP = NamedStatement.of("player_ip_log.playersByIp", """
+        SELECT player_uuid
+        FROM player_ip_log
+        WHERE ip_address = ?
+    """);
+
+    private static final NamedStatement LOG_IP = NamedStatement.of("player_ip_log.log", """
+        INSERT INTO player_ip_log (player_uuid, ip_address, first_seen, last_seen)
+        VALUES (?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+        ON DUPLICATE KEY UPDATE last_seen = CURRENT_TIMESTAMP
+    """);
+
+    private static final NamedStatement DELETE_HISTORY = NamedStatement.of("player_ip_log.deleteHistory",
+        "DELETE FROM player_ip_log WHERE player_uuid = ?");
+
+    private static final NamedStatement SHARING_PLAYERS = NamedStatement.of("player_ip_log.sharingPlayers", """
+        SELECT DISTINCT pil2.player_uuid
+        FROM player_ip_log pil1
+        JOIN player_ip_log pil2 ON pil1.ip_address = pil2.ip_address
+        WHERE pil1.player_uuid = ?
+        AND pil2.player_uuid != ?
+    """);
+
+    private static final NamedStatement HISTORICAL_LINKS = NamedStatement.of("player_ip_log.historicalLinks", """
+        SELECT DISTINCT linked.player_uuid, linked.ip_address
+        FROM player_ip_log direct
+        JOIN player_ip_log shared ON shared.player_uuid = direct.player_uuid
+        JOIN player_ip_log linked ON linked.ip_address = shared.ip_address
+        WHERE direct.ip_address = ?
+        AND shared.ip_address != ?
+        AND linked.player_uuid NOT IN (
+            SELECT player_uuid FROM player_ip_log WHERE ip_address = ?
+        )
+    """);
+
+    // reach: every player within maxDepth - 1 hops; the anchor reads the column type from the table
+    private static final NamedStatement CONNECTED_PLAYERS_CTE = NamedStatement.of("player_ip_log.connectedCte", """
+        WITH RECURSIVE reach (player_uuid, depth) AS (
+            SELECT DISTINCT player_uuid, 0
+            FROM player_ip_log
+            WHERE player_uuid = ?
+            UNION
+            SELECT linked.player_uuid, reach.depth + 1
+            FROM reach
+            JOIN player_ip_log used ON used.player_uuid = reach.player_uuid
+            JOIN player_ip_log linked ON linked.ip_address = used.ip_address
+            WHERE reach.depth < ?
+        )
+        SELECT linked.player_uuid, linked.ip_address, MIN(reach.depth) + 1 AS depth
+        FROM reach
+        JOIN player_ip_log used ON used.player_uuid = reach.player_uuid
+        JOIN player_ip_log linked ON linked.ip_address = used.ip_address
+        WHERE linked.player_uuid <> ?
+        GROUP BY linked.player_uuid, linked.ip_address
+        ORDER BY depth
+    """);
+
+    private static final NamedStatement LAST_SEEN = NamedStatement.of("player_ip_log.lastSeen", """
+        SELECT MAX(last_seen) as last_seen
+        FROM player_ip_log
+        WHERE player_uuid = ?
+    """);
+
+    private static final NamedStatement SHARED_IPS = NamedStatement.of("player_ip_log.sharedIps", """
+        SELECT pil1.ip_address
+        FROM player_ip_log pil1
+        JOIN player_ip_log pil2 ON pil1.ip_address = pil2.ip_address
+        WHERE pil1.player_uuid = ? AND pil2.player_uuid = ?
+    """);
+
+    private static final NamedStatement IP_COUNT = NamedStatement.of("player_ip_log.ipCount", """
+        SELECT COUNT(*) as count
+        FROM player_ip_log
+        WHERE player_uuid = ?
+    """);
+
     private final DatabaseManager databaseManager;
+    private final Jdbc jdbc;
+
+    // In-memory copy of player_ip_log, kept in sync by this repository (null if disabled)
+    private final IpGraph ipGraph;
+
+    // Traversal used by findAllConnectedPlayers
+    private final AltDetectionEngine altDetectionEngine;
+
+    /**
+     * How connected players are found
+     * AUTO uses the in-memory graph when loaded and the database BFS otherwise;
+     * GRAPH behaves the same, CTE runs a single recursive query (MySQL only)
+     */
+    public enum AltDetectionEngine {
+        AUTO, GRAPH, BFS, CTE;
+
+        public static AltDetectionEngine fromConfig(String value) {
+            if (value != null) {
+                for (AltDetectionEngine engine : values()) {
+                    if (engine.name().equalsIgnoreCase(value.trim())) {
+                        return engine;
+                    }
+                }
+            }
+            return AUTO;
+        }
+    }
 
     public PlayerIPRepository(DatabaseManager databaseManager) {
+        this(databaseManager, null);
+    }
+
+    public PlayerIPRepository(DatabaseManager databaseManager, IpGraph ipGraph) {
+        this(databaseManager, ipGraph, AltDetectionEngine.AUTO);
+    }
+
+    public PlayerIPRepository(DatabaseManager databaseManager, IpGraph ipGraph, AltDetectionEngine altDetectionEngine) {
         this.databaseManager = databaseManager;
+        this.jdbc = databaseManager.getJdbc();
+        this.ipGraph = ipGraph;
+        this.altDetectionEngine = altDetectionEngine;
+    }
+
+    /**
+     * Load the whole player_ip_log table into the in-memory graph in one streaming query
+     * @return Number of associations loaded
+     */
+    public int loadIpGraph() {
+        if (ipGraph == null) {
+            return 0;
+        }
+
+        ipGraph.clear();
+        int rows = streamPlayerIPs(ipGraph::addEdge);
+        ipGraph.markLoaded();
+        return rows;
+    }
+
+    /**
+     * Visit every logged player/IP association
+     * Served from the in-memory graph when loaded, otherwise streamed from the database
+     */
+    public void forEachPlayerIP(BiConsumer<UUID, String> consumer) {
+        if (isIpGraphLoaded()) {
+            ipGraph.forEachEdge(consumer);
+        } else {
+            streamPlayerIPs(consumer);
+        }
+    }
+
+    private int streamPlayerIPs(BiConsumer<UUID, String> consumer) {
+        String sql = "SELECT player_uuid, ip_address FROM player_ip_log";
+        int rows = 0;
+
+        try (Connection conn = databaseManager.getConnection();
+             Statement stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            // MySQL Connector/J only streams rows (instead of buffering the whole result) with this fetch size
+            if (databaseManager.getDatabaseType() == DatabaseManager.DatabaseType.MYSQL) {
+                stmt.setFetchSize(Integer.MIN_VALUE);
+            } else {
+                stmt.setFetchSize(1000);
+            }
+
+            try (ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    consumer.accept(BinaryCodec.getUuid(rs, "player_uuid"), BinaryCodec.getIp(rs, "ip_address"));
+                    rows++;
+                }
+            }
+
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to read player IP log", e);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Check if alt lookups are answered from the in-memory graph
+     */
+    public boolean isIpGraphLoaded() {
+        return ipGraph != null && ipGraph.isLoaded();
     }
 
     /**
@@ -24,21 +221,56 @@ public class PlayerIPRepository {
      * Updates last_seen if the association already exists
      */
     public void logPlayerIP(UUID playerUuid, String ipAddress) {
+        try {
+            jdbc.update(LOG_IP, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                BinaryCodec.setIp(stmt, 2, ipAddress);
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to log player IP", e);
+        }
+
+        if (ipGraph != null) {
+            ipGraph.addEdge(playerUuid, ipAddress);
+        }
+    }
+
+    /**
+     * Log IP sightings for several players on the caller's connection (part of a transaction)
+     * The IP graph is not touched - see {@link #addGraphEdge}
+     * @param sightings Player -> IP address -> time it was seen
+     */
+    public void logPlayerIPBatch(Connection conn, Map<UUID, Map<String, Timestamp>> sightings) throws SQLException {
+        if (sightings.isEmpty()) {
+            return;
+        }
+
         String sql = """
             INSERT INTO player_ip_log (player_uuid, ip_address, first_seen, last_seen)
-            VALUES (?, ?, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
-            ON DUPLICATE KEY UPDATE last_seen = CURRENT_TIMESTAMP
+            VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE last_seen = VALUES(last_seen)
         """;
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, playerUuid.toString());
-            stmt.setString(2, ipAddress);
-            stmt.executeUpdate();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Map.Entry<UUID, Map<String, Timestamp>> player : sightings.entrySet()) {
+                for (Map.Entry<String, Timestamp> sighting : player.getValue().entrySet()) {
+                    BinaryCodec.setUuid(stmt, 1, player.getKey());
+                    BinaryCodec.setIp(stmt, 2, sighting.getKey());
+                    stmt.setTimestamp(3, sighting.getValue());
+                    stmt.setTimestamp(4, sighting.getValue());
+                    stmt.addBatch();
+                }
+            }
+            stmt.executeBatch();
+        }
+    }
 
-        } catch (SQLException e) {
-            throw new RuntimeException("Failed to log player IP", e);
+    /**
+     * Add a player-IP association to the in-memory graph only (its row is written separately)
+     */
+    public void addGraphEdge(UUID playerUuid, String ipAddress) {
+        if (ipGraph != null) {
+            ipGraph.addEdge(playerUuid, ipAddress);
         }
     }
 
@@ -48,13 +280,13 @@ public class PlayerIPRepository {
      * @return the number of records deleted
      */
     public int deletePlayerIPHistory(UUID playerUuid) {
-        String sql = "DELETE FROM player_ip_log WHERE player_uuid = ?";
+        try {
+            int deleted = jdbc.update(DELETE_HISTORY, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid));
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, playerUuid.toString());
-            return stmt.executeUpdate();
+            if (ipGraph != null) {
+                ipGraph.removePlayer(playerUuid);
+            }
+            return deleted;
 
         } catch (SQLException e) {
             throw new RuntimeException("Failed to delete player IP history", e);
@@ -62,202 +294,208 @@ public class PlayerIPRepository {
     }
 
     /**
-     * Get all player UUIDs that currently share an IP address with the given player
+     * Delete all IP history for a player on the caller's connection (part of a transaction)
+     * The IP graph is not touched - see {@link #removeGraphPlayer}
+     * @return the number of records deleted
      */
-    public Set<UUID> getPlayersWithCurrentIP(UUID playerUuid) {
-        Set<UUID> players = new HashSet<>();
-
-        String sql = """
-            SELECT DISTINCT pil2.player_uuid
-            FROM player_ip_log pil1
-            JOIN player_ip_log pil2 ON pil1.ip_address = pil2.ip_address
-            WHERE pil1.player_uuid = ?
-            AND pil2.player_uuid != ?
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, playerUuid.toString());
-            stmt.setString(2, playerUuid.toString());
+    public int deletePlayerIPHistory(Connection conn, UUID playerUuid) throws SQLException {
+        return jdbc.update(conn, DELETE_HISTORY, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid));
+    }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    players.add(UUID.fromString(rs.getString("player_uuid")));
-                }
-            }
+    /**
+     * Remove a player's associations from the in-memory graph only (its rows are deleted separately)
+     */
+    public void removeGraphPlayer(UUID playerUuid) {
+        if (ipGraph != null) {
+            ipGraph.removePlayer(playerUuid);
+        }
+    }
 
+    /**
+     * Get all player UUIDs that currently share an IP address with the given player
+     */
+    public Set<UUID> getPlayersWithCurrentIP(UUID playerUuid) {
+        try {
+            return new HashSet<>(jdbc.query(SHARING_PLAYERS, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                BinaryCodec.setUuid(stmt, 2, playerUuid);
+            }, rs -> BinaryCodec.getUuid(rs, "player_uuid")));
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get players with current IP", e);
         }
-
-        return players;
     }
 
     /**
      * Get all player UUIDs that share ANY IP address with the given player (historical)
      */
     public Set<UUID> getPlayersWithHistoricalIP(UUID playerUuid) {
-        Set<UUID> players = new HashSet<>();
-
-        String sql = """
-            SELECT DISTINCT pil2.player_uuid
-            FROM player_ip_log pil1
-            JOIN player_ip_log pil2 ON pil1.ip_address = pil2.ip_address
-            WHERE pil1.player_uuid = ?
-            AND pil2.player_uuid != ?
-        """;
+        try {
+            return new HashSet<>(jdbc.query(SHARING_PLAYERS, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                BinaryCodec.setUuid(stmt, 2, playerUuid);
+            }, rs -> BinaryCodec.getUuid(rs, "player_uuid")));
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get players with historical IP", e);
+        }
+    }
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Find historical links for an IP: players who never used it but share another IP with
+     * one of its players, mapped to the shared IPs
+     * Uses the in-memory graph when loaded, otherwise a single set-based query
+     */
+    public Map<UUID, Set<String>> getHistoricalLinksByIP(String ipAddress) {
+        if (isIpGraphLoaded()) {
+            return ipGraph.findHistoricalLinks(ipAddress);
+        }
 
-            stmt.setString(1, playerUuid.toString());
-            stmt.setString(2, playerUuid.toString());
+        Map<UUID, Set<String>> links = new HashMap<>();
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    players.add(UUID.fromString(rs.getString("player_uuid")));
-                }
+        try {
+            List<Map.Entry<UUID, String>> rows = jdbc.query(HISTORICAL_LINKS, stmt -> {
+                BinaryCodec.setIp(stmt, 1, ipAddress);
+                BinaryCodec.setIp(stmt, 2, ipAddress);
+                BinaryCodec.setIp(stmt, 3, ipAddress);
+            }, PlayerIPRepository::mapPlayerIP);
+            for (Map.Entry<UUID, String> row : rows) {
+                links.computeIfAbsent(row.getKey(), k -> new HashSet<>()).add(row.getValue());
             }
-
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to get players with historical IP", e);
+            throw new RuntimeException("Failed to get historical links by IP", e);
         }
 
-        return players;
+        return links;
     }
 
     /**
      * Get all UUIDs associated with a specific IP address
      */
     public Set<UUID> getPlayersByIP(String ipAddress) {
-        Set<UUID> players = new HashSet<>();
-
-        String sql = """
-            SELECT player_uuid
-            FROM player_ip_log
-            WHERE ip_address = ?
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, ipAddress);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    players.add(UUID.fromString(rs.getString("player_uuid")));
-                }
-            }
+        if (isIpGraphLoaded()) {
+            return ipGraph.getPlayersByIP(ipAddress);
+        }
+        return queryPlayersByIP(ipAddress);
+    }
 
+    /**
+     * Get all UUIDs associated with a specific IP address, always from the database
+     */
+    private Set<UUID> queryPlayersByIP(String ipAddress) {
+        try {
+            return new HashSet<>(jdbc.query(PLAYERS_BY_IP, stmt -> BinaryCodec.setIp(stmt, 1, ipAddress),
+                rs -> BinaryCodec.getUuid(rs, "player_uuid")));
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get players by IP", e);
         }
-
-        return players;
     }
 
     /**
      * Get all IP addresses associated with a player UUID
      */
     public List<String> getIPsByPlayer(UUID playerUuid) {
-        List<String> ips = new ArrayList<>();
-
-        String sql = """
-            SELECT ip_address, first_seen, last_seen
-            FROM player_ip_log
-            WHERE player_uuid = ?
-            ORDER BY last_seen DESC
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, playerUuid.toString());
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    ips.add(rs.getString("ip_address"));
-                }
-            }
-
+        try {
+            return jdbc.query(IPS_BY_PLAYER, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid),
+                rs -> BinaryCodec.getIp(rs, "ip_address"));
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get IPs by player", e);
         }
-
-        return ips;
     }
 
     /**
      * Get the most recent IP address for a player
      */
     public Optional<String> getCurrentIP(UUID playerUuid) {
-        String sql = """
-            SELECT ip_address
-            FROM player_ip_log
-            WHERE player_uuid = ?
-            ORDER BY last_seen DESC
-            LIMIT 1
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, playerUuid.toString());
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return Optional.of(rs.getString("ip_address"));
-                }
-            }
-
+        try {
+            return jdbc.queryFirst(CURRENT_IP, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid),
+                rs -> BinaryCodec.getIp(rs, "ip_address"));
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get current IP", e);
         }
-
-        return Optional.empty();
     }
 
     /**
      * Get detailed IP records for a player (includes timestamps)
      */
     public List<IPRecord> getDetailedIPsByPlayer(UUID playerUuid) {
-        List<IPRecord> records = new ArrayList<>();
+        try {
+            return jdbc.query(IPS_BY_PLAYER, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid),
+                rs -> new IPRecord(
+                    BinaryCodec.getIp(rs, "ip_address"),
+                    rs.getTimestamp("first_seen"),
+                    rs.getTimestamp("last_seen")
+                ));
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to get detailed IPs by player", e);
+        }
+    }
 
-        String sql = """
-            SELECT ip_address, first_seen, last_seen
-            FROM player_ip_log
-            WHERE player_uuid = ?
-            ORDER BY last_seen DESC
-        """;
+    /**
+     * Comprehensive alt detection: Find all players connected through shared IPs
+     * Uses the configured engine (by default the in-memory graph when loaded, otherwise a database BFS)
+     */
+    public Map<UUID, Set<String>> findAllConnectedPlayers(UUID startPlayerUuid, int maxDepth) {
+        return findAllConnectedPlayers(startPlayerUuid, maxDepth, altDetectionEngine);
+    }
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+    /**
+     * Find all players connected through shared IPs using a specific engine
+     * GRAPH and AUTO fall back to the database BFS while the graph is not loaded,
+     * CTE falls back to it when the database cannot run the recursive query efficiently
+     */
+    public Map<UUID, Set<String>> findAllConnectedPlayers(UUID startPlayerUuid, int maxDepth, AltDetectionEngine engine) {
+        return switch (engine) {
+            case CTE -> supportsRecursiveAltQuery()
+                ? findAllConnectedPlayersCte(startPlayerUuid, maxDepth)
+                : findAllConnectedPlayersBfs(startPlayerUuid, maxDepth);
+            case BFS -> findAllConnectedPlayersBfs(startPlayerUuid, maxDepth);
+            case AUTO, GRAPH -> isIpGraphLoaded()
+                ? ipGraph.findConnectedPlayers(startPlayerUuid, maxDepth)
+                : findAllConnectedPlayersBfs(startPlayerUuid, maxDepth);
+        };
+    }
+
+    /**
+     * Check if the recursive CTE engine is usable
+     * MySQL 8 removes duplicate rows on every iteration of a UNION DISTINCT recursive CTE; H2 accepts
+     * the query but does not, so the number of rows grows with the number of paths (exponentially)
+     */
+    public boolean supportsRecursiveAltQuery() {
+        return databaseManager.getDatabaseType() == DatabaseManager.DatabaseType.MYSQL;
+    }
 
-            stmt.setString(1, playerUuid.toString());
+    /**
+     * Recursive CTE alt detection - the whole traversal in one round-trip (MySQL 8+)
+     * Same semantics as the BFS: IPs of every player within maxDepth - 1 hops are expanded,
+     * and each linked player is returned with the IPs it was found through, nearest first
+     */
+    public Map<UUID, Set<String>> findAllConnectedPlayersCte(UUID startPlayerUuid, int maxDepth) {
+        Map<UUID, Set<String>> connectedPlayers = new LinkedHashMap<>();
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    records.add(new IPRecord(
-                        rs.getString("ip_address"),
-                        rs.getTimestamp("first_seen"),
-                        rs.getTimestamp("last_seen")
-                    ));
-                }
-            }
+        if (maxDepth < 1) {
+            return connectedPlayers;
+        }
 
+        try {
+            List<Map.Entry<UUID, String>> rows = jdbc.query(CONNECTED_PLAYERS_CTE, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, startPlayerUuid);
+                stmt.setInt(2, maxDepth - 1);
+                BinaryCodec.setUuid(stmt, 3, startPlayerUuid);
+            }, PlayerIPRepository::mapPlayerIP);
+            for (Map.Entry<UUID, String> row : rows) {
+                connectedPlayers.computeIfAbsent(row.getKey(), k -> new HashSet<>()).add(row.getValue());
+            }
         } catch (SQLException e) {
-            throw new RuntimeException("Failed to get detailed IPs by player", e);
+            throw new RuntimeException("Failed to find connected players", e);
         }
 
-        return records;
+        return connectedPlayers;
     }
 
     /**
-     * Comprehensive alt detection: Find all players connected through shared IPs
+     * Database BFS alt detection - two queries per visited player/IP
      * Uses recursive-style detection to find chains of alt accounts
      */
-    public Map<UUID, Set<String>> findAllConnectedPlayers(UUID startPlayerUuid, int maxDepth) {
+    public Map<UUID, Set<String>> findAllConnectedPlayersBfs(UUID startPlayerUuid, int maxDepth) {
         Map<UUID, Set<String>> connectedPlayers = new HashMap<>();
         Set<UUID> processedPlayers = new HashSet<>();
         Set<String> processedIPs = new HashSet<>();
@@ -286,7 +524,7 @@ public class PlayerIPRepository {
                     processedIPs.add(ip);
 
                     // Get all players who have used this IP
-                    Set<UUID> playersOnIP = getPlayersByIP(ip);
+                    Set<UUID> playersOnIP = queryPlayersByIP(ip);
 
                     for (UUID linkedPlayer : playersOnIP) {
                         if (!linkedPlayer.equals(startPlayerUuid)) {
@@ -309,88 +547,77 @@ public class PlayerIPRepository {
      * Get the last seen timestamp for a player across all their IPs
      */
     public Optional<java.sql.Timestamp> getLastSeenTimestamp(UUID playerUuid) {
-        String sql = """
-            SELECT MAX(last_seen) as last_seen
-            FROM player_ip_log
-            WHERE player_uuid = ?
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, playerUuid.toString());
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return Optional.ofNullable(rs.getTimestamp("last_seen"));
-                }
-            }
-
+        try {
+            return jdbc.queryFirst(LAST_SEEN, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid),
+                rs -> rs.getTimestamp("last_seen"));
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get last seen timestamp", e);
         }
-
-        return Optional.empty();
     }
 
     /**
-     * Check if two players share any IP addresses
+     * Get the last seen timestamps for many players at once (chunked IN queries)
+     * Players with no IP history are absent from the returned map
      */
-    public Set<String> getSharedIPs(UUID player1, UUID player2) {
-        Set<String> sharedIPs = new HashSet<>();
+    public Map<UUID, java.sql.Timestamp> getLastSeenTimestamps(Collection<UUID> playerUuids) {
+        Map<UUID, java.sql.Timestamp> lastSeen = new HashMap<>();
 
-        String sql = """
-            SELECT pil1.ip_address
-            FROM player_ip_log pil1
-            JOIN player_ip_log pil2 ON pil1.ip_address = pil2.ip_address
-            WHERE pil1.player_uuid = ? AND pil2.player_uuid = ?
-        """;
+        for (List<UUID> chunk : InClause.chunks(playerUuids)) {
+            String sql = "SELECT player_uuid, MAX(last_seen) as last_seen FROM player_ip_log WHERE player_uuid IN ("
+                + InClause.placeholders(chunk.size()) + ") GROUP BY player_uuid";
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            try (Connection conn = databaseManager.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, player1.toString());
-            stmt.setString(2, player2.toString());
+                for (int i = 0; i < chunk.size(); i++) {
+                    BinaryCodec.setUuid(stmt, i + 1, chunk.get(i));
+                }
 
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    sharedIPs.add(rs.getString("ip_address"));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        lastSeen.put(BinaryCodec.getUuid(rs, "player_uuid"), rs.getTimestamp("last_seen"));
+                    }
                 }
+
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to get last seen timestamps", e);
             }
+        }
 
+        return lastSeen;
+    }
+
+    /**
+     * Check if two players share any IP addresses
+     */
+    public Set<String> getSharedIPs(UUID player1, UUID player2) {
+        try {
+            return new HashSet<>(jdbc.query(SHARED_IPS, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, player1);
+                BinaryCodec.setUuid(stmt, 2, player2);
+            }, rs -> BinaryCodec.getIp(rs, "ip_address")));
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get shared IPs", e);
         }
-
-        return sharedIPs;
     }
 
     /**
      * Get IP count for a player
      */
     public int getIPCount(UUID playerUuid) {
-        String sql = """
-            SELECT COUNT(*) as count
-            FROM player_ip_log
-            WHERE player_uuid = ?
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, playerUuid.toString());
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getInt("count");
-                }
-            }
-
+        try {
+            return jdbc.queryFirst(IP_COUNT, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid),
+                rs -> rs.getInt("count")).orElse(0);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to get IP count", e);
         }
+    }
 
-        return 0;
+    /**
+     * Map a (player_uuid, ip_address) row
+     */
+    private static Map.Entry<UUID, String> mapPlayerIP(ResultSet rs) throws SQLException {
+        return Map.entry(BinaryCodec.getUuid(rs, "player_uuid"), BinaryCodec.getIp(rs, "ip_address"));
     }
 
     /**
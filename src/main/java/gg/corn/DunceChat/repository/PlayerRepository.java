@@ -1,9 +1,17 @@
 package gg.corn.DunceChat.repository;
 
+import gg.corn.DunceChat.database.BinaryCodec;
 import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.database.Jdbc;
+import gg.corn.DunceChat.database.NamedStatement;
+import gg.corn.DunceChat.database.RowMapper;
 import gg.corn.DunceChat.model.Player;
 
 import java.sql.*;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,32 +20,59 @@ import java.util.UUID;
  */
 public class PlayerRepository {
 
+    // Join upsert: new players get first_join = last_join, existing players keep first_join and last_quit
+    private static final NamedStatement UPSERT_JOIN = NamedStatement.of("players.upsertJoin", """
+        INSERT INTO players (uuid, username, first_join, last_join)
+        VALUES (?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            username = VALUES(username),
+            last_join = VALUES(last_join)
+    """);
+
+    private static final NamedStatement FIND_BY_UUID = NamedStatement.of("players.findByUuid",
+        "SELECT * FROM players WHERE uuid = ?");
+
+    // Also checked by QueryPlanCheck
+    static final NamedStatement FIND_BY_USERNAME = NamedStatement.of("players.findByUsername",
+        "SELECT * FROM players WHERE username = ? ORDER BY last_join DESC LIMIT 1");
+
+    private static final NamedStatement SAVE = NamedStatement.of("players.save", """
+        INSERT INTO players (uuid, username, first_join, last_join, last_quit)
+        VALUES (?, ?, ?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            username = VALUES(username),
+            last_join = VALUES(last_join),
+            last_quit = VALUES(last_quit)
+    """);
+
+    private static final NamedStatement UPDATE_JOIN_TIME = NamedStatement.of("players.updateJoinTime",
+        "UPDATE players SET last_join = ? WHERE uuid = ?");
+
+    private static final NamedStatement UPDATE_QUIT_TIME = NamedStatement.of("players.updateQuitTime",
+        "UPDATE players SET last_quit = ? WHERE uuid = ?");
+
+    private static final RowMapper<Player> PLAYER_MAPPER = rs -> {
+        Player player = new Player(BinaryCodec.getUuid(rs, "uuid"), rs.getString("username"));
+        player.setFirstJoin(rs.getTimestamp("first_join"));
+        player.setLastJoin(rs.getTimestamp("last_join"));
+        player.setLastQuit(rs.getTimestamp("last_quit"));
+        return player;
+    };
+
     private final DatabaseManager databaseManager;
+    private final Jdbc jdbc;
 
     public PlayerRepository(DatabaseManager databaseManager) {
         this.databaseManager = databaseManager;
+        this.jdbc = databaseManager.getJdbc();
     }
 
     /**
      * Find a player by UUID
      */
     public Optional<Player> findByUuid(UUID uuid) {
-        String query = "SELECT * FROM players WHERE uuid = ?";
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                Player player = new Player(uuid, rs.getString("username"));
-                player.setFirstJoin(rs.getTimestamp("first_join"));
-                player.setLastJoin(rs.getTimestamp("last_join"));
-                player.setLastQuit(rs.getTimestamp("last_quit"));
-                return Optional.of(player);
-            }
-
+        try {
+            return jdbc.queryFirst(FIND_BY_UUID, stmt -> BinaryCodec.setUuid(stmt, 1, uuid), PLAYER_MAPPER);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -46,26 +81,42 @@ public class PlayerRepository {
     }
 
     /**
-     * Find a player by username
+     * Find usernames for many players at once (chunked IN queries)
+     * Players with no record are absent from the returned map
      */
-    public Optional<Player> findByUsername(String username) {
-        String query = "SELECT * FROM players WHERE username = ? ORDER BY last_join DESC LIMIT 1";
+    public Map<UUID, String> findNamesByUuids(Collection<UUID> uuids) {
+        Map<UUID, String> names = new HashMap<>();
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        for (List<UUID> chunk : InClause.chunks(uuids)) {
+            String query = "SELECT uuid, username FROM players WHERE uuid IN (" + InClause.placeholders(chunk.size()) + ")";
 
-            stmt.setString(1, username);
-            ResultSet rs = stmt.executeQuery();
+            try (Connection conn = databaseManager.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(query)) {
 
-            if (rs.next()) {
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                Player player = new Player(uuid, username);
-                player.setFirstJoin(rs.getTimestamp("first_join"));
-                player.setLastJoin(rs.getTimestamp("last_join"));
-                player.setLastQuit(rs.getTimestamp("last_quit"));
-                return Optional.of(player);
+                for (int i = 0; i < chunk.size(); i++) {
+                    BinaryCodec.setUuid(stmt, i + 1, chunk.get(i));
+                }
+
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        names.put(BinaryCodec.getUuid(rs, "uuid"), rs.getString("username"));
+                    }
+                }
+
+            } catch (SQLException e) {
+                e.printStackTrace();
             }
+        }
+
+        return names;
+    }
 
+    /**
+     * Find a player by username
+     */
+    public Optional<Player> findByUsername(String username) {
+        try {
+            return jdbc.queryFirst(FIND_BY_USERNAME, stmt -> stmt.setString(1, username), PLAYER_MAPPER);
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -77,44 +128,78 @@ public class PlayerRepository {
      * Save or update a player
      */
     public void save(Player player) {
-        String query = """
-            INSERT INTO players (uuid, username, first_join, last_join, last_quit)
-            VALUES (?, ?, ?, ?, ?)
-            ON DUPLICATE KEY UPDATE
-                username = VALUES(username),
-                last_join = VALUES(last_join),
-                last_quit = VALUES(last_quit)
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, player.getUuid().toString());
-            stmt.setString(2, player.getUsername());
-            stmt.setTimestamp(3, player.getFirstJoin());
-            stmt.setTimestamp(4, player.getLastJoin());
-            stmt.setTimestamp(5, player.getLastQuit());
-
-            stmt.executeUpdate();
+        try {
+            jdbc.update(SAVE, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, player.getUuid());
+                stmt.setString(2, player.getUsername());
+                stmt.setTimestamp(3, player.getFirstJoin());
+                stmt.setTimestamp(4, player.getLastJoin());
+                stmt.setTimestamp(5, player.getLastQuit());
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 
+    /**
+     * Record a join in a single statement (no read-before-write)
+     * Creates the player, or updates username and last join while keeping first_join
+     */
+    public void upsertJoin(UUID uuid, String username, Timestamp joinTime) {
+        try {
+            jdbc.update(UPSERT_JOIN, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, uuid);
+                stmt.setString(2, username);
+                stmt.setTimestamp(3, joinTime);
+                stmt.setTimestamp(4, joinTime);
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * Update player join time
+     * Find a player by UUID on the caller's connection (part of a transaction)
      */
-    public void updateJoinTime(UUID uuid, Timestamp joinTime) {
-        String query = "UPDATE players SET last_join = ? WHERE uuid = ?";
+    public Optional<Player> findByUuid(Connection conn, UUID uuid) throws SQLException {
+        return jdbc.query(conn, FIND_BY_UUID, stmt -> BinaryCodec.setUuid(stmt, 1, uuid), PLAYER_MAPPER)
+            .stream().findFirst();
+    }
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+    /**
+     * Save or update a player on the caller's connection (part of a transaction)
+     */
+    public void save(Connection conn, Player player) throws SQLException {
+        jdbc.update(conn, SAVE, stmt -> {
+            BinaryCodec.setUuid(stmt, 1, player.getUuid());
+            stmt.setString(2, player.getUsername());
+            stmt.setTimestamp(3, player.getFirstJoin());
+            stmt.setTimestamp(4, player.getLastJoin());
+            stmt.setTimestamp(5, player.getLastQuit());
+        });
+    }
 
-            stmt.setTimestamp(1, joinTime);
-            stmt.setString(2, uuid.toString());
-            stmt.executeUpdate();
+    /**
+     * Record a join on the caller's connection (part of a transaction), see {@link #upsertJoin}
+     */
+    public void upsertJoin(Connection conn, UUID uuid, String username, Timestamp joinTime) throws SQLException {
+        jdbc.update(conn, UPSERT_JOIN, stmt -> {
+            BinaryCodec.setUuid(stmt, 1, uuid);
+            stmt.setString(2, username);
+            stmt.setTimestamp(3, joinTime);
+            stmt.setTimestamp(4, joinTime);
+        });
+    }
 
+    /**
+     * Update player join time
+     */
+    public void updateJoinTime(UUID uuid, Timestamp joinTime) {
+        try {
+            jdbc.update(UPDATE_JOIN_TIME, stmt -> {
+                stmt.setTimestamp(1, joinTime);
+                BinaryCodec.setUuid(stmt, 2, uuid);
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -124,18 +209,63 @@ public class PlayerRepository {
      * Update player quit time
      */
     public void updateQuitTime(UUID uuid, Timestamp quitTime) {
-        String query = "UPDATE players SET last_quit = ? WHERE uuid = ?";
+        try {
+            jdbc.update(UPDATE_QUIT_TIME, stmt -> {
+                stmt.setTimestamp(1, quitTime);
+                BinaryCodec.setUuid(stmt, 2, uuid);
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+    /**
+     * Upsert joined players on the caller's connection (part of a transaction)
+     * Same statement as {@link #upsertJoin}, with each player's last join used as the join time
+     */
+    public void upsertJoinBatch(Connection conn, Collection<Player> players) throws SQLException {
+        if (players.isEmpty()) {
+            return;
+        }
 
-            stmt.setTimestamp(1, quitTime);
-            stmt.setString(2, uuid.toString());
-            stmt.executeUpdate();
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_JOIN.sql())) {
+            for (Player player : players) {
+                BinaryCodec.setUuid(stmt, 1, player.getUuid());
+                stmt.setString(2, player.getUsername());
+                stmt.setTimestamp(3, player.getFirstJoin());
+                stmt.setTimestamp(4, player.getLastJoin());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
 
+    /**
+     * Upsert joined players as one batch in its own transaction
+     */
+    public void upsertJoinBatch(Collection<Player> players) {
+        try {
+            databaseManager.runInTransaction(unit -> upsertJoinBatch(unit.connection(), players));
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
-}
 
+    /**
+     * Update quit times for several players on the caller's connection (part of a transaction)
+     */
+    public void updateQuitTimeBatch(Connection conn, Map<UUID, Timestamp> quitTimes) throws SQLException {
+        if (quitTimes.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(UPDATE_QUIT_TIME.sql())) {
+            for (Map.Entry<UUID, Timestamp> entry : quitTimes.entrySet()) {
+                stmt.setTimestamp(1, entry.getValue());
+                BinaryCodec.setUuid(stmt, 2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+}
@@ -1,12 +1,15 @@
 package gg.corn.DunceChat.repository;
 
+import gg.corn.DunceChat.database.BinaryCodec;
 import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.database.Jdbc;
+import gg.corn.DunceChat.database.NamedStatement;
 import gg.corn.DunceChat.model.PlayerPreferences;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,11 +18,34 @@ import java.util.UUID;
  */
 public class PreferencesRepository {
 
-    private final DatabaseManager databaseManager;
+    private static final NamedStatement FIND = NamedStatement.of("player_preferences.find",
+        "SELECT * FROM player_preferences WHERE player_uuid = ?");
+
+    private static final NamedStatement SET_VISIBLE = NamedStatement.of("player_preferences.setVisible", """
+        INSERT INTO player_preferences (player_uuid, dunce_chat_visible)
+        VALUES (?, ?)
+        ON DUPLICATE KEY UPDATE dunce_chat_visible = VALUES(dunce_chat_visible)
+    """);
+
+    private static final NamedStatement SET_IN_DUNCE_CHAT = NamedStatement.of("player_preferences.setInDunceChat", """
+        INSERT INTO player_preferences (player_uuid, in_dunce_chat)
+        VALUES (?, ?)
+        ON DUPLICATE KEY UPDATE in_dunce_chat = VALUES(in_dunce_chat)
+    """);
+
+    private static final NamedStatement SAVE = NamedStatement.of("player_preferences.save", """
+        INSERT INTO player_preferences (player_uuid, dunce_chat_visible, in_dunce_chat)
+        VALUES (?, ?, ?)
+        ON DUPLICATE KEY UPDATE
+            dunce_chat_visible = VALUES(dunce_chat_visible),
+            in_dunce_chat = VALUES(in_dunce_chat)
+    """);
+
+    private final Jdbc jdbc;
     private final boolean defaultVisibility;
 
     public PreferencesRepository(DatabaseManager databaseManager, boolean defaultVisibility) {
-        this.databaseManager = databaseManager;
+        this.jdbc = databaseManager.getJdbc();
         this.defaultVisibility = defaultVisibility;
     }
 
@@ -27,22 +53,16 @@ public class PreferencesRepository {
      * Get player preferences
      */
     public PlayerPreferences getPreferences(UUID playerUuid) {
-        String query = "SELECT * FROM player_preferences WHERE player_uuid = ?";
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, playerUuid.toString());
-            ResultSet rs = stmt.executeQuery();
-
-            if (rs.next()) {
-                return new PlayerPreferences(
+        try {
+            Optional<PlayerPreferences> preferences = jdbc.queryFirst(FIND, stmt -> BinaryCodec.setUuid(stmt, 1, playerUuid),
+                rs -> new PlayerPreferences(
                     playerUuid,
                     rs.getBoolean("dunce_chat_visible"),
                     rs.getBoolean("in_dunce_chat")
-                );
+                ));
+            if (preferences.isPresent()) {
+                return preferences.get();
             }
-
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -55,43 +75,77 @@ public class PreferencesRepository {
      * Set dunce chat visibility
      */
     public void setDunceChatVisible(UUID playerUuid, boolean visible) {
-        String query = """
-            INSERT INTO player_preferences (player_uuid, dunce_chat_visible)
-            VALUES (?, ?)
-            ON DUPLICATE KEY UPDATE dunce_chat_visible = VALUES(dunce_chat_visible)
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, playerUuid.toString());
-            stmt.setBoolean(2, visible);
-            stmt.executeUpdate();
-
+        try {
+            jdbc.update(SET_VISIBLE, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                stmt.setBoolean(2, visible);
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Set dunce chat visibility on the caller's connection (part of a transaction)
+     */
+    public void setDunceChatVisible(Connection conn, UUID playerUuid, boolean visible) throws SQLException {
+        jdbc.update(conn, SET_VISIBLE, stmt -> {
+            BinaryCodec.setUuid(stmt, 1, playerUuid);
+            stmt.setBoolean(2, visible);
+        });
+    }
+
     /**
      * Set in dunce chat status
      */
     public void setInDunceChat(UUID playerUuid, boolean inDunceChat) {
-        String query = """
-            INSERT INTO player_preferences (player_uuid, in_dunce_chat)
-            VALUES (?, ?)
-            ON DUPLICATE KEY UPDATE in_dunce_chat = VALUES(in_dunce_chat)
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
+        try {
+            jdbc.update(SET_IN_DUNCE_CHAT, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                stmt.setBoolean(2, inDunceChat);
+            });
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
 
-            stmt.setString(1, playerUuid.toString());
+    /**
+     * Set in dunce chat status on the caller's connection (part of a transaction)
+     */
+    public void setInDunceChat(Connection conn, UUID playerUuid, boolean inDunceChat) throws SQLException {
+        jdbc.update(conn, SET_IN_DUNCE_CHAT, stmt -> {
+            BinaryCodec.setUuid(stmt, 1, playerUuid);
             stmt.setBoolean(2, inDunceChat);
-            stmt.executeUpdate();
+        });
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    /**
+     * Set in-dunce-chat for several players in one JDBC batch on the caller's connection (part of a transaction)
+     */
+    public void setInDunceChatBatch(Connection conn, Collection<UUID> playerUuids, boolean inDunceChat) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SET_IN_DUNCE_CHAT.sql())) {
+            for (UUID playerUuid : playerUuids) {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                stmt.setBoolean(2, inDunceChat);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Set both preferences for several players in one JDBC batch on the caller's connection (part of a transaction)
+     */
+    public void setDunceChatStateBatch(Connection conn, Collection<UUID> playerUuids, boolean visible,
+                                       boolean inDunceChat) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SAVE.sql())) {
+            for (UUID playerUuid : playerUuids) {
+                BinaryCodec.setUuid(stmt, 1, playerUuid);
+                stmt.setBoolean(2, visible);
+                stmt.setBoolean(3, inDunceChat);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
         }
     }
 
@@ -99,25 +153,14 @@ public class PreferencesRepository {
      * Save complete preferences
      */
     public void save(PlayerPreferences preferences) {
-        String query = """
-            INSERT INTO player_preferences (player_uuid, dunce_chat_visible, in_dunce_chat)
-            VALUES (?, ?, ?)
-            ON DUPLICATE KEY UPDATE
-                dunce_chat_visible = VALUES(dunce_chat_visible),
-                in_dunce_chat = VALUES(in_dunce_chat)
-        """;
-
-        try (Connection conn = databaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(query)) {
-
-            stmt.setString(1, preferences.getPlayerUuid().toString());
-            stmt.setBoolean(2, preferences.isDunceChatVisible());
-            stmt.setBoolean(3, preferences.isInDunceChat());
-            stmt.executeUpdate();
-
+        try {
+            jdbc.update(SAVE, stmt -> {
+                BinaryCodec.setUuid(stmt, 1, preferences.getPlayerUuid());
+                stmt.setBoolean(2, preferences.isDunceChatVisible());
+                stmt.setBoolean(3, preferences.isInDunceChat());
+            });
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 }
-
@@ -0,0 +1,119 @@
+package gg.corn.DunceChat.repository;
+
+import gg.corn.DunceChat.database.BinaryCodec;
+import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.database.Jdbc;
+import gg.corn.DunceChat.repository.HotQueries.HotQuery;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Times the hot read queries through the two statement paths on the live database:
+ * preparing the statement on every call (how the repositories used to work) and
+ * {@link Jdbc}; both share the driver's statement/query cache, so this measures what the
+ * access layer adds or saves on top of it
+ */
+public class QueryBenchmark {
+
+    private final DatabaseManager databaseManager;
+
+    public QueryBenchmark(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * Run every hot query the given number of times on each path (after a short warm-up)
+     * Parameters come from an existing player where there is one, so the queries return rows
+     */
+    public List<QueryTiming> run(int iterations) throws SQLException {
+        Jdbc jdbc = databaseManager.getJdbc();
+        int warmup = Math.max(1, iterations / 10);
+        List<QueryTiming> timings = new ArrayList<>();
+
+        for (HotQuery query : sampleQueries()) {
+            for (int i = 0; i < warmup; i++) {
+                runUncached(query);
+                runCached(jdbc, query);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                runUncached(query);
+            }
+            long uncachedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                runCached(jdbc, query);
+            }
+            long cachedNanos = System.nanoTime() - start;
+
+            timings.add(new QueryTiming(query.label(), iterations, uncachedNanos, cachedNanos));
+        }
+
+        return timings;
+    }
+
+    private List<HotQuery> sampleQueries() throws SQLException {
+        String sql = """
+            SELECT p.uuid, p.username, l.ip_address
+            FROM players p
+            LEFT JOIN player_ip_log l ON l.player_uuid = p.uuid
+            LIMIT 1
+        """;
+
+        try (Connection conn = databaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                String ip = BinaryCodec.getIp(rs, "ip_address");
+                return HotQueries.all(BinaryCodec.getUuid(rs, "uuid"), ip == null ? "0.0.0.0" : ip,
+                    rs.getString("username"));
+            }
+        }
+
+        return HotQueries.all();
+    }
+
+    private void runUncached(HotQuery query) throws SQLException {
+        try (Connection conn = databaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(query.statement().sql())) {
+
+            query.sampleBinder().bind(stmt);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rs.getObject(1);
+                }
+            }
+        }
+    }
+
+    private void runCached(Jdbc jdbc, HotQuery query) throws SQLException {
+        jdbc.query(query.statement(), query.sampleBinder(), rs -> rs.getObject(1));
+    }
+
+    /**
+     * Total time of one query on each path
+     */
+    public record QueryTiming(String label, int iterations, long uncachedNanos, long cachedNanos) {
+        public double uncachedMicrosPerQuery() {
+            return uncachedNanos / 1_000.0 / iterations;
+        }
+
+        public double cachedMicrosPerQuery() {
+            return cachedNanos / 1_000.0 / iterations;
+        }
+
+        public double speedup() {
+            return cachedNanos == 0 ? 0.0 : (double) uncachedNanos / cachedNanos;
+        }
+    }
+}
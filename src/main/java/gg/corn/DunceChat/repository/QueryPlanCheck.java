@@ -0,0 +1,114 @@
+package gg.corn.DunceChat.repository;
+
+import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.repository.HotQueries.HotQuery;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Startup self-check: EXPLAINs the hot repository queries and warns when one of them
+ * falls back to a full scan (or, on MySQL, a filesort) instead of the index meant for it
+ */
+public class QueryPlanCheck {
+
+    private static final Logger logger = Logger.getLogger("DunceChat");
+
+    // MySQL estimates below this many rows are not worth a warning (small tables are scanned on purpose)
+    private static final long MIN_ESTIMATED_ROWS = 1000;
+
+    private final DatabaseManager databaseManager;
+
+    public QueryPlanCheck(DatabaseManager databaseManager) {
+        this.databaseManager = databaseManager;
+    }
+
+    /**
+     * EXPLAIN every hot query and log a warning for each bad plan
+     * @return Number of queries with a bad plan
+     */
+    public int run() {
+        List<String> problems = new ArrayList<>();
+        List<HotQuery> queries = HotQueries.all();
+
+        try (Connection conn = databaseManager.getConnection()) {
+            for (HotQuery query : queries) {
+                String problem = explain(conn, query);
+                if (problem != null) {
+                    problems.add(query.label());
+                    logger.warning("[DunceChat] Query plan check: \"" + query.label() + "\" " + problem
+                        + " (expected index " + query.expectedIndex() + ")");
+                }
+            }
+        } catch (SQLException e) {
+            logger.warning("[DunceChat] Query plan check could not run: " + e.getMessage());
+            return 0;
+        }
+
+        if (problems.isEmpty()) {
+            logger.info("[DunceChat] Query plan check: all " + queries.size() + " hot queries use an index.");
+        } else {
+            logger.warning("[DunceChat] Query plan check: " + problems.size()
+                + " queries may be slow on large tables. Restart the server to apply pending schema upgrades, or check the indexes on your database.");
+        }
+        return problems.size();
+    }
+
+    /**
+     * @return A description of what is wrong with the plan, or null if it is fine
+     */
+    private String explain(Connection conn, HotQuery query) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + query.statement().sql())) {
+            query.sampleBinder().bind(stmt);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return databaseManager.getDatabaseType() == DatabaseManager.DatabaseType.MYSQL
+                    ? checkMySqlPlan(rs)
+                    : checkH2Plan(rs);
+            }
+        }
+    }
+
+    /**
+     * MySQL: one row per table; type ALL is a full table scan, index a full index scan
+     */
+    private String checkMySqlPlan(ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            String table = rs.getString("table");
+            String type = rs.getString("type");
+            String extra = rs.getString("Extra");
+            long rows = rs.getLong("rows");
+            if (rows < MIN_ESTIMATED_ROWS) {
+                continue;
+            }
+            if ("ALL".equalsIgnoreCase(type)) {
+                return "scans all of " + table + " (~" + rows + " rows)";
+            }
+            if ("index".equalsIgnoreCase(type)) {
+                return "reads the whole index of " + table + " (~" + rows + " rows)";
+            }
+            if (extra != null && extra.contains("Using filesort")) {
+                return "sorts ~" + rows + " rows of " + table + " (filesort)";
+            }
+        }
+        return null;
+    }
+
+    /**
+     * H2: the plan is SQL text with the access path in a comment, "tableScan" for a full scan
+     */
+    private String checkH2Plan(ResultSet rs) throws SQLException {
+        while (rs.next()) {
+            String plan = rs.getString(1);
+            if (plan != null && plan.contains(".tableScan")) {
+                return "scans the whole table";
+            }
+        }
+        return null;
+    }
+}
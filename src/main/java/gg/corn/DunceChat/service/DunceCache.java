@@ -0,0 +1,358 @@
+package gg.corn.DunceChat.service;
+
+import gg.corn.DunceChat.model.DunceRecord;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Bounded cache of dunce state
+ * Active dunces are pinned and never evicted. "Not dunced" results are kept in a
+ * size-bounded LRU with a TTL, so looking up arbitrary UUIDs cannot grow memory forever
+ */
+public class DunceCache {
+
+    private final int negativeMaxSize;
+    private final long negativeTtlNanos;
+
+    // Active dunce records, pinned until undunced
+    private final Map<UUID, DunceRecord> pinned = new ConcurrentHashMap<>();
+
+    // IP-link index over the pinned records: origin player / origin IP -> dunced accounts linked to it
+    private final Map<UUID, Set<UUID>> linkedByOriginUuid = new ConcurrentHashMap<>();
+    private final Map<String, Set<UUID>> linkedByOriginIp = new ConcurrentHashMap<>();
+
+    // Players known not to be dunced - value is the nanoTime the entry expires
+    // Access-ordered so the least recently used entry is evicted first (guarded by itself)
+    private final LinkedHashMap<UUID, Long> negative;
+
+    // Players with a database load in flight -> writes to that player since (guarded by negative),
+    // so a load that raced with a write to the same player can be discarded
+    private final Map<UUID, LoadVersion> loadVersions = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    // Notified when a player becomes pinned (true) or unpinned (false)
+    private volatile BiConsumer<UUID, Boolean> pinListener;
+
+    // Pin changes are queued under the cache lock and delivered in order after it is released,
+    // so a slow listener never holds up readers of the cache
+    private final Queue<PinChange> pinChanges = new ConcurrentLinkedQueue<>();
+    private final Object pinDelivery = new Object();
+
+    public DunceCache(int negativeMaxSize, long negativeTtlSeconds) {
+        this.negativeMaxSize = Math.max(0, negativeMaxSize);
+        this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(Math.max(1, negativeTtlSeconds));
+        this.negative = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+                if (size() > DunceCache.this.negativeMaxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get a cached entry without loading
+     * @return The cached state, or null if the player is not in the cache
+     */
+    public Optional<DunceRecord> getIfPresent(UUID playerUuid) {
+        DunceRecord record = pinned.get(playerUuid);
+        if (record != null) {
+            hits.increment();
+            return Optional.of(record);
+        }
+
+        synchronized (negative) {
+            Long expiresAt = negative.get(playerUuid);
+            if (expiresAt != null) {
+                if (System.nanoTime() - expiresAt < 0) {
+                    hits.increment();
+                    return Optional.empty();
+                }
+                negative.remove(playerUuid);
+                expirations.increment();
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Register a database load for a player - call before querying, then finish it with
+     * {@link #putIfUnchanged} or {@link #abandonLoad}
+     * @return The player's write version, to pass to {@link #putIfUnchanged}
+     */
+    public long beginLoad(UUID playerUuid) {
+        synchronized (negative) {
+            LoadVersion version = loadVersions.computeIfAbsent(playerUuid, k -> new LoadVersion());
+            version.loads++;
+            return version.writes;
+        }
+    }
+
+    /**
+     * Store loaded state only if this player was not written to since the load started
+     * A dunce or undunce of the player that happened while loading always wins over the (stale)
+     * loaded value; writes to other players do not matter
+     * @param loadVersion The value returned by {@link #beginLoad}
+     * @return True if the loaded value was stored
+     */
+    public boolean putIfUnchanged(UUID playerUuid, Optional<DunceRecord> record, long loadVersion) {
+        synchronized (negative) {
+            LoadVersion version = loadVersions.get(playerUuid);
+            boolean unchanged = version == null || version.writes == loadVersion;
+            endLoadLocked(playerUuid, version);
+            if (!unchanged) {
+                return false;
+            }
+            putLocked(playerUuid, record);
+        }
+        deliverPinChanges();
+        return true;
+    }
+
+    /**
+     * Finish a load that produced no value (the query failed)
+     */
+    public void abandonLoad(UUID playerUuid) {
+        synchronized (negative) {
+            endLoadLocked(playerUuid, loadVersions.get(playerUuid));
+        }
+    }
+
+    private void endLoadLocked(UUID playerUuid, LoadVersion version) {
+        if (version != null && --version.loads <= 0) {
+            loadVersions.remove(playerUuid);
+        }
+    }
+
+    private void bumpVersion(UUID playerUuid) {
+        LoadVersion version = loadVersions.get(playerUuid);
+        if (version != null) {
+            version.writes++;
+        }
+    }
+
+    /**
+     * Store the current state for a player
+     * Active dunces are pinned, anything else becomes a negative entry
+     */
+    public void put(UUID playerUuid, Optional<DunceRecord> record) {
+        synchronized (negative) {
+            putLocked(playerUuid, record);
+        }
+        deliverPinChanges();
+    }
+
+    /**
+     * Store the current state for several players under one lock
+     */
+    public void putAll(Map<UUID, Optional<DunceRecord>> records) {
+        synchronized (negative) {
+            for (Map.Entry<UUID, Optional<DunceRecord>> entry : records.entrySet()) {
+                putLocked(entry.getKey(), entry.getValue());
+            }
+        }
+        deliverPinChanges();
+    }
+
+    private void putLocked(UUID playerUuid, Optional<DunceRecord> record) {
+        bumpVersion(playerUuid);
+        if (record.isPresent() && record.get().isDunced()) {
+            negative.remove(playerUuid);
+            DunceRecord previous = pinned.put(playerUuid, record.get());
+            unindexLinks(previous);
+            indexLinks(record.get());
+            if (previous == null) {
+                notifyPinListener(playerUuid, true);
+            }
+        } else {
+            unpin(playerUuid);
+            if (negativeMaxSize > 0) {
+                negative.put(playerUuid, System.nanoTime() + negativeTtlNanos);
+            }
+        }
+    }
+
+    /**
+     * Drop a negative entry (active dunces stay pinned)
+     */
+    public void removeNegative(UUID playerUuid) {
+        synchronized (negative) {
+            bumpVersion(playerUuid);
+            negative.remove(playerUuid);
+        }
+    }
+
+    /**
+     * Drop any entry for a player
+     */
+    public void remove(UUID playerUuid) {
+        synchronized (negative) {
+            bumpVersion(playerUuid);
+            unpin(playerUuid);
+            negative.remove(playerUuid);
+        }
+        deliverPinChanges();
+    }
+
+    /**
+     * Clear all entries
+     */
+    public void clear() {
+        synchronized (negative) {
+            for (LoadVersion version : loadVersions.values()) {
+                version.writes++;
+            }
+            for (UUID playerUuid : pinned.keySet()) {
+                notifyPinListener(playerUuid, false);
+            }
+            pinned.clear();
+            linkedByOriginUuid.clear();
+            linkedByOriginIp.clear();
+            negative.clear();
+        }
+        deliverPinChanges();
+    }
+
+    private void unpin(UUID playerUuid) {
+        DunceRecord previous = pinned.remove(playerUuid);
+        if (previous != null) {
+            unindexLinks(previous);
+            notifyPinListener(playerUuid, false);
+        }
+    }
+
+    /**
+     * Set a listener notified whenever a player starts or stops being an active dunce
+     */
+    public void setPinListener(BiConsumer<UUID, Boolean> pinListener) {
+        this.pinListener = pinListener;
+    }
+
+    private void notifyPinListener(UUID playerUuid, boolean pinned) {
+        pinChanges.add(new PinChange(playerUuid, pinned));
+    }
+
+    /**
+     * Deliver queued pin changes (call after releasing the cache lock)
+     * One thread delivers at a time, so the listener sees changes in the order they were made
+     */
+    private void deliverPinChanges() {
+        if (pinChanges.isEmpty()) {
+            return;
+        }
+
+        synchronized (pinDelivery) {
+            PinChange change;
+            while ((change = pinChanges.poll()) != null) {
+                BiConsumer<UUID, Boolean> listener = pinListener;
+                if (listener != null) {
+                    listener.accept(change.playerUuid(), change.pinned());
+                }
+            }
+        }
+    }
+
+    private record PinChange(UUID playerUuid, boolean pinned) {}
+
+    private void indexLinks(DunceRecord record) {
+        if (record.getLinkedFromUuid() != null) {
+            linkedByOriginUuid.computeIfAbsent(record.getLinkedFromUuid(), k -> ConcurrentHashMap.newKeySet())
+                .add(record.getPlayerUuid());
+        }
+        if (record.getLinkedFromIp() != null) {
+            linkedByOriginIp.computeIfAbsent(record.getLinkedFromIp(), k -> ConcurrentHashMap.newKeySet())
+                .add(record.getPlayerUuid());
+        }
+    }
+
+    private void unindexLinks(DunceRecord record) {
+        if (record == null) {
+            return;
+        }
+        if (record.getLinkedFromUuid() != null) {
+            linkedByOriginUuid.computeIfPresent(record.getLinkedFromUuid(), (k, linked) -> {
+                linked.remove(record.getPlayerUuid());
+                return linked.isEmpty() ? null : linked;
+            });
+        }
+        if (record.getLinkedFromIp() != null) {
+            linkedByOriginIp.computeIfPresent(record.getLinkedFromIp(), (k, linked) -> {
+                linked.remove(record.getPlayerUuid());
+                return linked.isEmpty() ? null : linked;
+            });
+        }
+    }
+
+    /**
+     * Get the dunced accounts that were IP-linked from a player
+     */
+    public Set<UUID> getLinkedFromPlayer(UUID originUuid) {
+        Set<UUID> linked = linkedByOriginUuid.get(originUuid);
+        return linked != null ? Set.copyOf(linked) : Set.of();
+    }
+
+    /**
+     * Get the dunced accounts that were dunced through an IP address
+     */
+    public Set<UUID> getLinkedFromIp(String ipAddress) {
+        Set<UUID> linked = linkedByOriginIp.get(ipAddress);
+        return linked != null ? Set.copyOf(linked) : Set.of();
+    }
+
+    /**
+     * Get all pinned (active) dunce records
+     */
+    public Collection<DunceRecord> getPinnedRecords() {
+        return pinned.values();
+    }
+
+    /**
+     * Write count of a player with loads in flight
+     */
+    private static final class LoadVersion {
+        private long writes;
+        private int loads;
+    }
+
+    /**
+     * Get a snapshot of the cache counters
+     */
+    public Stats getStats() {
+        int negativeSize;
+        synchronized (negative) {
+            negativeSize = negative.size();
+        }
+        return new Stats(pinned.size(), negativeSize, hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+    }
+
+    /**
+     * Cache counters
+     */
+    public record Stats(int pinnedSize, int negativeSize, long hits, long misses, long evictions, long expirations) {
+        public double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package gg.corn.DunceChat.service;
 
+import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.database.UnitOfWork;
 import gg.corn.DunceChat.model.AltDetectionResult;
 import gg.corn.DunceChat.model.DunceRecord;
 import gg.corn.DunceChat.repository.DunceRepository;
@@ -10,10 +12,15 @@ import net.kyori.adventure.text.Component;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
+import java.sql.SQLException;
 import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
 import java.util.logging.Logger;
 
 /**
@@ -22,21 +29,33 @@ import java.util.logging.Logger;
  */
 public class DunceService {
 
+    private final DatabaseManager databaseManager;
     private final DunceRepository dunceRepository;
     private final PendingMessageRepository pendingMessageRepository;
     private final PlayerIPRepository playerIPRepository;
     private final PlayerService playerService;
     private final PreferencesService preferencesService;
     private final MessageManager messageManager;
-    private static final SimpleDateFormat DATE_FORMATTER = new SimpleDateFormat("yyyy/MM/dd HH:mm");
+    private static final DateTimeFormatter DATE_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm").withZone(ZoneId.systemDefault());
     private static final Logger logger = Logger.getLogger("DunceChat");
 
-    // In-memory cache for dunced players - key: player UUID, value: DunceRecord (null if not dunced)
-    private final Map<UUID, Optional<DunceRecord>> dunceCache = new ConcurrentHashMap<>();
+    // In-memory cache of dunce state - active dunces are pinned, "not dunced" entries are bounded
+    private final DunceCache dunceCache;
+
+    // Background loads for players not in the cache (run on the database executor), so chat
+    // and main threads never wait on JDBC
+    private final Map<UUID, CompletableFuture<Optional<DunceRecord>>> inFlightLoads = new ConcurrentHashMap<>();
+
+    // Fires when the next timed dunce expires, replacing a once-per-second database poll
+    private final ExpiryScheduler expiryScheduler = new ExpiryScheduler(this::expireIfDue);
 
     public DunceService(DunceRepository dunceRepository, PendingMessageRepository pendingMessageRepository,
                        PlayerIPRepository playerIPRepository, PlayerService playerService,
-                       PreferencesService preferencesService, MessageManager messageManager) {
+                       PreferencesService preferencesService, MessageManager messageManager,
+                       DunceCache dunceCache, DatabaseManager databaseManager) {
+        this.dunceCache = dunceCache;
+        this.databaseManager = databaseManager;
         this.dunceRepository = dunceRepository;
         this.pendingMessageRepository = pendingMessageRepository;
         this.playerIPRepository = playerIPRepository;
@@ -50,16 +69,24 @@ public class DunceService {
      */
     public void initializeCache() {
         dunceCache.clear();
-        Set<UUID> duncedPlayers = dunceRepository.getAllActiveDuncedPlayers();
-        for (UUID uuid : duncedPlayers) {
-            Optional<DunceRecord> record = dunceRepository.getActiveDunceRecord(uuid);
-            dunceCache.put(uuid, record);
+        long start = System.currentTimeMillis();
+
+        // Single streaming pass; rows arrive in id order so the newest active record per player wins
+        int rows = dunceRepository.forEachActiveDunceRecord(record ->
+            dunceCache.put(record.getPlayerUuid(), Optional.of(record)));
+
+        for (DunceRecord record : dunceCache.getPinnedRecords()) {
+            expiryScheduler.schedule(record);
         }
-        logger.info("[DunceChat] Loaded " + duncedPlayers.size() + " dunced players into cache");
+
+        logger.info("[DunceChat] Loaded " + dunceCache.getStats().pinnedSize() + " dunced players into cache ("
+            + rows + " rows in " + (System.currentTimeMillis() - start) + "ms)");
     }
 
     /**
-     * Check if a player is dunced (uses cache)
+     * Check if a player is dunced
+     * Never touches the database - answered from the in-memory index (all active dunces
+     * are preloaded and pinned). Unknown players are refreshed in the background
      */
     public boolean isDunced(UUID playerUuid) {
         return getCachedDunceRecord(playerUuid)
@@ -69,12 +96,14 @@ public class DunceService {
 
     /**
      * Check if a player was IP-dunced (dunced via IP dunce command, not regular dunce)
-     * This is determined by checking if the reason contains "IP Dunce" or "IP Link" or "IP:"
+     * Uses the structured IP link columns; reasons are only checked for auto-dunces and
+     * records that predate them
      */
     public boolean isIPDunced(UUID playerUuid) {
         return getCachedDunceRecord(playerUuid)
                 .filter(DunceRecord::isDunced)
                 .map(record -> {
+                    if (record.isIPLinked()) return true;
                     String reason = record.getReason();
                     if (reason == null) return false;
                     return reason.contains("IP Dunce") ||
@@ -86,24 +115,140 @@ public class DunceService {
     }
 
     /**
-     * Get active dunce record for a player (uses cache)
+     * Get active dunce record for a player (non-blocking, from the in-memory index)
      */
     public Optional<DunceRecord> getActiveDunceRecord(UUID playerUuid) {
         return getCachedDunceRecord(playerUuid);
     }
 
     /**
-     * Get cached dunce record, loading from DB if not in cache
+     * Get active dunce record for a player, loading it from the database if it is not cached
+     * The future completes on a loader thread; for lookups that may wait (commands), while chat
+     * and the main thread use {@link #getActiveDunceRecord}
+     */
+    public CompletableFuture<Optional<DunceRecord>> getActiveDunceRecordAsync(UUID playerUuid) {
+        Optional<DunceRecord> cached = dunceCache.getIfPresent(playerUuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return loadAsync(playerUuid);
+    }
+
+    /**
+     * Re-read a player's dunce state from the database in the background (call on join)
+     * Picks up changes made outside this server, e.g. by another server sharing the MySQL database
+     */
+    public CompletableFuture<Optional<DunceRecord>> refreshDunceRecord(UUID playerUuid) {
+        return loadAsync(playerUuid);
+    }
+
+    /**
+     * Get cached dunce record without blocking
+     * Active dunces are always pinned in the cache, so a miss means "not dunced" as far as this
+     * server knows; the database is checked in the background and the cache updated
      */
     private Optional<DunceRecord> getCachedDunceRecord(UUID playerUuid) {
-        return dunceCache.computeIfAbsent(playerUuid, dunceRepository::getActiveDunceRecord);
+        Optional<DunceRecord> cached = dunceCache.getIfPresent(playerUuid);
+        if (cached != null) {
+            return cached;
+        }
+
+        loadAsync(playerUuid);
+        return Optional.empty();
+    }
+
+    /**
+     * Load a player's active dunce record on the database executor
+     * Concurrent requests for the same player share one query; a result that raced with a
+     * dunce/undunce is discarded in favour of the cached value
+     */
+    private CompletableFuture<Optional<DunceRecord>> loadAsync(UUID playerUuid) {
+        CompletableFuture<Optional<DunceRecord>> future = new CompletableFuture<>();
+        CompletableFuture<Optional<DunceRecord>> existing = inFlightLoads.putIfAbsent(playerUuid, future);
+        if (existing != null) {
+            return existing;
+        }
+
+        long loadVersion = dunceCache.beginLoad(playerUuid);
+        try {
+            databaseManager.getExecutor().execute(() -> {
+                try {
+                    Optional<DunceRecord> loaded;
+                    try {
+                        loaded = dunceRepository.getActiveDunceRecord(playerUuid);
+                    } catch (Throwable t) {
+                        dunceCache.abandonLoad(playerUuid);
+                        throw t;
+                    }
+
+                    if (dunceCache.putIfUnchanged(playerUuid, loaded, loadVersion)) {
+                        loaded.ifPresent(expiryScheduler::schedule);
+                        future.complete(loaded);
+                    } else {
+                        Optional<DunceRecord> current = dunceCache.getIfPresent(playerUuid);
+                        future.complete(current != null ? current : loaded);
+                    }
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    inFlightLoads.remove(playerUuid, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            dunceCache.abandonLoad(playerUuid);
+            inFlightLoads.remove(playerUuid, future);
+            future.completeExceptionally(e);
+        }
+
+        return future;
+    }
+
+    /**
+     * Start the in-memory expiry scheduler (call after the cache is initialized)
+     */
+    public void startExpiryScheduler() {
+        expiryScheduler.start();
+    }
+
+    /**
+     * Stop the expiry scheduler (call on disable)
+     */
+    public void shutdown() {
+        expiryScheduler.shutdown();
     }
 
     /**
-     * Invalidate cache for a specific player
+     * Invalidate cache for a specific player (call on quit)
+     * Only a "not dunced" entry is dropped; active dunces stay pinned
      */
     public void invalidateCache(UUID playerUuid) {
-        dunceCache.remove(playerUuid);
+        dunceCache.removeNegative(playerUuid);
+    }
+
+    /**
+     * Get dunce cache counters
+     */
+    public DunceCache.Stats getCacheStats() {
+        return dunceCache.getStats();
+    }
+
+    /**
+     * Listen for players becoming (true) or no longer being (false) actively dunced
+     */
+    public void setDunceStateListener(BiConsumer<UUID, Boolean> listener) {
+        dunceCache.setPinListener(listener);
+    }
+
+    /**
+     * Get the UUIDs of all active dunces from the in-memory index
+     */
+    public Set<UUID> getCachedDuncedPlayers() {
+        Set<UUID> dunced = new HashSet<>();
+        for (DunceRecord record : dunceCache.getPinnedRecords()) {
+            dunced.add(record.getPlayerUuid());
+        }
+        return dunced;
     }
 
     /**
@@ -124,26 +269,103 @@ public class DunceService {
      * Dunce a player
      */
     public void duncePlayer(UUID playerUuid, String reason, UUID staffUuid, Timestamp expiresAt, String triggerMessage) {
-        duncePlayerInternal(playerUuid, reason, staffUuid, expiresAt, triggerMessage, true);
+        duncePlayerInternal(playerUuid, reason, staffUuid, expiresAt, triggerMessage, true, null, null);
     }
 
     /**
      * Dunce a player silently (no broadcast) - used for IP-linked dunces
      */
     public void duncePlayerSilent(UUID playerUuid, String reason, UUID staffUuid, Timestamp expiresAt, String triggerMessage) {
-        duncePlayerInternal(playerUuid, reason, staffUuid, expiresAt, triggerMessage, false);
+        duncePlayerInternal(playerUuid, reason, staffUuid, expiresAt, triggerMessage, false, null, null);
     }
 
     /**
-     * Internal dunce implementation
+     * Internal dunce implementation: one transaction for the record and the default preferences
+     * @param linkedFromUuid The player this dunce was IP-linked from (null if not linked)
+     * @param linkedFromIp The IP address this dunce was applied through (null if not linked)
      */
-    private void duncePlayerInternal(UUID playerUuid, String reason, UUID staffUuid, Timestamp expiresAt, String triggerMessage, boolean broadcast) {
+    private void duncePlayerInternal(UUID playerUuid, String reason, UUID staffUuid, Timestamp expiresAt, String triggerMessage,
+                                     boolean broadcast, UUID linkedFromUuid, String linkedFromIp) {
         // Check if already dunced (from cache)
         if (isDunced(playerUuid)) {
             return; // Already dunced
         }
 
-        // Create new dunce record
+        // dunce_records references players - a just-joined player's row may still be buffered
+        if (!playerService.ensurePersisted(playerUuid)) {
+            logger.severe("[DunceChat] Failed to dunce " + playerUuid + ": the player's buffered record could not be written");
+            return;
+        }
+
+        try {
+            databaseManager.runInTransaction(unit -> dunce(unit, playerUuid, reason, staffUuid, expiresAt, triggerMessage,
+                broadcast, linkedFromUuid, linkedFromIp));
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to dunce " + playerUuid + ": " + e.getMessage());
+            logger.severe("[DunceChat] If columns are missing, restart the server or run /duncemigrate to upgrade the schema.");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Dunce a player as part of a unit of work: creates the record and sets the default preferences
+     * The cache, the expiry scheduler and the broadcast follow the commit
+     */
+    private void dunce(UnitOfWork unit, UUID playerUuid, String reason, UUID staffUuid, Timestamp expiresAt,
+                       String triggerMessage, boolean broadcast, UUID linkedFromUuid, String linkedFromIp) throws SQLException {
+        DunceRecord record = newDunceRecord(playerUuid, reason, staffUuid, expiresAt, triggerMessage,
+            linkedFromUuid, linkedFromIp);
+
+        dunceRepository.create(unit.connection(), record);
+
+        // Set default preferences
+        preferencesService.setDunceChatVisible(unit, playerUuid, true);
+        preferencesService.setInDunceChat(unit, playerUuid, true);
+
+        unit.afterCommit(() -> {
+            dunceCache.put(playerUuid, Optional.of(record));
+            expiryScheduler.schedule(record);
+
+            // Broadcast dunce message only if requested
+            if (broadcast) {
+                broadcastDunceMessage(playerUuid, reason, staffUuid, expiresAt);
+            }
+        });
+    }
+
+    /**
+     * Dunce several players as part of a unit of work with set-based writes: one batched insert for
+     * the records and one batched preferences upsert. The cache is updated in one step after the commit
+     * Broadcasting is left to the caller
+     */
+    private void dunceAll(UnitOfWork unit, List<DunceRecord> records) throws SQLException {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        List<UUID> playerUuids = new ArrayList<>(records.size());
+        for (DunceRecord record : records) {
+            playerUuids.add(record.getPlayerUuid());
+        }
+
+        dunceRepository.createBatch(unit.connection(), records);
+        preferencesService.setDunceChatStateBatch(unit, playerUuids, true, true);
+
+        unit.afterCommit(() -> {
+            Map<UUID, Optional<DunceRecord>> cached = new LinkedHashMap<>();
+            for (DunceRecord record : records) {
+                cached.put(record.getPlayerUuid(), Optional.of(record));
+            }
+            dunceCache.putAll(cached);
+
+            for (DunceRecord record : records) {
+                expiryScheduler.schedule(record);
+            }
+        });
+    }
+
+    private static DunceRecord newDunceRecord(UUID playerUuid, String reason, UUID staffUuid, Timestamp expiresAt,
+                                              String triggerMessage, UUID linkedFromUuid, String linkedFromIp) {
         DunceRecord record = new DunceRecord(playerUuid);
         record.setDunced(true);
         record.setReason(reason);
@@ -151,20 +373,9 @@ public class DunceService {
         record.setDuncedAt(new Timestamp(System.currentTimeMillis()));
         record.setExpiresAt(expiresAt);
         record.setTriggerMessage(triggerMessage);
-
-        dunceRepository.create(record);
-
-        // Update cache with the new record
-        dunceCache.put(playerUuid, Optional.of(record));
-
-        // Set default preferences
-        preferencesService.setDunceChatVisible(playerUuid, true);
-        preferencesService.setInDunceChat(playerUuid, true);
-
-        // Broadcast dunce message only if requested
-        if (broadcast) {
-            broadcastDunceMessage(playerUuid, reason, staffUuid, expiresAt);
-        }
+        record.setLinkedFromUuid(linkedFromUuid);
+        record.setLinkedFromIp(linkedFromIp);
+        return record;
     }
 
     /**
@@ -186,97 +397,185 @@ public class DunceService {
 
     /**
      * Internal undunce implementation
+     * Accounts IP-linked to the player are undunced with it (expired too on expiry, silently otherwise),
+     * all in one transaction
      */
     private void unduncePlayerInternal(UUID playerUuid, UUID staffUuid, boolean isExpiry, boolean broadcast) {
         if (!isDunced(playerUuid)) {
             return; // Not dunced
         }
 
-        // Get the player name before unduncing (needed for finding linked dunces)
-        String playerName = playerService.getNameByUuid(playerUuid).orElse("Unknown");
+        Set<UUID> undunced = new LinkedHashSet<>();
+        undunced.add(playerUuid);
+        addIPLinkedAccounts(undunced);
 
-        dunceRepository.undunce(playerUuid);
-
-        // Update cache - remove the record
-        dunceCache.put(playerUuid, Optional.empty());
-
-        preferencesService.setInDunceChat(playerUuid, false);
+        // A buffered dunce chat toggle must not be written after (and over) this undunce
+        if (!playerService.ensurePersisted(undunced)) {
+            logger.severe("[DunceChat] Failed to undunce " + playerUuid + ": buffered player records could not be written");
+            return;
+        }
 
-        if (isExpiry) {
-            // Send expiry message to player (or store for later if offline)
-            sendDunceExpiryMessage(playerUuid);
-        } else if (broadcast) {
-            // Broadcast undunce message for staff actions (only if not silent)
-            broadcastUndunceMessage(playerUuid, staffUuid);
+        try {
+            databaseManager.runInTransaction(unit -> {
+                undunce(unit, undunced, isExpiry);
+                if (broadcast && !isExpiry) {
+                    // Broadcast undunce message for staff actions (only if not silent)
+                    unit.afterCommit(() -> broadcastUndunceMessage(playerUuid, staffUuid));
+                }
+            });
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to undunce " + playerUuid + ": " + e.getMessage());
+            e.printStackTrace();
+            return;
         }
 
-        // Check for and undunce any IP-linked dunces created from this player
-        undunceIPLinkedAccounts(playerUuid, playerName, staffUuid, isExpiry);
+        logIPLinkedUndunces(playerUuid, undunced);
     }
 
     /**
-     * Find and undunce any accounts that were IP-linked to the specified player
-     * This is called when a player is undunced (either manually or via expiry)
+     * Log the accounts that were undunced along with an origin player
      */
-    private void undunceIPLinkedAccounts(UUID originPlayerUuid, String originPlayerName, UUID staffUuid, boolean isExpiry) {
-        // Get all currently dunced players
-        Set<UUID> duncedPlayers = getAllDuncedPlayers();
-
-        // Get the current IP of the original player to check for IP-based dunces
-        Optional<String> originPlayerIP = playerIPRepository.getCurrentIP(originPlayerUuid);
+    private void logIPLinkedUndunces(UUID originPlayerUuid, Set<UUID> undunced) {
+        if (undunced.size() < 2) {
+            return;
+        }
 
-        for (UUID duncedUuid : duncedPlayers) {
-            if (duncedUuid.equals(originPlayerUuid)) {
-                continue; // Skip the original player
+        Map<UUID, String> names = playerService.getNamesByUuids(undunced);
+        String originName = names.getOrDefault(originPlayerUuid, "Unknown");
+        for (UUID linkedUuid : undunced) {
+            if (!linkedUuid.equals(originPlayerUuid)) {
+                logger.info("[DunceChat] Auto-undunced IP-linked account: " + names.getOrDefault(linkedUuid, "Unknown")
+                    + " (linked to " + originName + ")");
             }
+        }
+    }
 
-            // Check if this player was IP-linked to the original player
-            Optional<DunceRecord> record = getActiveDunceRecord(duncedUuid);
-            if (record.isPresent()) {
-                String reason = record.get().getReason();
-                if (reason == null) {
-                    continue;
+    /**
+     * Undunce a set of players as part of a unit of work, with JDBC batches
+     * On expiry, offline players get a stored expiry message in the same transaction and online players
+     * are told after the commit. The cache follows the commit
+     */
+    private void undunce(UnitOfWork unit, Set<UUID> playerUuids, boolean isExpiry) throws SQLException {
+        List<Player> onlinePlayers = new ArrayList<>();
+        List<UUID> offlinePlayers = new ArrayList<>();
+        if (isExpiry) {
+            for (UUID playerUuid : playerUuids) {
+                Player player = Bukkit.getPlayer(playerUuid);
+                if (player != null && player.isOnline()) {
+                    onlinePlayers.add(player);
+                } else {
+                    offlinePlayers.add(playerUuid);
                 }
+            }
+        }
 
-                boolean shouldUndunce = false;
+        dunceRepository.undunceBatch(unit.connection(), playerUuids);
+        preferencesService.setInDunceChatBatch(unit, playerUuids, false);
+        if (!offlinePlayers.isEmpty()) {
+            pendingMessageRepository.addPendingMessages(unit.connection(), offlinePlayers, "dunce_expired");
+        }
 
-                // Check if dunced via "IP Link: PlayerName"
-                if (reason.contains("(IP Link: " + originPlayerName + ")")) {
-                    shouldUndunce = true;
-                }
-                // Check if dunced via "IP: address" and shares the same IP
-                else if (originPlayerIP.isPresent() && reason.contains("(IP: " + originPlayerIP.get() + ")")) {
-                    shouldUndunce = true;
-                }
+        List<UUID> players = List.copyOf(playerUuids);
+        unit.afterCommit(() -> {
+            for (UUID playerUuid : players) {
+                dunceCache.put(playerUuid, Optional.empty());
+            }
 
-                if (shouldUndunce) {
-                    // This player was IP-linked to the original player, undunce them
-                    if (isExpiry) {
-                        // If original expired, this should also expire (send expiry message)
-                        unduncePlayerInternal(duncedUuid, null, true, false);
-                    } else {
-                        // If manually undunced, undunce silently
-                        unduncePlayerSilent(duncedUuid, staffUuid);
-                    }
-                    String linkedName = playerService.getNameByUuid(duncedUuid).orElse("Unknown");
-                    logger.info("[DunceChat] Auto-undunced IP-linked account: " + linkedName + " (linked to " + originPlayerName + ")");
+            if (!onlinePlayers.isEmpty()) {
+                Component expiredMessage = messageManager.get("dunce_expired");
+                for (Player player : onlinePlayers) {
+                    player.sendMessage(expiredMessage);
                 }
             }
-        }
+        });
     }
 
     /**
-     * Process expired dunce records
+     * Process expired dunce records found in the database
+     * Expiry normally happens through the in-memory scheduler; this is the reconciliation sweep
      */
     public void processExpiredDunces() {
         List<DunceRecord> expiredRecords = dunceRepository.getExpiredDunceRecords();
+        if (expiredRecords.isEmpty()) {
+            return;
+        }
 
+        // The database is authoritative here, so records missing from the cache are expired too
+        Set<UUID> expired = new LinkedHashSet<>();
         for (DunceRecord record : expiredRecords) {
-            unduncePlayer(record.getPlayerUuid(), null, true);  // true = expired
+            expired.add(record.getPlayerUuid());
+        }
+        expireDunces(expired);
+    }
+
+    /**
+     * Undunce players whose cached dunce has expired (called by the expiry scheduler)
+     * Scheduler entries may be stale - a player could have been undunced or re-dunced since
+     */
+    private void expireIfDue(List<UUID> playerUuids) {
+        Set<UUID> expired = new LinkedHashSet<>();
+        for (UUID playerUuid : playerUuids) {
+            Optional<DunceRecord> record = dunceCache.getIfPresent(playerUuid);
+            if (record != null && record.isPresent() && record.get().isExpired()) {
+                expired.add(playerUuid);
+            }
+        }
+
+        if (!expired.isEmpty()) {
+            expireDunces(expired);
+        }
+    }
 
-            String playerName = playerService.getNameByUuid(record.getPlayerUuid())
-                    .orElse("Unknown");
-            logger.info("[DunceChat] Auto-undunced " + playerName + " (expired)");
+    /**
+     * Expire a set of dunces as one batch
+     * IP-linked accounts of the expired players are expired with them. All database writes
+     * (undunce, preferences, pending messages) run in one transaction with JDBC batches;
+     * the cache is only updated and players notified once it has committed
+     */
+    private void expireDunces(Set<UUID> expired) {
+        long start = System.currentTimeMillis();
+
+        int directCount = expired.size();
+        Set<UUID> allExpired = new LinkedHashSet<>(expired);
+        addIPLinkedAccounts(allExpired);
+
+        // A buffered dunce chat toggle must not be written after (and over) this undunce
+        if (!playerService.ensurePersisted(allExpired)) {
+            logger.severe("[DunceChat] Failed to expire " + allExpired.size() + " dunces, will retry on the next sweep: buffered player records could not be written");
+            return;
+        }
+
+        try {
+            databaseManager.runInTransaction(unit -> undunce(unit, allExpired, true));
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to expire " + allExpired.size() + " dunces, will retry on the next sweep: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        logger.info("[DunceChat] Expired " + allExpired.size() + " dunces (" + (allExpired.size() - directCount)
+            + " IP-linked) in " + (System.currentTimeMillis() - start) + "ms");
+    }
+
+    /**
+     * Add every active dunce that was IP-linked to a player in the set, repeating until no new links are found
+     */
+    private void addIPLinkedAccounts(Set<UUID> expired) {
+        Collection<UUID> origins = new ArrayList<>(expired);
+        while (!origins.isEmpty()) {
+            List<UUID> newlyLinked = new ArrayList<>();
+            for (UUID originUuid : origins) {
+                Set<UUID> linked = new HashSet<>(dunceCache.getLinkedFromPlayer(originUuid));
+                playerIPRepository.getCurrentIP(originUuid)
+                    .ifPresent(ip -> linked.addAll(dunceCache.getLinkedFromIp(ip)));
+
+                for (UUID linkedUuid : linked) {
+                    if (expired.add(linkedUuid)) {
+                        newlyLinked.add(linkedUuid);
+                    }
+                }
+            }
+            origins = newlyLinked;
         }
     }
 
@@ -307,14 +606,9 @@ public class DunceService {
             ? playerService.getDisplayName(onlinePlayer)
             : playerService.getNameByUuid(playerUuid).orElse("Unknown");
 
-        Player onlineStaff = staffUuid != null ? Bukkit.getPlayer(staffUuid) : null;
-        String staffName = onlineStaff != null
-            ? playerService.getDisplayName(onlineStaff)
-            : (staffUuid != null
-                ? playerService.getNameByUuid(staffUuid).orElse("CONSOLE")
-                : "CONSOLE");
+        String staffName = getStaffName(staffUuid);
 
-        String expiryText = expiresAt == null ? messageManager.getRaw("dunce_expires_never") : DATE_FORMATTER.format(expiresAt);
+        String expiryText = expiresAt == null ? messageManager.getRaw("dunce_expires_never") : DATE_FORMATTER.format(expiresAt.toInstant());
         String reasonText = (reason != null && !reason.isEmpty()) ? messageManager.getRaw("dunced_reason", reason) : "";
 
         for (Player online : Bukkit.getOnlinePlayers()) {
@@ -342,12 +636,7 @@ public class DunceService {
             ? playerService.getDisplayName(onlinePlayer)
             : playerService.getNameByUuid(playerUuid).orElse("Unknown");
 
-        Player onlineStaff = staffUuid != null ? Bukkit.getPlayer(staffUuid) : null;
-        String staffName = onlineStaff != null
-            ? playerService.getDisplayName(onlineStaff)
-            : (staffUuid != null
-                ? playerService.getNameByUuid(staffUuid).orElse("CONSOLE")
-                : "CONSOLE");
+        String staffName = getStaffName(staffUuid);
 
         Component message = messageManager.get("undunced_broadcast", staffName, playerName);
 
@@ -357,23 +646,78 @@ public class DunceService {
     }
 
     /**
-     * Send dunce expiry message to player (or store for later if offline)
+     * Broadcast one message for a whole IP dunce instead of one per account
+     * Dunced players who are online get their own notice, everyone else a single summary line
      */
-    private void sendDunceExpiryMessage(UUID playerUuid) {
-        Player player = Bukkit.getPlayer(playerUuid);
+    private void broadcastIPDunceSummary(List<UUID> dunced, Map<UUID, String> names, String reason,
+                                         UUID staffUuid, Timestamp expiresAt) {
+        Collection<? extends Player> onlinePlayers = Bukkit.getOnlinePlayers();
+        if (onlinePlayers.isEmpty()) {
+            return;
+        }
 
-        if (player != null && player.isOnline()) {
-            // Player is online, send message directly
-            player.sendMessage(messageManager.get("dunce_expired"));
-            logger.info("[DunceChat] Sent dunce expiry message to online player: " + player.getName());
-        } else {
-            // Player is offline, store message for later
-            pendingMessageRepository.addPendingMessage(playerUuid, "dunce_expired");
-            String playerName = playerService.getNameByUuid(playerUuid).orElse("Unknown");
-            logger.info("[DunceChat] Stored dunce expiry message for offline player: " + playerName);
+        String staffName = getStaffName(staffUuid);
+        String expiryText = expiresAt == null ? messageManager.getRaw("dunce_expires_never") : DATE_FORMATTER.format(expiresAt.toInstant());
+        String reasonText = (reason != null && !reason.isEmpty()) ? messageManager.getRaw("dunced_reason", reason) : "";
+
+        UUID firstPlayer = dunced.get(0);
+        Player onlineFirst = Bukkit.getPlayer(firstPlayer);
+        String firstName = onlineFirst != null
+            ? playerService.getDisplayName(onlineFirst)
+            : names.getOrDefault(firstPlayer, "Unknown");
+
+        Component summary = dunced.size() == 1
+            ? messageManager.get("ipdunced_broadcast", firstName, staffName, reasonText)
+            : messageManager.get("ipdunced_summary_broadcast", firstName, dunced.size() - 1, staffName, reasonText);
+        Component self = messageManager.get("dunced_self", staffName, reasonText, expiryText);
+
+        Set<UUID> duncedSet = new HashSet<>(dunced);
+        for (Player online : onlinePlayers) {
+            online.sendMessage(duncedSet.contains(online.getUniqueId()) ? self : summary);
+        }
+    }
+
+    /**
+     * Broadcast one message for a whole IP undunce instead of one per account
+     */
+    private void broadcastIPUndunceSummary(Set<UUID> undunced, UUID firstPlayer, UUID staffUuid) {
+        if (undunced.size() == 1) {
+            broadcastUndunceMessage(firstPlayer, staffUuid);
+            return;
+        }
+
+        Collection<? extends Player> onlinePlayers = Bukkit.getOnlinePlayers();
+        if (onlinePlayers.isEmpty()) {
+            return;
+        }
+
+        Player onlineFirst = Bukkit.getPlayer(firstPlayer);
+        String firstName = onlineFirst != null
+            ? playerService.getDisplayName(onlineFirst)
+            : playerService.getNameByUuid(firstPlayer).orElse("Unknown");
+
+        Component message = messageManager.get("ipundunced_summary_broadcast", getStaffName(staffUuid), firstName,
+            undunced.size() - 1);
+
+        for (Player online : onlinePlayers) {
+            online.sendMessage(message);
         }
     }
 
+    /**
+     * Display name of a staff member for broadcasts (CONSOLE when there is none)
+     */
+    private String getStaffName(UUID staffUuid) {
+        if (staffUuid == null) {
+            return "CONSOLE";
+        }
+
+        Player onlineStaff = Bukkit.getPlayer(staffUuid);
+        return onlineStaff != null
+            ? playerService.getDisplayName(onlineStaff)
+            : playerService.getNameByUuid(staffUuid).orElse("CONSOLE");
+    }
+
     /**
      * Send all pending messages to a player on login
      */
@@ -423,21 +767,20 @@ public class DunceService {
         // Combine prefix and name into a single component
         Component fullNameComponent = prefixComponent.append(displayNameComponent);
 
-        // Create placeholder map for MiniMessage
-        Map<String, Component> placeholders = new HashMap<>();
-        placeholders.put("player", fullNameComponent);
-        placeholders.put("message", Component.text(message));
+        Component messageComponent = Component.text(message);
 
         // Determine message format based on sender status
         Component formattedMessage;
         String logPrefix;
         if (isDunced) {
-            // Dunced player message - uses messages.properties format with Component placeholders
-            formattedMessage = messageManager.getWithComponents("dunce_chat_format", placeholders);
+            // Dunced player message - uses the pre-compiled messages.properties template
+            formattedMessage = messageManager.getTemplate("dunce_chat_format", "player", "message")
+                    .render(fullNameComponent, messageComponent);
             logPrefix = "[Dunced]";
         } else if (inDunceChat || canSeeDunceChat) {
-            // Staff/observer message - uses messages.properties format with Component placeholders
-            formattedMessage = messageManager.getWithComponents("dunce_chat_observer_format", placeholders);
+            // Staff/observer message - uses the pre-compiled messages.properties template
+            formattedMessage = messageManager.getTemplate("dunce_chat_observer_format", "player", "message")
+                    .render(fullNameComponent, messageComponent);
             logPrefix = "[Observer]";
         } else {
             // Should not happen due to command checks, but handle gracefully
@@ -459,111 +802,217 @@ public class DunceService {
     }
 
     /**
-     * Dunce a player and all accounts sharing their current IP address
+     * Dunce a player and all accounts sharing their current IP address, in one transaction
      * Only broadcasts for the primary target, linked accounts are dunced silently
      */
     public void ipDuncePlayer(UUID targetUuid, String reason, UUID staffUuid, Timestamp expiresAt) {
-        // Dunce the primary target (with broadcast)
-        duncePlayer(targetUuid, reason , staffUuid, expiresAt, null);
+        // Buffered IP sightings first, or accounts that just joined from the IP are missed
+        if (!playerService.ensureAllPersisted()) {
+            logger.severe("[DunceChat] Failed to IP-dunce " + targetUuid + ": buffered player records could not be written");
+            return;
+        }
 
         // Get all players sharing current IP with target
         Set<UUID> linkedPlayers = playerIPRepository.getPlayersWithCurrentIP(targetUuid);
 
-        // Dunce all linked players silently (no broadcast)
+        Set<UUID> allPlayers = new LinkedHashSet<>(linkedPlayers);
+        allPlayers.add(targetUuid);
+        if (!playerService.ensurePersisted(allPlayers)) {
+            logger.severe("[DunceChat] Failed to IP-dunce " + targetUuid + ": buffered player records could not be written");
+            return;
+        }
+        Map<UUID, String> names = playerService.getNamesByUuids(allPlayers);
+        String targetName = names.getOrDefault(targetUuid, "Unknown");
+
+        boolean dunceTarget = !isDunced(targetUuid);
+        List<DunceRecord> records = new ArrayList<>();
+        if (dunceTarget) {
+            records.add(newDunceRecord(targetUuid, reason, staffUuid, expiresAt, null, null, null));
+        }
+
+        // Linked players are dunced silently (no broadcast)
+        String linkedReason = reason + " (IP Link: " + targetName + ")";
+        List<UUID> dunced = new ArrayList<>();
         for (UUID linkedUuid : linkedPlayers) {
-            if (!isDunced(linkedUuid)) {
-                String linkedName = playerService.getNameByUuid(linkedUuid).orElse("Unknown");
-                String linkedReason = reason + " (IP Link: " + playerService.getNameByUuid(targetUuid).orElse("Unknown") + ")";
-                duncePlayerSilent(linkedUuid, linkedReason, staffUuid, expiresAt, null);
-                logger.info("[DunceChat] IP-dunced " + linkedName + " (linked to " + playerService.getNameByUuid(targetUuid).orElse("Unknown") + ")");
+            if (!linkedUuid.equals(targetUuid) && !isDunced(linkedUuid)) {
+                records.add(newDunceRecord(linkedUuid, linkedReason, staffUuid, expiresAt, null, targetUuid, null));
+                dunced.add(linkedUuid);
             }
         }
+
+        try {
+            databaseManager.runInTransaction(unit -> {
+                dunceAll(unit, records);
+                if (dunceTarget) {
+                    // Broadcast for the primary target only
+                    unit.afterCommit(() -> broadcastDunceMessage(targetUuid, reason, staffUuid, expiresAt));
+                }
+            });
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to IP-dunce " + targetName + ": " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        for (UUID linkedUuid : dunced) {
+            logger.info("[DunceChat] IP-dunced " + names.getOrDefault(linkedUuid, "Unknown") + " (linked to " + targetName + ")");
+        }
     }
 
     /**
-     * Dunce by IP address - dunces all accounts associated with the IP
-     * First player is broadcast, rest are silent
+     * Dunce by IP address - dunces all accounts associated with the IP in one transaction, with
+     * a batched insert and preferences upsert, and one summary broadcast
+     * @return The number of accounts dunced (0 if all were already dunced or the IP is unknown)
      */
-    public void ipDunceByAddress(String ipAddress, String reason, UUID staffUuid, Timestamp expiresAt) {
-        Set<UUID> players = playerIPRepository.getPlayersByIP(ipAddress);
-
-        if (players.isEmpty()) {
-            return;
+    public int ipDunceByAddress(String ipAddress, String reason, UUID staffUuid, Timestamp expiresAt) {
+        // Buffered IP sightings first, or accounts that just joined from the IP are missed
+        if (!playerService.ensureAllPersisted()) {
+            logger.severe("[DunceChat] Failed to IP-dunce " + ipAddress + ": buffered player records could not be written");
+            return 0;
         }
+        Set<UUID> players = playerIPRepository.getPlayersByIP(ipAddress);
 
-        boolean firstPlayer = true;
+        List<UUID> dunced = new ArrayList<>();
         for (UUID playerUuid : players) {
             if (!isDunced(playerUuid)) {
-                String linkedReason = reason + " (IP: " + ipAddress + ")";
-                String playerName = playerService.getNameByUuid(playerUuid).orElse("Unknown");
-
-                if (firstPlayer) {
-                    // Broadcast for the first player only
-                    duncePlayer(playerUuid, linkedReason, staffUuid, expiresAt, null);
-                    firstPlayer = false;
-                } else {
-                    // Silent for subsequent players
-                    duncePlayerSilent(playerUuid, linkedReason, staffUuid, expiresAt, null);
-                }
-                logger.info("[DunceChat] IP-dunced " + playerName + " (IP: " + ipAddress + ")");
+                dunced.add(playerUuid);
             }
         }
+        if (dunced.isEmpty()) {
+            return 0;
+        }
+
+        if (!playerService.ensurePersisted(dunced)) {
+            logger.severe("[DunceChat] Failed to IP-dunce " + ipAddress + ": buffered player records could not be written");
+            return 0;
+        }
+        Map<UUID, String> names = playerService.getNamesByUuids(dunced);
+        String linkedReason = reason + " (IP: " + ipAddress + ")";
+
+        List<DunceRecord> records = new ArrayList<>(dunced.size());
+        for (UUID playerUuid : dunced) {
+            records.add(newDunceRecord(playerUuid, linkedReason, staffUuid, expiresAt, null, null, ipAddress));
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            databaseManager.runInTransaction(unit -> {
+                dunceAll(unit, records);
+                // The broadcast leaves out the address itself
+                unit.afterCommit(() -> broadcastIPDunceSummary(dunced, names, reason, staffUuid, expiresAt));
+            });
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to IP-dunce " + ipAddress + ": " + e.getMessage());
+            e.printStackTrace();
+            return 0;
+        }
+
+        for (UUID playerUuid : dunced) {
+            logger.info("[DunceChat] IP-dunced " + names.getOrDefault(playerUuid, "Unknown") + " (IP: " + ipAddress + ")");
+        }
+        logger.info("[DunceChat] IP-dunced " + dunced.size() + " accounts on " + ipAddress + " in "
+            + (System.currentTimeMillis() - start) + "ms");
+        return dunced.size();
     }
 
     /**
-     * Undunce a player and all accounts sharing their current IP address
+     * Undunce a player and all accounts sharing their current IP address, in one transaction
      * Only broadcasts for the primary target, linked accounts are undunced silently
      */
     public void ipUnduncePlayer(UUID targetUuid, UUID staffUuid) {
-        // Undunce the primary target (with broadcast)
-        unduncePlayer(targetUuid, staffUuid, false);
+        // Buffered IP sightings first, or accounts that just joined from the IP are missed
+        if (!playerService.ensureAllPersisted()) {
+            logger.severe("[DunceChat] Failed to IP-undunce " + targetUuid + ": buffered player records could not be written");
+            return;
+        }
 
         // Get all players sharing current IP with target
-        Set<UUID> linkedPlayers = playerIPRepository.getPlayersWithCurrentIP(targetUuid);
-
-        // Undunce all linked players silently (no broadcast)
-        for (UUID linkedUuid : linkedPlayers) {
+        Set<UUID> undunced = new LinkedHashSet<>();
+        boolean targetDunced = isDunced(targetUuid);
+        if (targetDunced) {
+            undunced.add(targetUuid);
+        }
+        for (UUID linkedUuid : playerIPRepository.getPlayersWithCurrentIP(targetUuid)) {
             if (isDunced(linkedUuid)) {
-                unduncePlayerSilent(linkedUuid, staffUuid);
-                String linkedName = playerService.getNameByUuid(linkedUuid).orElse("Unknown");
-                logger.info("[DunceChat] IP-undunced " + linkedName + " (linked to " + playerService.getNameByUuid(targetUuid).orElse("Unknown") + ")");
+                undunced.add(linkedUuid);
+            }
+        }
+        if (undunced.isEmpty()) {
+            return;
+        }
+        addIPLinkedAccounts(undunced);
+
+        try {
+            databaseManager.runInTransaction(unit -> {
+                undunce(unit, undunced, false);
+                if (targetDunced) {
+                    // Broadcast for the primary target only
+                    unit.afterCommit(() -> broadcastUndunceMessage(targetUuid, staffUuid));
+                }
+            });
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to IP-undunce " + targetUuid + ": " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        Map<UUID, String> names = playerService.getNamesByUuids(undunced);
+        String targetName = names.getOrDefault(targetUuid, "Unknown");
+        for (UUID linkedUuid : undunced) {
+            if (!linkedUuid.equals(targetUuid)) {
+                logger.info("[DunceChat] IP-undunced " + names.getOrDefault(linkedUuid, "Unknown") + " (linked to " + targetName + ")");
             }
         }
     }
 
     /**
-     * Undunce by IP address - undunces all accounts associated with the IP
-     * First player is broadcast, rest are silent
+     * Undunce by IP address - undunces all accounts associated with the IP (and the accounts
+     * IP-linked to them) in one transaction with batched writes, and one summary broadcast
+     * @return The number of accounts undunced
      */
-    public void ipUndunceByAddress(String ipAddress, UUID staffUuid) {
-        Set<UUID> players = playerIPRepository.getPlayersByIP(ipAddress);
-
-        if (players.isEmpty()) {
-            return;
+    public int ipUndunceByAddress(String ipAddress, UUID staffUuid) {
+        // Buffered IP sightings first, or accounts that just joined from the IP are missed
+        if (!playerService.ensureAllPersisted()) {
+            logger.severe("[DunceChat] Failed to IP-undunce " + ipAddress + ": buffered player records could not be written");
+            return 0;
         }
 
-        boolean firstPlayer = true;
-        for (UUID playerUuid : players) {
+        Set<UUID> undunced = new LinkedHashSet<>();
+        for (UUID playerUuid : playerIPRepository.getPlayersByIP(ipAddress)) {
             if (isDunced(playerUuid)) {
-                String playerName = playerService.getNameByUuid(playerUuid).orElse("Unknown");
-
-                if (firstPlayer) {
-                    // Broadcast for the first player only
-                    unduncePlayer(playerUuid, staffUuid, false);
-                    firstPlayer = false;
-                } else {
-                    // Silent for subsequent players
-                    unduncePlayerSilent(playerUuid, staffUuid);
-                }
-                logger.info("[DunceChat] IP-undunced " + playerName + " (IP: " + ipAddress + ")");
+                undunced.add(playerUuid);
             }
         }
+        if (undunced.isEmpty()) {
+            return 0;
+        }
+
+        UUID firstPlayer = undunced.iterator().next();
+        addIPLinkedAccounts(undunced);
+
+        try {
+            databaseManager.runInTransaction(unit -> {
+                undunce(unit, undunced, false);
+                unit.afterCommit(() -> broadcastIPUndunceSummary(undunced, firstPlayer, staffUuid));
+            });
+        } catch (SQLException e) {
+            logger.severe("[DunceChat] Failed to IP-undunce " + ipAddress + ": " + e.getMessage());
+            e.printStackTrace();
+            return 0;
+        }
+
+        Map<UUID, String> names = playerService.getNamesByUuids(undunced);
+        for (UUID playerUuid : undunced) {
+            logger.info("[DunceChat] IP-undunced " + names.getOrDefault(playerUuid, "Unknown") + " (IP: " + ipAddress + ")");
+        }
+        return undunced.size();
     }
 
     /**
      * Get historical IP links for a player (for info display)
      */
     public Set<UUID> getHistoricalIPLinks(UUID playerUuid) {
+        playerService.ensureAllPersisted();
         return playerIPRepository.getPlayersWithHistoricalIP(playerUuid);
     }
 
@@ -571,6 +1020,7 @@ public class DunceService {
      * Get current IP links for a player (for info display)
      */
     public Set<UUID> getCurrentIPLinks(UUID playerUuid) {
+        playerService.ensureAllPersisted();
         return playerIPRepository.getPlayersWithCurrentIP(playerUuid);
     }
 
@@ -578,7 +1028,34 @@ public class DunceService {
      * Log a player's IP address (called on join)
      */
     public void logPlayerIP(UUID playerUuid, String ipAddress) {
-        playerIPRepository.logPlayerIP(playerUuid, ipAddress);
+        PlayerWriteBuffer writeBuffer = playerService.getWriteBuffer();
+        if (writeBuffer != null) {
+            writeBuffer.recordIP(playerUuid, ipAddress, new Timestamp(System.currentTimeMillis()));
+        } else {
+            playerIPRepository.logPlayerIP(playerUuid, ipAddress);
+        }
+    }
+
+    /**
+     * Find connected players with a specific alt detection engine (for benchmarking)
+     */
+    public Map<UUID, Set<String>> findConnectedPlayers(UUID playerUuid, int maxDepth,
+                                                       PlayerIPRepository.AltDetectionEngine engine) {
+        return playerIPRepository.findAllConnectedPlayers(playerUuid, maxDepth, engine);
+    }
+
+    /**
+     * Check if the database can run the recursive CTE alt detection engine
+     */
+    public boolean supportsRecursiveAltQuery() {
+        return playerIPRepository.supportsRecursiveAltQuery();
+    }
+
+    /**
+     * Check if the in-memory IP graph is loaded
+     */
+    public boolean isIpGraphLoaded() {
+        return playerIPRepository.isIpGraphLoaded();
     }
 
     /**
@@ -590,6 +1067,7 @@ public class DunceService {
     public AltDetectionResult detectAlts(UUID playerUuid, int maxDepth) {
         String playerName = playerService.getNameByUuid(playerUuid).orElse("Unknown");
         AltDetectionResult result = new AltDetectionResult(playerUuid, playerName);
+        playerService.ensureAllPersisted();
 
         // Get current IP for the target player
         Optional<String> currentIP = playerIPRepository.getCurrentIP(playerUuid);
@@ -603,13 +1081,17 @@ public class DunceService {
             result.addPlayerIP(playerUuid, ip);
         }
 
+        // Names and last seen times for every alt in a few bulk queries
+        Map<UUID, String> altNames = playerService.getNamesByUuids(connectedPlayers.keySet());
+        Map<UUID, java.sql.Timestamp> altLastSeen = playerIPRepository.getLastSeenTimestamps(connectedPlayers.keySet());
+
         // Process each connected player
         for (Map.Entry<UUID, Set<String>> entry : connectedPlayers.entrySet()) {
             UUID altUuid = entry.getKey();
             Set<String> sharedIPs = entry.getValue();
 
-            String altName = playerService.getNameByUuid(altUuid).orElse("Unknown");
-            Optional<java.sql.Timestamp> lastSeen = playerIPRepository.getLastSeenTimestamp(altUuid);
+            String altName = altNames.getOrDefault(altUuid, "Unknown");
+            Optional<java.sql.Timestamp> lastSeen = Optional.ofNullable(altLastSeen.get(altUuid));
 
             // Check if they share the current IP
             boolean isCurrentIPMatch = currentIP.isPresent() && sharedIPs.contains(currentIP.get());
@@ -643,6 +1125,7 @@ public class DunceService {
      * Get all IPs for a player
      */
     public List<String> getPlayerIPs(UUID playerUuid) {
+        playerService.ensurePersisted(playerUuid);
         return playerIPRepository.getIPsByPlayer(playerUuid);
     }
 
@@ -650,6 +1133,7 @@ public class DunceService {
      * Get detailed IP records for a player
      */
     public List<PlayerIPRepository.IPRecord> getDetailedPlayerIPs(UUID playerUuid) {
+        playerService.ensurePersisted(playerUuid);
         return playerIPRepository.getDetailedIPsByPlayer(playerUuid);
     }
 
@@ -657,6 +1141,7 @@ public class DunceService {
      * Get the current IP for a player
      */
     public Optional<String> getPlayerCurrentIP(UUID playerUuid) {
+        playerService.ensurePersisted(playerUuid);
         return playerIPRepository.getCurrentIP(playerUuid);
     }
 
@@ -664,6 +1149,7 @@ public class DunceService {
      * Get shared IPs between two players
      */
     public Set<String> getSharedIPs(UUID player1, UUID player2) {
+        playerService.ensurePersisted(List.of(player1, player2));
         return playerIPRepository.getSharedIPs(player1, player2);
     }
 
@@ -674,7 +1160,22 @@ public class DunceService {
      * @return The number of IP records deleted
      */
     public int unlinkPlayerFromIPTracking(UUID playerUuid) {
-        int deletedCount = playerIPRepository.deletePlayerIPHistory(playerUuid);
+        // Buffered sightings would re-create the rows after the delete
+        if (!playerService.ensurePersisted(playerUuid)) {
+            throw new RuntimeException("Failed to write buffered IP history before deleting it");
+        }
+
+        int deletedCount;
+        try {
+            deletedCount = databaseManager.inTransaction(unit -> {
+                int deleted = playerIPRepository.deletePlayerIPHistory(unit.connection(), playerUuid);
+                unit.afterCommit(() -> playerIPRepository.removeGraphPlayer(playerUuid));
+                return deleted;
+            });
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete player IP history", e);
+        }
+
         String playerName = playerService.getNameByUuid(playerUuid).orElse("Unknown");
         logger.info("[DunceChat] Unlinked " + playerName + " from IP tracking (" + deletedCount + " IP records deleted)");
         return deletedCount;
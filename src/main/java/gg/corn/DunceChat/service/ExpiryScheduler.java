@@ -0,0 +1,122 @@
+package gg.corn.DunceChat.service;
+
+import gg.corn.DunceChat.model.DunceRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Wakes up exactly when the next timed dunce expires
+ * Expiry times are kept in a DelayQueue; entries are validated lazily when they fire,
+ * so undunces and changed expiry times need no removal from the queue. Everything that is
+ * due at the same time is handed over as one batch
+ */
+public class ExpiryScheduler {
+
+    private static final Logger logger = Logger.getLogger("DunceChat");
+
+    private final DelayQueue<ExpiryEntry> queue = new DelayQueue<>();
+    private final Consumer<List<UUID>> onDue;
+    private volatile Thread thread;
+
+    /**
+     * @param onDue Called on the scheduler thread with players whose dunce may have expired
+     */
+    public ExpiryScheduler(Consumer<List<UUID>> onDue) {
+        this.onDue = onDue;
+    }
+
+    /**
+     * Schedule a record's expiry (records without an expiry are ignored)
+     */
+    public void schedule(DunceRecord record) {
+        if (record == null || !record.isDunced() || record.getExpiresAt() == null) {
+            return;
+        }
+        // DunceRecord.isExpired is strict (now > expiresAt), so fire one millisecond after
+        queue.add(new ExpiryEntry(record.getPlayerUuid(), record.getExpiresAt().getTime() + 1));
+    }
+
+    /**
+     * Start the scheduler thread
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        thread = new Thread(this::run, "DunceChat-Expiry");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the scheduler thread
+     */
+    public synchronized void shutdown() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+        queue.clear();
+    }
+
+    /**
+     * Number of pending expiry entries (including stale ones not yet fired)
+     */
+    public int size() {
+        return queue.size();
+    }
+
+    private void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            ExpiryEntry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            // Collect everything else that is already due so mass expiries are processed together
+            List<ExpiryEntry> due = new ArrayList<>();
+            due.add(entry);
+            queue.drainTo(due);
+
+            List<UUID> playerUuids = new ArrayList<>(due.size());
+            for (ExpiryEntry dueEntry : due) {
+                playerUuids.add(dueEntry.playerUuid());
+            }
+
+            try {
+                onDue.accept(playerUuids);
+            } catch (Exception e) {
+                logger.severe("[DunceChat] Error processing dunce expiry: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * A pending expiry - due at an absolute wall-clock time
+     */
+    private record ExpiryEntry(UUID playerUuid, long dueAtMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other instanceof ExpiryEntry entry) {
+                return Long.compare(dueAtMillis, entry.dueAtMillis);
+            }
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package gg.corn.DunceChat.service;
 
+import gg.corn.DunceChat.graph.AltClusterIndex;
 import gg.corn.DunceChat.model.AltDetectionResult;
 import gg.corn.DunceChat.repository.PlayerIPRepository;
 import gg.corn.DunceChat.util.MessageManager;
@@ -12,6 +13,7 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 
 /**
@@ -39,6 +41,13 @@ public class IPTrackingService {
     private boolean watchlistNotifyOnJoin;
     private Map<String, String> watchlistedIPs; // IP -> reason
 
+    // Union-find over players and non-whitelisted IPs (null if disabled); rebuilds swap in a new one
+    private volatile AltClusterIndex altClusterIndex;
+
+    // Guards the swap; changes made while a rebuild is scanning are recorded and replayed onto the new index
+    private final Object altClusterLock = new Object();
+    private List<Consumer<AltClusterIndex>> altClusterChangesDuringRebuild;
+
     public IPTrackingService(PlayerIPRepository playerIPRepository, PlayerService playerService,
                             DunceService dunceService, MessageManager messageManager,
                             FileConfiguration config) {
@@ -48,6 +57,91 @@ public class IPTrackingService {
         this.messageManager = messageManager;
         this.config = config;
         loadConfig();
+
+        if (config.getBoolean("ip-tracking.alt-cluster-index", true)) {
+            this.altClusterIndex = new AltClusterIndex();
+            dunceService.setDunceStateListener((playerUuid, dunced) ->
+                updateAltClusters(index -> index.setDunced(playerUuid, dunced)));
+        } else {
+            this.altClusterIndex = null;
+        }
+    }
+
+    /**
+     * Rebuild the alt cluster index from the full IP log
+     * Needed at startup and after history is deleted, since union-find cannot remove links
+     * One rebuild runs at a time; lookups keep using the previous index until it is swapped in
+     * @return Number of nodes (players + IPs) in the rebuilt index, or -1 if disabled
+     */
+    public synchronized int rebuildAltClusters() {
+        if (altClusterIndex == null) {
+            return -1;
+        }
+
+        // Build a fresh index without holding any lock the join or dunce paths need;
+        // the current one keeps answering until the swap
+        synchronized (altClusterLock) {
+            altClusterChangesDuringRebuild = new ArrayList<>();
+        }
+
+        AltClusterIndex rebuilt = new AltClusterIndex();
+        try {
+            // Without the IP graph the log is streamed from the database: sightings still in the write
+            // buffer must be written first, since only unions made from now on are replayed
+            if (!playerIPRepository.isIpGraphLoaded() && !playerService.ensureAllPersisted()) {
+                throw new RuntimeException("Failed to write buffered IP sightings, keeping the current alt cluster index");
+            }
+            playerIPRepository.forEachPlayerIP((playerUuid, ipAddress) -> {
+                if (!isWhitelisted(ipAddress)) {
+                    rebuilt.union(playerUuid, ipAddress);
+                }
+            });
+        } catch (RuntimeException e) {
+            synchronized (altClusterLock) {
+                altClusterChangesDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        synchronized (altClusterLock) {
+            rebuilt.markReady(dunceService::getCachedDuncedPlayers);
+            for (Consumer<AltClusterIndex> change : altClusterChangesDuringRebuild) {
+                change.accept(rebuilt);
+            }
+            altClusterChangesDuringRebuild = null;
+            altClusterIndex = rebuilt;
+        }
+        return rebuilt.getNodeCount();
+    }
+
+    /**
+     * Apply a change to the alt cluster index, and remember it for the new index if a rebuild is running
+     */
+    private void updateAltClusters(Consumer<AltClusterIndex> change) {
+        synchronized (altClusterLock) {
+            change.accept(altClusterIndex);
+            if (altClusterChangesDuringRebuild != null) {
+                altClusterChangesDuringRebuild.add(change);
+            }
+        }
+    }
+
+    /**
+     * Called after a player's IP history has been deleted
+     */
+    public void onPlayerUnlinked(UUID playerUuid) {
+        rebuildAltClusters();
+    }
+
+    /**
+     * Get the number of players in a player's alt cluster (any depth), or -1 if the index is unavailable
+     */
+    public int getAltClusterSize(UUID playerUuid) {
+        AltClusterIndex index = altClusterIndex;
+        if (index == null || !index.isReady()) {
+            return -1;
+        }
+        return index.getClusterSize(playerUuid);
     }
 
     /**
@@ -177,6 +271,10 @@ public class IPTrackingService {
             return;
         }
 
+        if (altClusterIndex != null) {
+            updateAltClusters(index -> index.union(playerUuid, ipAddress));
+        }
+
         // Check watchlist
         if (isWatchlisted(ipAddress)) {
             handleWatchlistJoin(player, ipAddress);
@@ -223,6 +321,17 @@ public class IPTrackingService {
             return;
         }
 
+        // Nobody connected to this player at any depth is dunced - nothing to report
+        AltClusterIndex index = altClusterIndex;
+        if (index != null && index.isReady() && !index.hasDuncedAlt(playerUuid)) {
+            return;
+        }
+
+        // Without the in-memory graph the checks below read player_ip_log, which needs the buffered sighting
+        if (!playerIPRepository.isIpGraphLoaded()) {
+            playerService.ensurePersisted(playerUuid);
+        }
+
         // Get all players sharing this IP
         Set<UUID> playersOnIP = playerIPRepository.getPlayersByIP(ipAddress);
         playersOnIP.remove(playerUuid); // Remove self
@@ -10,6 +10,9 @@ import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
 
 import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -20,16 +23,20 @@ public class PlayerService {
 
     private final PlayerRepository playerRepository;
     private final FileConfiguration config;
+    // Write-behind buffer for join/quit writes (null if disabled)
+    private final PlayerWriteBuffer writeBuffer;
 
-    public PlayerService(PlayerRepository playerRepository, FileConfiguration config) {
+    public PlayerService(PlayerRepository playerRepository, FileConfiguration config, PlayerWriteBuffer writeBuffer) {
         this.playerRepository = playerRepository;
         this.config = config;
+        this.writeBuffer = writeBuffer;
     }
 
     /**
      * Get a player by UUID
      */
     public Optional<Player> getPlayer(UUID uuid) {
+        ensurePersisted(uuid);
         return playerRepository.findByUuid(uuid);
     }
 
@@ -37,30 +44,59 @@ public class PlayerService {
      * Get a player by username
      */
     public Optional<Player> getPlayerByUsername(String username) {
+        if (writeBuffer != null) {
+            writeBuffer.ensurePersistedByName(username);
+        }
         return playerRepository.findByUsername(username);
     }
 
     /**
-     * Update or create player on join
+     * Block until a player's buffered join/quit/IP writes are in the database
+     * Call before writing rows that reference the player or reading its rows with SQL
+     * @return False if the writes could not be flushed; rows referencing the player would then fail
+     */
+    public boolean ensurePersisted(UUID uuid) {
+        return writeBuffer == null || writeBuffer.ensurePersisted(uuid);
+    }
+
+    /**
+     * Block until the buffered writes of these players are in the database
+     * @return False if some writes could not be flushed
+     */
+    public boolean ensurePersisted(Collection<UUID> uuids) {
+        return writeBuffer == null || writeBuffer.ensurePersisted(uuids);
+    }
+
+    /**
+     * Block until every buffered write is in the database
+     * Call before set-based reads of player_ip_log, which can match players not yet written
+     * @return False if some writes could not be flushed
+     */
+    public boolean ensureAllPersisted() {
+        return writeBuffer == null || writeBuffer.ensureAllPersisted();
+    }
+
+    /**
+     * Get the write-behind buffer (null if disabled)
+     */
+    public PlayerWriteBuffer getWriteBuffer() {
+        return writeBuffer;
+    }
+
+    /**
+     * Update or create player on join (one upsert, first join is kept)
      */
     public void handlePlayerJoin(org.bukkit.entity.Player bukkitPlayer) {
         UUID uuid = bukkitPlayer.getUniqueId();
         String username = bukkitPlayer.getName();
         Timestamp now = new Timestamp(System.currentTimeMillis());
 
-        Optional<Player> existingPlayer = playerRepository.findByUuid(uuid);
-
-        if (existingPlayer.isPresent()) {
-            Player player = existingPlayer.get();
-            player.setUsername(username);
-            player.setLastJoin(now);
-            playerRepository.save(player);
-        } else {
-            Player player = new Player(uuid, username);
-            player.setFirstJoin(now);
-            player.setLastJoin(now);
-            playerRepository.save(player);
+        if (writeBuffer != null) {
+            writeBuffer.recordJoin(uuid, username, now);
+            return;
         }
+
+        playerRepository.upsertJoin(uuid, username, now);
     }
 
     /**
@@ -68,6 +104,10 @@ public class PlayerService {
      */
     public void handlePlayerQuit(org.bukkit.entity.Player bukkitPlayer) {
         Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (writeBuffer != null) {
+            writeBuffer.recordQuit(bukkitPlayer.getUniqueId(), now);
+            return;
+        }
         playerRepository.updateQuitTime(bukkitPlayer.getUniqueId(), now);
     }
 
@@ -75,7 +115,7 @@ public class PlayerService {
      * Get UUID by player name
      */
     public Optional<UUID> getUuidByName(String username) {
-        return playerRepository.findByUsername(username)
+        return getPlayerByUsername(username)
                 .map(Player::getUuid);
     }
 
@@ -83,10 +123,31 @@ public class PlayerService {
      * Get username by UUID
      */
     public Optional<String> getNameByUuid(UUID uuid) {
-        return playerRepository.findByUuid(uuid)
+        // A buffered join already has the latest name, no need to wait for its flush
+        if (writeBuffer != null) {
+            Optional<String> pendingName = writeBuffer.getPendingUsername(uuid);
+            if (pendingName.isPresent()) {
+                return pendingName;
+            }
+        }
+        return getPlayer(uuid)
                 .map(Player::getUsername);
     }
 
+    /**
+     * Get usernames for many players in a few queries
+     * Players with no record are absent from the returned map
+     */
+    public Map<UUID, String> getNamesByUuids(Collection<UUID> uuids) {
+        if (uuids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (writeBuffer != null) {
+            writeBuffer.ensurePersisted(uuids);
+        }
+        return playerRepository.findNamesByUuids(uuids);
+    }
+
     /**
      * Get display name for a player, using PlaceholderAPI if configured
      * Returns a Component to preserve colors from PlaceholderAPI
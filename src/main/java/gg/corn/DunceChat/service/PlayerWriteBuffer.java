@@ -0,0 +1,431 @@
+package gg.corn.DunceChat.service;
+
+import gg.corn.DunceChat.database.DatabaseManager;
+import gg.corn.DunceChat.model.Player;
+import gg.corn.DunceChat.model.PlayerPreferences;
+import gg.corn.DunceChat.repository.PlayerIPRepository;
+import gg.corn.DunceChat.repository.PlayerRepository;
+import gg.corn.DunceChat.repository.PreferencesRepository;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind buffer for join/quit bookkeeping (players, player_ip_log and preference toggles)
+ * Joins, quits, IP sightings and preference changes are coalesced per player and written as JDBC
+ * batches in one transaction, every flush interval or as soon as maxBatchSize players are pending.
+ * Anything that needs a player's rows in the database (foreign keys, database-backed lookups)
+ * calls {@link #ensurePersisted} first
+ */
+public class PlayerWriteBuffer {
+
+    private static final Logger logger = Logger.getLogger("DunceChat");
+
+    private final DatabaseManager databaseManager;
+    private final PlayerRepository playerRepository;
+    private final PlayerIPRepository playerIPRepository;
+    private final PreferencesRepository preferencesRepository;
+    private final long flushIntervalMillis;
+    private final int maxBatchSize;
+
+    // Writes not yet handed to a flush, and the batch currently being written (guarded by this)
+    private Map<UUID, PendingWrite> pending = new LinkedHashMap<>();
+    private Map<UUID, PendingWrite> flushing = Map.of();
+
+    // Only one flush writes at a time (a ReentrantLock, so virtual threads waiting for it release their carrier)
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile boolean closed;
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder playersWritten = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+
+    /**
+     * Coalesced writes for one player; null fields have nothing to write
+     */
+    private static final class PendingWrite {
+        private String username;
+        private Timestamp lastJoin;
+        private Timestamp lastQuit;
+        private final Map<String, Timestamp> ipSightings = new LinkedHashMap<>();
+        private Boolean dunceChatVisible;
+        private Boolean inDunceChat;
+
+        /**
+         * Fill in anything this (newer) entry does not have from an older one that failed to flush
+         */
+        private void mergeOlder(PendingWrite older) {
+            if (lastJoin == null) {
+                username = older.username;
+                lastJoin = older.lastJoin;
+            }
+            if (lastQuit == null) {
+                lastQuit = older.lastQuit;
+            }
+            older.ipSightings.forEach(ipSightings::putIfAbsent);
+            if (dunceChatVisible == null) {
+                dunceChatVisible = older.dunceChatVisible;
+            }
+            if (inDunceChat == null) {
+                inDunceChat = older.inDunceChat;
+            }
+        }
+    }
+
+    public PlayerWriteBuffer(DatabaseManager databaseManager, PlayerRepository playerRepository,
+                             PlayerIPRepository playerIPRepository, PreferencesRepository preferencesRepository,
+                             long flushIntervalMillis, int maxBatchSize) {
+        this.databaseManager = databaseManager;
+        this.playerRepository = playerRepository;
+        this.playerIPRepository = playerIPRepository;
+        this.preferencesRepository = preferencesRepository;
+        this.flushIntervalMillis = Math.max(50, flushIntervalMillis);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+    }
+
+    /**
+     * Start the periodic flush
+     * The timer thread only hands flushes to the database executor, so they share its concurrency limit
+     */
+    public synchronized void start() {
+        if (scheduler != null || closed) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "DunceChat-WriteBuffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            if (getPendingCount() > 0) {
+                requestFlush();
+            }
+        }, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic flush and write everything still pending (call before closing the pool)
+     * Writes recorded afterwards are flushed immediately
+     */
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            closed = true;
+            current = scheduler;
+            scheduler = null;
+        }
+        if (current != null) {
+            current.shutdownNow();
+        }
+        flush();
+
+        int remaining = getPendingCount();
+        if (remaining > 0) {
+            logger.severe("[DunceChat] " + remaining + " player records could not be written at shutdown");
+        }
+    }
+
+    /**
+     * Record a join (creates the player, or updates username and last join; first join is kept)
+     */
+    public void recordJoin(UUID playerUuid, String username, Timestamp joinTime) {
+        record(playerUuid, write -> {
+            write.username = username;
+            write.lastJoin = joinTime;
+        });
+    }
+
+    /**
+     * Record a quit time
+     */
+    public void recordQuit(UUID playerUuid, Timestamp quitTime) {
+        record(playerUuid, write -> write.lastQuit = quitTime);
+    }
+
+    /**
+     * Record an IP sighting; the in-memory IP graph is updated immediately
+     */
+    public void recordIP(UUID playerUuid, String ipAddress, Timestamp seenAt) {
+        record(playerUuid, write -> write.ipSightings.put(ipAddress, seenAt));
+        playerIPRepository.addGraphEdge(playerUuid, ipAddress);
+    }
+
+    /**
+     * Record a dunce chat visibility change (written after the player's own row)
+     */
+    public void recordDunceChatVisible(UUID playerUuid, boolean visible) {
+        record(playerUuid, write -> write.dunceChatVisible = visible);
+    }
+
+    /**
+     * Record an in dunce chat change (written after the player's own row)
+     */
+    public void recordInDunceChat(UUID playerUuid, boolean inDunceChat) {
+        record(playerUuid, write -> write.inDunceChat = inDunceChat);
+    }
+
+    /**
+     * Apply preference changes not yet in the database to preferences just read from it
+     */
+    public synchronized void applyPendingPreferences(PlayerPreferences preferences) {
+        for (Map<UUID, PendingWrite> writes : List.of(flushing, pending)) {
+            PendingWrite write = writes.get(preferences.getPlayerUuid());
+            if (write == null) {
+                continue;
+            }
+            if (write.dunceChatVisible != null) {
+                preferences.setDunceChatVisible(write.dunceChatVisible);
+            }
+            if (write.inDunceChat != null) {
+                preferences.setInDunceChat(write.inDunceChat);
+            }
+        }
+    }
+
+    /**
+     * Username of a join not yet in the database, if any
+     */
+    public synchronized Optional<String> getPendingUsername(UUID playerUuid) {
+        for (Map<UUID, PendingWrite> writes : List.of(pending, flushing)) {
+            PendingWrite write = writes.get(playerUuid);
+            if (write != null && write.username != null) {
+                return Optional.of(write.username);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void record(UUID playerUuid, Consumer<PendingWrite> update) {
+        int size;
+        synchronized (this) {
+            update.accept(pending.computeIfAbsent(playerUuid, k -> new PendingWrite()));
+            size = pending.size();
+        }
+
+        if (closed) {
+            flush();
+        } else if (size >= maxBatchSize) {
+            requestFlush();
+        }
+    }
+
+    /**
+     * Flush on the database executor without waiting
+     */
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            databaseManager.getExecutor().execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // Shutting down - the final flush picks it up
+            flushRequested.set(false);
+        }
+    }
+
+    /**
+     * Block until a player's pending writes (if any) are in the database
+     * @return False if they are still not written because the flush failed
+     */
+    public boolean ensurePersisted(UUID playerUuid) {
+        return ensurePersisted(List.of(playerUuid));
+    }
+
+    /**
+     * Block until the pending writes (if any) of these players are in the database
+     * @return False if some are still not written because the flush failed
+     */
+    public boolean ensurePersisted(Collection<UUID> playerUuids) {
+        if (!hasPendingWrites(playerUuids)) {
+            return true;
+        }
+        flush();
+        return !hasPendingWrites(playerUuids);
+    }
+
+    /**
+     * Block until everything pending now is in the database
+     * Call before set-based reads of player_ip_log (players sharing an IP), which can match any player
+     * @return False if some writes are still not written because the flush failed
+     */
+    public boolean ensureAllPersisted() {
+        Set<UUID> playerUuids;
+        synchronized (this) {
+            if (pending.isEmpty() && flushing.isEmpty()) {
+                return true;
+            }
+            playerUuids = new HashSet<>(pending.keySet());
+            playerUuids.addAll(flushing.keySet());
+        }
+        return ensurePersisted(playerUuids);
+    }
+
+    private synchronized boolean hasPendingWrites(Collection<UUID> playerUuids) {
+        for (UUID playerUuid : playerUuids) {
+            if (pending.containsKey(playerUuid) || flushing.containsKey(playerUuid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Block until a pending join under this username (if any) is in the database
+     * @return False if it is still not written because the flush failed
+     */
+    public boolean ensurePersistedByName(String username) {
+        if (!hasPendingJoin(username)) {
+            return true;
+        }
+        flush();
+        return !hasPendingJoin(username);
+    }
+
+    private synchronized boolean hasPendingJoin(String username) {
+        for (Map<UUID, PendingWrite> writes : List.of(pending, flushing)) {
+            for (PendingWrite write : writes.values()) {
+                if (write.username != null && write.username.equalsIgnoreCase(username)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write everything pending in one transaction
+     * A failed batch is put back (behind any newer writes) and retried on the next flush
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<UUID, PendingWrite> batch;
+            synchronized (this) {
+                flushRequested.set(false);
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new LinkedHashMap<>();
+                flushing = batch;
+            }
+
+            try {
+                write(batch);
+                flushes.increment();
+                playersWritten.add(batch.size());
+            } catch (SQLException e) {
+                failedFlushes.increment();
+                logger.severe("[DunceChat] Failed to write " + batch.size() + " buffered player records, will retry: "
+                    + e.getMessage());
+                requeue(batch);
+            } finally {
+                synchronized (this) {
+                    flushing = Map.of();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write(Map<UUID, PendingWrite> batch) throws SQLException {
+        List<Player> joins = new ArrayList<>();
+        Map<UUID, Timestamp> quits = new LinkedHashMap<>();
+        Map<UUID, Map<String, Timestamp>> ipSightings = new LinkedHashMap<>();
+        Map<UUID, Boolean> visibility = new LinkedHashMap<>();
+        Map<UUID, Boolean> inDunceChat = new LinkedHashMap<>();
+
+        for (Map.Entry<UUID, PendingWrite> entry : batch.entrySet()) {
+            UUID playerUuid = entry.getKey();
+            PendingWrite write = entry.getValue();
+            if (write.lastJoin != null) {
+                Player player = new Player(playerUuid, write.username);
+                player.setFirstJoin(write.lastJoin);
+                player.setLastJoin(write.lastJoin);
+                joins.add(player);
+            }
+            if (write.lastQuit != null) {
+                quits.put(playerUuid, write.lastQuit);
+            }
+            if (!write.ipSightings.isEmpty()) {
+                ipSightings.put(playerUuid, write.ipSightings);
+            }
+            if (write.dunceChatVisible != null) {
+                visibility.put(playerUuid, write.dunceChatVisible);
+            }
+            if (write.inDunceChat != null) {
+                inDunceChat.put(playerUuid, write.inDunceChat);
+            }
+        }
+
+        // Players first - player_ip_log and player_preferences reference them
+        databaseManager.runInTransaction(unit -> {
+            playerRepository.upsertJoinBatch(unit.connection(), joins);
+            playerRepository.updateQuitTimeBatch(unit.connection(), quits);
+            playerIPRepository.logPlayerIPBatch(unit.connection(), ipSightings);
+            for (Map.Entry<UUID, Boolean> entry : visibility.entrySet()) {
+                preferencesRepository.setDunceChatVisible(unit.connection(), entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<UUID, Boolean> entry : inDunceChat.entrySet()) {
+                preferencesRepository.setInDunceChat(unit.connection(), entry.getKey(), entry.getValue());
+            }
+        });
+    }
+
+    private synchronized void requeue(Map<UUID, PendingWrite> batch) {
+        Map<UUID, PendingWrite> merged = new LinkedHashMap<>(batch);
+        for (Map.Entry<UUID, PendingWrite> newer : pending.entrySet()) {
+            PendingWrite older = merged.get(newer.getKey());
+            if (older != null) {
+                newer.getValue().mergeOlder(older);
+            }
+            merged.put(newer.getKey(), newer.getValue());
+        }
+        pending = merged;
+    }
+
+    /**
+     * Number of players with writes not yet in the database
+     */
+    public synchronized int getPendingCount() {
+        return pending.size() + flushing.size();
+    }
+
+    /**
+     * Get a snapshot of the buffer counters
+     */
+    public Stats getStats() {
+        return new Stats(getPendingCount(), flushes.sum(), playersWritten.sum(), failedFlushes.sum());
+    }
+
+    /**
+     * Buffer counters
+     */
+    public record Stats(int pending, long flushes, long playersWritten, long failedFlushes) {
+        public double averageBatchSize() {
+            return flushes == 0 ? 0.0 : (double) playersWritten / flushes;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package gg.corn.DunceChat.service;
 
+import gg.corn.DunceChat.database.UnitOfWork;
 import gg.corn.DunceChat.model.PlayerPreferences;
 import gg.corn.DunceChat.repository.PreferencesRepository;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
+import java.sql.SQLException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -23,6 +27,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class PreferencesService {
 
     private final PreferencesRepository preferencesRepository;
+    private final PlayerService playerService;
 
     // Cache for player preferences - only caches online players
     // Memory: ~100 bytes per player (UUID + 2 booleans + object overhead)
@@ -35,16 +40,28 @@ public class PreferencesService {
     // Live set of players in dunce chat mode
     private final Set<UUID> inDunceChatPlayers = ConcurrentHashMap.newKeySet();
 
-    public PreferencesService(PreferencesRepository preferencesRepository) {
+    public PreferencesService(PreferencesRepository preferencesRepository, PlayerService playerService) {
         this.preferencesRepository = preferencesRepository;
+        this.playerService = playerService;
     }
 
     /**
      * Get player preferences (uses cache for online players)
      */
     public PlayerPreferences getPreferences(UUID playerUuid) {
-        return preferencesCache.computeIfAbsent(playerUuid,
-            uuid -> preferencesRepository.getPreferences(uuid));
+        return preferencesCache.computeIfAbsent(playerUuid, this::loadPreferences);
+    }
+
+    /**
+     * Read preferences from the database, with any change still in the write buffer applied
+     */
+    private PlayerPreferences loadPreferences(UUID playerUuid) {
+        PlayerPreferences prefs = preferencesRepository.getPreferences(playerUuid);
+        PlayerWriteBuffer writeBuffer = playerService.getWriteBuffer();
+        if (writeBuffer != null) {
+            writeBuffer.applyPendingPreferences(prefs);
+        }
+        return prefs;
     }
 
     /**
@@ -63,8 +80,27 @@ public class PreferencesService {
      * Set dunce chat visibility
      */
     public void setDunceChatVisible(UUID playerUuid, boolean visible) {
-        preferencesRepository.setDunceChatVisible(playerUuid, visible);
+        // Queued behind the player's buffered row (player_preferences references players), so
+        // toggling never waits for a flush
+        PlayerWriteBuffer writeBuffer = playerService.getWriteBuffer();
+        if (writeBuffer != null) {
+            writeBuffer.recordDunceChatVisible(playerUuid, visible);
+        } else {
+            preferencesRepository.setDunceChatVisible(playerUuid, visible);
+        }
+        applyDunceChatVisible(playerUuid, visible);
+    }
+
+    /**
+     * Set dunce chat visibility as part of a unit of work; the cache follows the commit
+     * The player's buffered writes must already be persisted (a buffered toggle would overwrite this)
+     */
+    public void setDunceChatVisible(UnitOfWork unit, UUID playerUuid, boolean visible) throws SQLException {
+        preferencesRepository.setDunceChatVisible(unit.connection(), playerUuid, visible);
+        unit.afterCommit(() -> applyDunceChatVisible(playerUuid, visible));
+    }
 
+    private void applyDunceChatVisible(UUID playerUuid, boolean visible) {
         // Update live set
         if (visible) {
             dunceChatVisiblePlayers.add(playerUuid);
@@ -95,8 +131,55 @@ public class PreferencesService {
      * Set in dunce chat status
      */
     public void setInDunceChat(UUID playerUuid, boolean inDunceChat) {
-        preferencesRepository.setInDunceChat(playerUuid, inDunceChat);
+        PlayerWriteBuffer writeBuffer = playerService.getWriteBuffer();
+        if (writeBuffer != null) {
+            writeBuffer.recordInDunceChat(playerUuid, inDunceChat);
+        } else {
+            preferencesRepository.setInDunceChat(playerUuid, inDunceChat);
+        }
+        applyInDunceChat(playerUuid, inDunceChat);
+    }
 
+    /**
+     * Set in dunce chat status as part of a unit of work; the cache follows the commit
+     * The player's buffered writes must already be persisted (a buffered toggle would overwrite this)
+     */
+    public void setInDunceChat(UnitOfWork unit, UUID playerUuid, boolean inDunceChat) throws SQLException {
+        preferencesRepository.setInDunceChat(unit.connection(), playerUuid, inDunceChat);
+        unit.afterCommit(() -> applyInDunceChat(playerUuid, inDunceChat));
+    }
+
+    /**
+     * Set in dunce chat status for several players in one JDBC batch as part of a unit of work
+     * The cache follows the commit
+     */
+    public void setInDunceChatBatch(UnitOfWork unit, Collection<UUID> playerUuids, boolean inDunceChat) throws SQLException {
+        preferencesRepository.setInDunceChatBatch(unit.connection(), playerUuids, inDunceChat);
+        List<UUID> players = List.copyOf(playerUuids);
+        unit.afterCommit(() -> {
+            for (UUID playerUuid : players) {
+                applyInDunceChat(playerUuid, inDunceChat);
+            }
+        });
+    }
+
+    /**
+     * Set both dunce chat visibility and in dunce chat status for several players in one JDBC batch
+     * as part of a unit of work; the cache follows the commit
+     */
+    public void setDunceChatStateBatch(UnitOfWork unit, Collection<UUID> playerUuids, boolean visible,
+                                       boolean inDunceChat) throws SQLException {
+        preferencesRepository.setDunceChatStateBatch(unit.connection(), playerUuids, visible, inDunceChat);
+        List<UUID> players = List.copyOf(playerUuids);
+        unit.afterCommit(() -> {
+            for (UUID playerUuid : players) {
+                applyDunceChatVisible(playerUuid, visible);
+                applyInDunceChat(playerUuid, inDunceChat);
+            }
+        });
+    }
+
+    private void applyInDunceChat(UUID playerUuid, boolean inDunceChat) {
         // Update live set
         if (inDunceChat) {
             inDunceChatPlayers.add(playerUuid);
@@ -170,7 +253,7 @@ public class PreferencesService {
      * Pre-load preferences for a player (call on join)
      */
     public void loadIntoCache(UUID playerUuid) {
-        PlayerPreferences prefs = preferencesRepository.getPreferences(playerUuid);
+        PlayerPreferences prefs = loadPreferences(playerUuid);
         preferencesCache.put(playerUuid, prefs);
 
         // Update live sets based on loaded preferences
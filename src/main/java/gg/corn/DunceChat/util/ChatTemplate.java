@@ -0,0 +1,90 @@
+package gg.corn.DunceChat.util;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message format that has been parsed once into static Component segments and slots
+ * Rendering only fills the slots, so no string scanning or legacy deserialization
+ * happens per message
+ */
+public final class ChatTemplate {
+
+    private static final int STATIC = -1;
+
+    // Static segments are pre-deserialized; slot positions hold null
+    private final Component[] segments;
+    // For each segment, the index of the slot value to insert, or STATIC
+    private final int[] slotIndexes;
+
+    private ChatTemplate(Component[] segments, int[] slotIndexes) {
+        this.segments = segments;
+        this.slotIndexes = slotIndexes;
+    }
+
+    /**
+     * Compile a format string containing <slot_name> placeholders
+     * @param format The format with color placeholders already applied
+     * @param serializer Serializer used for the static text between slots
+     * @param slotNames Slot names, in the order their values are passed to {@link #render}
+     */
+    public static ChatTemplate compile(String format, LegacyComponentSerializer serializer, String... slotNames) {
+        List<Component> segments = new ArrayList<>();
+        List<Integer> slotIndexes = new ArrayList<>();
+        String remaining = format;
+
+        while (!remaining.isEmpty()) {
+            // Find the next slot placeholder
+            int earliestIndex = -1;
+            int earliestSlot = STATIC;
+            for (int i = 0; i < slotNames.length; i++) {
+                int index = remaining.indexOf("<" + slotNames[i] + ">");
+                if (index != -1 && (earliestIndex == -1 || index < earliestIndex)) {
+                    earliestIndex = index;
+                    earliestSlot = i;
+                }
+            }
+
+            if (earliestIndex == -1) {
+                // No more slots, the rest is static text
+                segments.add(serializer.deserialize(remaining));
+                slotIndexes.add(STATIC);
+                break;
+            }
+
+            // Static text before the slot
+            if (earliestIndex > 0) {
+                segments.add(serializer.deserialize(remaining.substring(0, earliestIndex)));
+                slotIndexes.add(STATIC);
+            }
+
+            segments.add(null);
+            slotIndexes.add(earliestSlot);
+
+            remaining = remaining.substring(earliestIndex + slotNames[earliestSlot].length() + 2);
+        }
+
+        int[] slots = new int[slotIndexes.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = slotIndexes.get(i);
+        }
+        return new ChatTemplate(segments.toArray(new Component[0]), slots);
+    }
+
+    /**
+     * Render the template with the given slot values
+     * Values are matched to slots by the order of the slot names given to {@link #compile}
+     */
+    public Component render(Component... values) {
+        ComponentLike[] parts = new ComponentLike[segments.length];
+        for (int i = 0; i < parts.length; i++) {
+            int slot = slotIndexes[i];
+            parts[i] = slot == STATIC ? segments[i] : values[slot];
+        }
+        return Component.textOfChildren(parts);
+    }
+}
@@ -13,6 +13,7 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Handles loading and formatting of messages from messages.properties using Adventure API
@@ -20,9 +21,12 @@ import java.util.Properties;
  */
 public class MessageManager {
 
-    private final Properties messages;
+    // Replaced as a whole on reload, so readers never see a half-loaded set
+    private volatile Properties messages = new Properties();
     private final Plugin plugin;
     private final LegacyComponentSerializer legacySerializer;
+    // Compiled chat templates, keyed by message key (cleared on reload)
+    private final Map<String, ChatTemplate> templates = new ConcurrentHashMap<>();
     private TextColor baseColor;
     private TextColor highlightColor;
     private String baseColorCode;
@@ -30,7 +34,6 @@ public class MessageManager {
 
     public MessageManager(Plugin plugin) {
         this.plugin = plugin;
-        this.messages = new Properties();
         // Use ampersand for color codes in messages.properties
         // Enable hex color support with &#RRGGBB format
         this.legacySerializer = LegacyComponentSerializer.builder()
@@ -131,10 +134,12 @@ public class MessageManager {
             }
         }
 
-        // Load properties
+        // Load into a new set and publish it in one write
         try (InputStream in = Files.newInputStream(messagesFile.toPath())) {
-            messages.load(in);
-            plugin.getLogger().info("Loaded " + messages.size() + " messages from messages.properties");
+            Properties loaded = new Properties();
+            loaded.load(in);
+            messages = loaded;
+            plugin.getLogger().info("Loaded " + loaded.size() + " messages from messages.properties");
         } catch (Exception e) {
             plugin.getLogger().severe("Failed to load messages.properties!");
             e.printStackTrace();
@@ -145,9 +150,10 @@ public class MessageManager {
      * Reload messages from file
      */
     public void reload() {
-        messages.clear();
         loadColors();
         loadMessages();
+        // After the new messages are live, so no template is compiled from a missing message
+        templates.clear();
     }
 
     /**
@@ -262,6 +268,15 @@ public class MessageManager {
         return result;
     }
 
+    /**
+     * Get a compiled template for a message with Component slots
+     * The message is parsed once and cached until the next reload
+     * @param slotNames Slot names, in the order values are passed to {@link ChatTemplate#render}
+     */
+    public ChatTemplate getTemplate(String key, String... slotNames) {
+        return templates.computeIfAbsent(key, k -> ChatTemplate.compile(getRaw(k), legacySerializer, slotNames));
+    }
+
     /**
      * Get a prefixed message
      */